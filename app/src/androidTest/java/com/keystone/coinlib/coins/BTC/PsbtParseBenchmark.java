@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.coinlib.coins.BTC;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.keystone.coinlib.exception.InvalidTransactionException;
+import com.keystone.coinlib.v8.ScriptLoader;
+
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times {@link PsbtDecoder} against the bundled script on PSBTs with 1, 100 and 1,000
+ * P2WPKH inputs. Runs on a device because the script needs V8.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PsbtParseBenchmark {
+    private static final String TAG = "Vault.PsbtBenchmark";
+    private static final int ROUNDS = 5;
+
+    // the generator point and its hash160
+    private static final String PUBKEY = "0279be667ef9dcbbac55a06295ce870b07029bfcdb2dce28d959f2815b16f81798";
+    private static final String PUBKEY_HASH = "751e76e8199196d454941c45d1b3a323f1433bd6";
+
+    @BeforeClass
+    public static void setUp() {
+        ScriptLoader.init(InstrumentationRegistry.getInstrumentation().getTargetContext());
+    }
+
+    @Test
+    public void oneInput() throws InvalidTransactionException {
+        compare(1);
+    }
+
+    @Test
+    public void hundredInputs() throws InvalidTransactionException {
+        compare(100);
+    }
+
+    @Test
+    public void thousandInputs() throws InvalidTransactionException {
+        compare(1000);
+    }
+
+    private static void compare(int inputs) throws InvalidTransactionException {
+        String psbt = buildPsbt(inputs);
+        BtcImpl btc = new BtcImpl(true);
+
+        JSONObject parsed = null;
+        long scriptTime = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            parsed = btc.parsePsbtByScript(psbt);
+            scriptTime = Math.min(scriptTime, SystemClock.elapsedRealtimeNanos() - start);
+        }
+
+        JSONObject decoded = null;
+        long decodeTime = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            decoded = new PsbtDecoder(true).decode(psbt).toJson();
+            decodeTime = Math.min(decodeTime, SystemClock.elapsedRealtimeNanos() - start);
+        }
+
+        Log.i(TAG, String.format("%d inputs: script %.2f ms, decoder %.2f ms",
+                inputs, scriptTime / 1e6, decodeTime / 1e6));
+
+        assertEquals(inputs, decoded.optJSONArray("inputs").length());
+        assertTrue(BtcImpl.sameJson(parsed, decoded));
+    }
+
+    private static String buildPsbt(int inputs) {
+        byte[] script = hex("0014" + PUBKEY_HASH);
+
+        ByteArrayOutputStream tx = new ByteArrayOutputStream();
+        writeUInt32(tx, 2);
+        writeVarInt(tx, inputs);
+        for (int i = 0; i < inputs; i++) {
+            byte[] prevTxId = new byte[32];
+            prevTxId[0] = (byte) i;
+            prevTxId[1] = (byte) (i >> 8);
+            prevTxId[31] = 1;
+            tx.write(prevTxId, 0, prevTxId.length);
+            writeUInt32(tx, i % 3);
+            writeVarInt(tx, 0);
+            writeUInt32(tx, 0xfffffffd);
+        }
+        writeVarInt(tx, 1);
+        writeUInt64(tx, 10000L * inputs);
+        writeVarBytes(tx, script);
+        writeUInt32(tx, 0);
+
+        ByteArrayOutputStream psbt = new ByteArrayOutputStream();
+        psbt.write(0x70);
+        psbt.write(0x73);
+        psbt.write(0x62);
+        psbt.write(0x74);
+        psbt.write(0xff);
+        writeVarBytes(psbt, new byte[]{0x00});
+        writeVarBytes(psbt, tx.toByteArray());
+        psbt.write(0x00);
+
+        for (int i = 0; i < inputs; i++) {
+            ByteArrayOutputStream utxo = new ByteArrayOutputStream();
+            writeUInt64(utxo, 20000 + i);
+            writeVarBytes(utxo, script);
+            writeVarBytes(psbt, new byte[]{0x01});
+            writeVarBytes(psbt, utxo.toByteArray());
+
+            ByteArrayOutputStream derivation = new ByteArrayOutputStream();
+            writeUInt32(derivation, 0x12345678);
+            writeUInt32(derivation, 0x80000054);
+            writeUInt32(derivation, 0x80000000);
+            writeUInt32(derivation, 0x80000000);
+            writeUInt32(derivation, 0);
+            writeUInt32(derivation, i);
+            writeVarBytes(psbt, hex("06" + PUBKEY));
+            writeVarBytes(psbt, derivation.toByteArray());
+            psbt.write(0x00);
+        }
+        psbt.write(0x00);
+
+        return Base64.getEncoder().encodeToString(psbt.toByteArray());
+    }
+
+    private static void writeUInt32(ByteArrayOutputStream out, long value) {
+        for (int i = 0; i < 4; i++) {
+            out.write((int) (value >> (8 * i)));
+        }
+    }
+
+    private static void writeUInt64(ByteArrayOutputStream out, long value) {
+        writeUInt32(out, value);
+        writeUInt32(out, value >>> 32);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        if (value < 0xfd) {
+            out.write(value);
+        } else {
+            out.write(0xfd);
+            out.write(value);
+            out.write(value >> 8);
+        }
+    }
+
+    private static void writeVarBytes(ByteArrayOutputStream out, byte[] bytes) {
+        writeVarInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static byte[] hex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -22,6 +22,7 @@ import android.content.Context;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
+import androidx.paging.DataSource;
 
 import com.keystone.coinlib.utils.Coins;
 import com.keystone.cold.callables.GetMasterFingerprintCallable;
@@ -40,6 +41,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static com.keystone.cold.viewmodel.WatchWallet.PSBT_MULTISIG_SIGN_ID;
+
 public class DataRepository {
     @SuppressLint("StaticFieldLeak")
     private static DataRepository sInstance;
@@ -128,6 +131,16 @@ public class DataRepository {
         return mDb.addressDao().loadAddressSync(coinId, getBelongTo());
     }
 
+    /**
+     * @return the highest index on the change chain of the account, or -1 if it has no address yet
+     */
+    public int loadMaxAddressIndex(String coinId, String accountHdPath, int changeIndex) {
+        // the paths of the chain start with ".../change/", and all sort below ".../change0"
+        String chain = accountHdPath + "/" + changeIndex;
+        Integer index = mDb.addressDao().loadMaxIndex(coinId, getBelongTo(), chain + "/", chain + "0");
+        return index == null ? -1 : index;
+    }
+
     public AddressEntity loadAddressBypath(String path) {
         return mDb.addressDao().loadAddress(path.toUpperCase(), getBelongTo());
     }
@@ -136,8 +149,12 @@ public class DataRepository {
         mDb.addressDao().update(addressEntity);
     }
 
-    public LiveData<List<TxEntity>> loadTxs(String coinId) {
-        return mDb.txDao().loadTxs(coinId);
+    public DataSource.Factory<Integer, TxEntity> loadTxs(String coinId, String signId) {
+        return mDb.txDao().loadTxs(coinId, getBelongTo(), signId);
+    }
+
+    public DataSource.Factory<Integer, TxEntity> loadKeystoneTxs(String coinId) {
+        return mDb.txDao().loadKeystoneTxs(coinId, getBelongTo(), PSBT_MULTISIG_SIGN_ID);
     }
 
     public List<TxEntity> loadAllTxsSync(String coinId) {
@@ -148,6 +165,20 @@ public class DataRepository {
         return mDb.txDao().loadTxsSync(coinId);
     }
 
+    /**
+     * @return true if a tx spending from and sending to the same addresses was signed before
+     */
+    public boolean hasTx(String coinId, String from, String to) {
+        return mDb.txDao().hasTx(coinId, from, to);
+    }
+
+    /**
+     * @return true if a tx sending to the same outputs was signed before
+     */
+    public boolean hasTxTo(String coinId, String to) {
+        return mDb.txDao().hasTxTo(coinId, to);
+    }
+
     public LiveData<TxEntity> loadTx(String txId) {
         return mDb.txDao().load(txId);
     }
@@ -278,6 +309,14 @@ public class DataRepository {
     public List<MultiSigAddressEntity> loadAddressForWalletSync(String walletId) {
         return mDb.multiSigAddressDao().loadAllMultiSigAddressSync(walletId);
     }
+
+    /**
+     * @return the highest index on the change chain of the wallet, or -1 if it has no address yet
+     */
+    public int loadMaxMultiSigAddressIndex(String walletFingerPrint, int changeIndex) {
+        Integer index = mDb.multiSigAddressDao().loadMaxIndex(walletFingerPrint, changeIndex);
+        return index == null ? -1 : index;
+    }
     public LiveData<List<MultiSigAddressEntity>> loadAddressForWallet(String walletId) {
         return mDb.multiSigAddressDao().loadAllMultiSigAddress(walletId);
     }
@@ -287,7 +326,7 @@ public class DataRepository {
         mDb.multiSigAddressDao().insert(entities);
     }
 
-    public LiveData<List<TxEntity>> loadMultisigTxs(String walletFingerprint) {
+    public DataSource.Factory<Integer, TxEntity> loadMultisigTxs(String walletFingerprint) {
         return mDb.txDao().loadMultisigTxs(walletFingerprint);
     }
 
@@ -29,6 +29,9 @@ import android.os.Bundle;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.keystone.coinlib.coins.BTC.BtcImpl;
+import com.keystone.coinlib.utils.Coins;
+import com.keystone.coinlib.v8.RuntimePool;
 import com.keystone.coinlib.v8.ScriptLoader;
 import com.keystone.cold.callables.RestartSeCallable;
 import com.keystone.cold.db.AppDatabase;
@@ -70,6 +73,8 @@ public class MainApplication extends Application {
         });
         initBackgroundCallBack();
         ScriptLoader.init(this);
+        RuntimePool.getInstance().prewarm(Coins.BTC.coinCode(), Coins.XTN.coinCode());
+        BtcImpl.setCrossCheckPsbt(BuildConfig.DEBUG);
 
         registerReceiver(mScreeOnReceiver, new IntentFilter(Intent.ACTION_SCREEN_OFF));
         shouldLock = Utilities.hasVaultCreated(this);
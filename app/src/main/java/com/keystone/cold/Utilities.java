@@ -29,6 +29,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.FragmentActivity;
 
 import com.keystone.coinlib.utils.Coins;
+import com.keystone.cold.encryption.KeyMaterialCache;
 import com.keystone.cold.ui.modal.ModalDialog;
 import com.keystone.cold.viewmodel.multisigs.MultiSigMode;
 
@@ -123,6 +124,7 @@ public class Utilities {
     public static void setCurrentBelongTo(Context context, String s) {
         SharedPreferences sp = context.getSharedPreferences(PREFERENCE_SECRET, MODE_PRIVATE);
         sp.edit().putString(PREFERENCE_KEY_BELONG_TO, s).apply();
+        KeyMaterialCache.getInstance().invalidate();
     }
 
     public static String getCurrentBelongTo(Context context) {
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.callables;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.keystone.cold.encryption.interfaces.CONSTANTS;
+import com.keystone.cold.encryptioncore.base.Packet;
+import com.keystone.cold.encryptioncore.base.Payload;
+import com.keystone.cold.encryptioncore.utils.Preconditions;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Streams a firmware image to the secure element one page at a time.
+ * <p>
+ * Pages are read straight from the image file into one reused page buffer, so the image is
+ * never held in memory. The uploader remembers the last page the secure element acknowledged;
+ * calling {@link #upload()} again after a failure resumes with the next page instead of
+ * starting over, and {@link #rewind()} starts the next upload from the first page.
+ */
+class FirmwareUploader implements Closeable {
+    private static final String TAG = "Vault.FirmwareUploader";
+    static final int METADATA_SIZE = 128; // 64byte meta data
+    private static final int PACKET_RETRY_TIMES = 6;
+
+    private final int mMethod;
+    private final int mHeaderMethod;
+    private final String mPassword;
+    private final FileInputStream mInputStream;
+    private final FileChannel mChannel;
+    private final int mPackageSize;
+    private final int mPageCount;
+    private final byte[] mPage = new byte[CONSTANTS.CONFIG.PAGE_SIZE];
+    private final byte[] mHeader = new byte[METADATA_SIZE];
+    @Nullable
+    private final UpdateCallable.ProgressCallback mProgressCallback;
+
+    private int mAckedPages;
+    private boolean mHeaderAcked;
+
+    /**
+     * @param method the command the pages are sent with
+     */
+    FirmwareUploader(@NonNull File image, int method, String password,
+                     @Nullable UpdateCallable.ProgressCallback progressCallback) throws IOException {
+        this(image, method, method, password, progressCallback);
+    }
+
+    /**
+     * @param method       the command the pages are sent with
+     * @param headerMethod the command the metadata header is sent with
+     */
+    FirmwareUploader(@NonNull File image, int method, int headerMethod, String password,
+                     @Nullable UpdateCallable.ProgressCallback progressCallback) throws IOException {
+        mMethod = method;
+        mHeaderMethod = headerMethod;
+        mPassword = password;
+        mProgressCallback = progressCallback;
+        mInputStream = new FileInputStream(Preconditions.checkNotNull(image));
+        mChannel = mInputStream.getChannel();
+
+        final long size = mChannel.size();
+        if (size <= METADATA_SIZE || size - METADATA_SIZE > Integer.MAX_VALUE) {
+            close();
+            throw new IOException("invalid firmware size " + size);
+        }
+
+        mPackageSize = (int) (size - METADATA_SIZE);
+        mPageCount = (mPackageSize + mPage.length - 1) / mPage.length;
+        readFully(ByteBuffer.wrap(mHeader), 0);
+    }
+
+    int getPageCount() {
+        return mPageCount;
+    }
+
+    int getAckedPages() {
+        return mAckedPages;
+    }
+
+    boolean isComplete() {
+        return mHeaderAcked;
+    }
+
+    /**
+     * @return offset in the image of the first byte the secure element has not acknowledged,
+     * where the next {@link #upload()} starts reading
+     */
+    long getAckedOffset() {
+        return METADATA_SIZE + (long) mAckedPages * mPage.length;
+    }
+
+    /**
+     * Starts the next {@link #upload()} from the first page.
+     */
+    void rewind() {
+        mAckedPages = 0;
+        mHeaderAcked = false;
+    }
+
+    /**
+     * Sends every page not acknowledged yet, then the metadata header.
+     */
+    void upload() throws Exception {
+        final int resumeFrom = mAckedPages;
+        final long start = SystemClock.elapsedRealtime();
+
+        if (resumeFrom > 0) {
+            Log.w(TAG, String.format("resume from the %sth package of %s", resumeFrom, mPageCount));
+        }
+
+        while (mAckedPages < mPageCount) {
+            final int position = mAckedPages * mPage.length;
+            final int read = Math.min(mPage.length, mPackageSize - position);
+            readFully(ByteBuffer.wrap(mPage, 0, read), METADATA_SIZE + position);
+
+            final int type = UpdateCallable.calculatePackageType(mPackageSize, position, read);
+            // the payload wraps mPage without copying; that is safe only because writeWithRetry
+            // blocks until the page is acknowledged, before the next page is read into mPage
+            writeWithRetry(mMethod, mAckedPages, type, new Payload(mPage, 0, read));
+            ++mAckedPages;
+
+            if (mProgressCallback != null) {
+                final long elapsed = Math.max(1, SystemClock.elapsedRealtime() - start);
+                mProgressCallback.onProgress(mAckedPages, mPageCount,
+                        (mAckedPages - resumeFrom) * 1000f / elapsed);
+            }
+        }
+
+        if (!mHeaderAcked) {
+            writeWithRetry(mHeaderMethod, -1, UpdateCallable.TYPE_PACKAGE_HEADER, new Payload(mHeader));
+            mHeaderAcked = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mInputStream.close();
+    }
+
+    private void writeWithRetry(int method, int packageIndex, int type, @NonNull Payload payload)
+            throws Exception {
+        final Packet packet = new Packet.Builder(method)
+                .addBytePayload(CONSTANTS.TAGS.UPDATING_PACKAGE_TYPE, type)
+                .addHexPayload(CONSTANTS.TAGS.CURRENT_PASSWORD, mPassword)
+                .addPayload(CONSTANTS.TAGS.UPDATING_PACKAGE, payload)
+                .build();
+
+        for (int i = 1; ; ++i) {
+            try {
+                if (packageIndex < 0) {
+                    Log.w(TAG, "write the header package");
+                } else {
+                    Log.w(TAG, String.format("write the %sth package", packageIndex));
+                }
+                new BlockingCallable(packet).call();
+                return;
+            } catch (Exception e) {
+                Log.e(TAG, "updating: ", e);
+
+                if (i == PACKET_RETRY_TIMES) {
+                    throw new RuntimeException("write updating packet out of retry times", e);
+                }
+            }
+        }
+    }
+
+    private void readFully(@NonNull ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int read = mChannel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("firmware image truncated");
+            }
+            position += read;
+        }
+    }
+}
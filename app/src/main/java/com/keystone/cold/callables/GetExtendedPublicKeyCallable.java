@@ -20,6 +20,7 @@ package com.keystone.cold.callables;
 import com.keystone.coinlib.utils.Coins;
 import com.keystone.cold.MainApplication;
 import com.keystone.cold.Utilities;
+import com.keystone.cold.encryption.KeyMaterialCache;
 import com.keystone.cold.encryption.interfaces.CONSTANTS;
 import com.keystone.cold.encryptioncore.base.Packet;
 import com.keystone.cold.encryptioncore.base.Payload;
@@ -31,15 +32,21 @@ import static com.keystone.coinlib.utils.Coins.CURVE.SECP256K1;
 public class GetExtendedPublicKeyCallable implements Callable<String> {
     private final String pubKeyPath;
     private final Coins.CURVE curve = SECP256K1;
+    private final String belongTo;
     private final boolean isMainWallet;
 
     public GetExtendedPublicKeyCallable(String pubKeyPath) {
         this.pubKeyPath = pubKeyPath;
-        isMainWallet = Utilities.getCurrentBelongTo(MainApplication.getApplication()).equals("main");
+        belongTo = Utilities.getCurrentBelongTo(MainApplication.getApplication());
+        isMainWallet = belongTo.equals("main");
     }
 
     @Override
     public String call() {
+        return KeyMaterialCache.getInstance().get(belongTo, curve, pubKeyPath, this::fetch);
+    }
+
+    private String fetch() {
         final Callable<Packet> callable = new BlockingCallable(
                 new Packet.Builder(CONSTANTS.METHODS.GET_EXTENDED_PUBLICKEY)
                         .addBytePayload(CONSTANTS.TAGS.CURVE, getCurveTag())
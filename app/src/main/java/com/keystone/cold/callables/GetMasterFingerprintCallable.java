@@ -19,20 +19,30 @@ package com.keystone.cold.callables;
 
 import com.keystone.cold.MainApplication;
 import com.keystone.cold.Utilities;
+import com.keystone.cold.encryption.KeyMaterialCache;
 import com.keystone.cold.encryption.interfaces.CONSTANTS;
 import com.keystone.cold.encryptioncore.base.Packet;
 import com.keystone.cold.encryptioncore.base.Payload;
 
 import java.util.concurrent.Callable;
 
+import static com.keystone.coinlib.utils.Coins.CURVE.SECP256K1;
+
 public class GetMasterFingerprintCallable implements Callable<String> {
 
+    private final String belongTo;
     private final boolean isMainWallet;
     public GetMasterFingerprintCallable() {
-        isMainWallet = Utilities.getCurrentBelongTo(MainApplication.getApplication()).equals("main");
+        belongTo = Utilities.getCurrentBelongTo(MainApplication.getApplication());
+        isMainWallet = belongTo.equals("main");
     }
     @Override
     public String call() {
+        final String fingerprint = KeyMaterialCache.getInstance().get(belongTo, SECP256K1, null, this::fetch);
+        return fingerprint != null ? fingerprint : "";
+    }
+
+    private String fetch() {
         try {
             final Callable<Packet> callable = new BlockingCallable(
                     new Packet.Builder(CONSTANTS.METHODS.GET_MASTER_FINGERPRINT)
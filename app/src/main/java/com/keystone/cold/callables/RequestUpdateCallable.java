@@ -19,116 +19,59 @@ package com.keystone.cold.callables;
 
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+
 import com.keystone.cold.encryption.interfaces.CONSTANTS;
-import com.keystone.cold.encryptioncore.base.Packet;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
+import java.io.File;
 import java.util.concurrent.Callable;
 
-import static com.keystone.cold.callables.UpdateCallable.TYPE_PACKAGE_HEADER;
-import static com.keystone.cold.callables.UpdateCallable.calculatePackageType;
-import static com.keystone.cold.callables.UpdateCallable.fitBuffer;
-
 public class RequestUpdateCallable implements Callable<Boolean> {
-    private final byte[] updateData;
+    private static final String TAG = "Vault.RequestUpdateCallable";
+    // the request sends its metadata header with its own command
+    private static final int METHOD_REQUEST_UPDATE_HEADER = 0x0203;
+    private final File updateFile;
     private final String password;
     private static final int UPDATE_RETRY_TIMES = 3;
-    private static final int PACKET_RETRY_TIMES = 6;
-    private static final int METADATA_SIZE = 128;
-    private final String TAG = "RequestUpdateCallableNew";
 
-    public RequestUpdateCallable(byte[] updateData, String password) {
-        this.updateData = updateData;
+    public RequestUpdateCallable(@NonNull File updateFile, String password) {
+        this.updateFile = updateFile;
         this.password = password;
 
     }
 
     @Override
     public Boolean call() {
-        for (int i = 1; ; ++i) {
-            boolean updateSuccess = true;
-
-            try {
-                updating();
-            } catch (Exception e) {
-                e.printStackTrace();
-                updateSuccess = false;
-            }
-
-            if (updateSuccess) {
-                break;
-            } else if (i == UPDATE_RETRY_TIMES) {
-                return false;
-            }
-        }
-        return true;
-    }
+        try (FirmwareUploader uploader = new FirmwareUploader(updateFile,
+                CONSTANTS.METHODS.REQUEST_UPDATE, METHOD_REQUEST_UPDATE_HEADER, password, null)) {
+            for (int i = 1; ; ++i) {
+                boolean updateSuccess = true;
 
-    private boolean updating() throws Exception {
-        final byte[] readBuffer = new byte[CONSTANTS.CONFIG.PAGE_SIZE];
-        try (InputStream inputStream = new ByteArrayInputStream(updateData)) {
-            // skip metadata
-            byte[] metaData = new byte[METADATA_SIZE];
-            inputStream.read(metaData);
-
-            int read;
-            final int packageSize = updateData.length - METADATA_SIZE;
-            int packageIndex = 0;
-            int readPosition = 0;
-
-            while ((read = inputStream.read(readBuffer)) > 0) {
-                final byte[] availableBuffer = fitBuffer(readBuffer, read);
-                final int type = calculatePackageType(packageSize, readPosition, read);
-                for (int i = 1; i <= PACKET_RETRY_TIMES; ++i) {
-                    boolean writeSuccess = true;
-                    final Packet.Builder builder = new Packet.Builder(CONSTANTS.METHODS.REQUEST_UPDATE)
-                            .addBytePayload(CONSTANTS.TAGS.UPDATING_PACKAGE_TYPE, type)
-                            .addHexPayload(CONSTANTS.TAGS.CURRENT_PASSWORD, password)
-                            .addBytesPayload(CONSTANTS.TAGS.UPDATING_PACKAGE, availableBuffer);
-
-                    final Callable callable = new BlockingCallable(builder.build());
-                    try {
-                        Log.w(TAG, String.format("write the %sth package", packageIndex));
-                        callable.call();
-                    } catch (Exception e) {
-                        Log.e(TAG, "updating: ", e);
-                        writeSuccess = false;
-                    }
-
-                    if (writeSuccess) {
-                        break;
-                    } else if (i == PACKET_RETRY_TIMES) {
-                        throw new RuntimeException("write updating packet out of retry times");
-                    }
-                }
-                readPosition += read;
-                ++packageIndex;
-            }
-            for (int i = 1; i <= PACKET_RETRY_TIMES; ++i) {
-                boolean writeSuccess = true;
-                final Packet.Builder builder = new Packet.Builder(0x0203)
-                        .addBytePayload(CONSTANTS.TAGS.UPDATING_PACKAGE_TYPE, TYPE_PACKAGE_HEADER)
-                        .addHexPayload(CONSTANTS.TAGS.CURRENT_PASSWORD, password)
-                        .addBytesPayload(CONSTANTS.TAGS.UPDATING_PACKAGE, metaData);
-                final Callable callable = new BlockingCallable(builder.build());
                 try {
-                    Log.w(TAG, String.format("write the header package", packageIndex));
-                    callable.call();
+                    uploader.upload();
                 } catch (Exception e) {
-                    Log.e(TAG, "updating: ", e);
-                    writeSuccess = false;
+                    e.printStackTrace();
+                    updateSuccess = false;
                 }
 
-                if (writeSuccess) {
+                if (updateSuccess) {
                     break;
-                } else if (i == PACKET_RETRY_TIMES) {
-                    throw new RuntimeException("write updating packet out of retry times");
+                } else if (i == UPDATE_RETRY_TIMES) {
+                    return false;
+                } else if (i == UPDATE_RETRY_TIMES - 1) {
+                    // resuming did not help: send it all again
+                    Log.w(TAG, "restart the update request from the first package");
+                    uploader.rewind();
+                } else {
+                    // the next round reads the image from the first package the secure element
+                    // has not acknowledged yet
+                    Log.w(TAG, String.format("resume the update request from offset %d", uploader.getAckedOffset()));
                 }
             }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
         }
-
         return true;
-
     }
 }
@@ -17,6 +17,7 @@
 
 package com.keystone.cold.callables;
 
+import com.keystone.cold.encryption.KeyMaterialCache;
 import com.keystone.cold.encryption.interfaces.CONSTANTS;
 import com.keystone.cold.encryptioncore.base.Packet;
 
@@ -32,6 +33,8 @@ public class ResetCallable implements Callable {
             callable.call();
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            KeyMaterialCache.getInstance().invalidate();
         }
 
         return null;
@@ -19,6 +19,7 @@
 
 package com.keystone.cold.callables;
 
+import com.keystone.cold.encryption.KeyMaterialCache;
 import com.keystone.cold.encryption.interfaces.CONSTANTS;
 import com.keystone.cold.encryptioncore.base.Packet;
 
@@ -35,6 +36,8 @@ public class RestartSeCallable implements Callable {
         } catch (Exception e) {
             e.printStackTrace();
             return false;
+        } finally {
+            KeyMaterialCache.getInstance().invalidate();
         }
 
         return true;
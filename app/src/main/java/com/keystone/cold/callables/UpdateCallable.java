@@ -21,52 +21,46 @@ package com.keystone.cold.callables;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.keystone.cold.encryption.interfaces.CONSTANTS;
-import com.keystone.cold.encryptioncore.base.Packet;
 import com.keystone.cold.encryptioncore.utils.Preconditions;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.File;
 import java.util.concurrent.Callable;
 
 public class UpdateCallable implements Callable<Void> {
     private static final String TAG = "Vault.UpdateCallable";
     private static final int UPDATE_RETRY_TIMES = 3;
-    private static final int PACKET_RETRY_TIMES = 6;
     private static final int TYPE_PACKAGE_START = 0x00;
     private static final int TYPE_PACKAGE_MIDDLE = 0x01;
     static final int TYPE_PACKAGE_END = 0x02;
     static final int TYPE_PACKAGE_HEADER = 0x03;
 
     private static final int APP_BOOT_SWITCH_TIME = 5000; //ms
-    private static final int METADATA_SIZE = 128; // 64byte meta data
 
-
-    private final byte[] mUpdateData;
+    private final File mUpdateFile;
     private final String password;
-
-    public UpdateCallable(@NonNull byte[] updateData, String password) {
-        mUpdateData = updateData;
-        this.password = password;
+    @Nullable
+    private final ProgressCallback mProgressCallback;
+
+    public interface ProgressCallback {
+        /**
+         * @param ackedPages     pages acknowledged by the secure element so far
+         * @param pageCount      pages of the whole image
+         * @param pagesPerSecond throughput since the current attempt started
+         */
+        void onProgress(int ackedPages, int pageCount, float pagesPerSecond);
     }
 
-    @NonNull
-    static byte[] calculateChecksum(@NonNull byte[] data) throws IOException {
-        try (InputStream inputStream = new ByteArrayInputStream(data)) {
-            return Preconditions.checkNotNull(CONSTANTS.CONFIG.DIGEST.checksum(inputStream));
-        }
+    public UpdateCallable(@NonNull File updateFile, String password) {
+        this(updateFile, password, null);
     }
 
-    static byte[] fitBuffer(@NonNull byte[] data, int size) {
-        if (data.length == size) {
-            return data;
-        }
-
-        final byte[] result = new byte[size];
-        System.arraycopy(data, 0, result, 0, size);
-        return result;
+    public UpdateCallable(@NonNull File updateFile, String password, @Nullable ProgressCallback progressCallback) {
+        mUpdateFile = Preconditions.checkNotNull(updateFile);
+        this.password = password;
+        mProgressCallback = progressCallback;
     }
 
     static int calculatePackageType(int dataLength, int currentPosition, int read) {
@@ -84,99 +78,43 @@ public class UpdateCallable implements Callable<Void> {
 
         if (!prepareUpdate()) return null;
 
-        for (int i = 1; ; ++i) {
-            boolean updateSuccess = true;
+        try (FirmwareUploader uploader = new FirmwareUploader(mUpdateFile,
+                CONSTANTS.METHODS.WRITE_UPDATE_BYTES, password, mProgressCallback)) {
+            for (int i = 1; ; ++i) {
+                boolean updateSuccess = true;
 
-            try {
-                updating();
-            } catch (Exception e) {
-                e.printStackTrace();
+                try {
+                    updating(uploader);
+                } catch (Exception e) {
+                    e.printStackTrace();
 
-                updateSuccess = false;
-            }
+                    updateSuccess = false;
+                }
 
-            if (updateSuccess) {
-                break;
-            } else if (i == UPDATE_RETRY_TIMES) {
-                throw new RuntimeException("update serial out of retry times");
+                if (updateSuccess) {
+                    break;
+                } else if (i == UPDATE_RETRY_TIMES) {
+                    throw new RuntimeException("update serial out of retry times");
+                } else if (uploader.isComplete() || i == UPDATE_RETRY_TIMES - 1) {
+                    // the image was sent but did not boot, or resuming did not help: send it all again
+                    Log.w(TAG, "restart updating from the first package");
+                    uploader.rewind();
+                }
             }
         }
 
         return null;
     }
 
-    private void updating() throws Exception {
-        final byte[] readBuffer = new byte[CONSTANTS.CONFIG.PAGE_SIZE];
-
-        try (InputStream inputStream = new ByteArrayInputStream(mUpdateData)) {
-            byte[] header = new byte[METADATA_SIZE];
-            // skip metadata
-            inputStream.read(header);
-
-            int read;
-            final int packageSize = mUpdateData.length - METADATA_SIZE;
-            int packageIndex = 0;
-            int readPosition = 0;
-
-            while ((read = inputStream.read(readBuffer)) > 0) {
-                final byte[] availableBuffer = fitBuffer(readBuffer, read);
-                final int type = calculatePackageType(packageSize, readPosition, read);
-                for (int i = 1; i <= PACKET_RETRY_TIMES; ++i) {
-                    if (writeUpdateBytes(packageIndex, availableBuffer, type, i)) break;
-                }
-                readPosition += read;
-                ++packageIndex;
-            }
-            for (int i = 1; i <= PACKET_RETRY_TIMES; ++i) {
-                if (writeHeaderBytes(header)) break;
-            }
-        }
+    private void updating(@NonNull FirmwareUploader uploader) throws Exception {
+        // resumes with the first package the secure element has not acknowledged yet
+        uploader.upload();
 
         Thread.sleep(APP_BOOT_SWITCH_TIME);
         Preconditions.checkState(!new CheckBootModeCallable().call(),
                 "update fail, se has still stayed in boot mode");
     }
 
-    private boolean writeHeaderBytes(byte[] header) {
-        final Packet.Builder builder = new Packet.Builder(CONSTANTS.METHODS.WRITE_UPDATE_BYTES)
-                .addBytePayload(CONSTANTS.TAGS.UPDATING_PACKAGE_TYPE, TYPE_PACKAGE_HEADER)
-                .addHexPayload(CONSTANTS.TAGS.CURRENT_PASSWORD, password)
-                .addBytesPayload(CONSTANTS.TAGS.UPDATING_PACKAGE, header);
-        final Callable callable = new BlockingCallable(builder.build());
-        try {
-            callable.call();
-            return true;
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return false;
-    }
-
-    private boolean writeUpdateBytes(int packageIndex, byte[] availableBuffer, int type, int i) {
-        boolean writeSuccess = true;
-        final Packet.Builder builder = new Packet.Builder(CONSTANTS.METHODS.WRITE_UPDATE_BYTES)
-                .addBytePayload(CONSTANTS.TAGS.UPDATING_PACKAGE_TYPE, type)
-                .addHexPayload(CONSTANTS.TAGS.CURRENT_PASSWORD, password)
-                .addBytesPayload(CONSTANTS.TAGS.UPDATING_PACKAGE, availableBuffer);
-
-        final Callable callable = new BlockingCallable(builder.build());
-
-        try {
-            Log.w(TAG, String.format("write the %sth package", packageIndex));
-            callable.call();
-        } catch (Exception e) {
-            Log.e(TAG, "updating: ", e);
-            writeSuccess = false;
-        }
-
-        if (writeSuccess) {
-            return true;
-        } else if (i == PACKET_RETRY_TIMES) {
-            throw new RuntimeException("write updating packet out of retry times");
-        }
-        return false;
-    }
-
     private boolean prepareUpdate() throws Exception {
         int retry = 0;
 
@@ -199,6 +137,6 @@ public class UpdateCallable implements Callable<Void> {
     }
 
     private boolean requestUpdate() {
-        return new RequestUpdateCallable(mUpdateData, password).call();
+        return new RequestUpdateCallable(mUpdateFile, password).call();
     }
-}
\ No newline at end of file
+}
@@ -19,6 +19,7 @@ package com.keystone.cold.callables;
 
 import android.text.TextUtils;
 
+import com.keystone.cold.encryption.KeyMaterialCache;
 import com.keystone.cold.encryption.interfaces.CONSTANTS;
 import com.keystone.cold.encryptioncore.base.Packet;
 
@@ -55,6 +56,8 @@ public class UpdatePassphraseCallable implements Callable<Boolean> {
             return true;
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            KeyMaterialCache.getInstance().invalidate();
         }
 
         return false;
@@ -22,6 +22,7 @@ import android.text.TextUtils;
 import androidx.annotation.NonNull;
 
 import com.keystone.coinlib.MnemonicUtils;
+import com.keystone.cold.encryption.KeyMaterialCache;
 import com.keystone.cold.encryption.interfaces.CONSTANTS;
 import com.keystone.cold.encryptioncore.base.Packet;
 
@@ -75,6 +76,8 @@ public class WriteMnemonicCallable implements Callable<Boolean> {
             return true;
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            KeyMaterialCache.getInstance().invalidate();
         }
         return false;
     }
@@ -49,7 +49,7 @@ import com.keystone.cold.db.entity.WhiteListEntity;
 @Database(entities = {CoinEntity.class, AddressEntity.class,
         TxEntity.class, WhiteListEntity.class,
         AccountEntity.class, MultiSigWalletEntity.class,
-        MultiSigAddressEntity.class, CasaSignature.class}, version = 6)
+        MultiSigAddressEntity.class, CasaSignature.class}, version = 9)
 public abstract class AppDatabase extends RoomDatabase {
     private static final String DATABASE_NAME = "keystone-db";
     private static AppDatabase sInstance;
@@ -102,6 +102,9 @@ public abstract class AppDatabase extends RoomDatabase {
                 })
                 .addMigrations(MIGRATION_1_5)
                 .addMigrations(MIGRATION_5_6)
+                .addMigrations(MIGRATION_6_7)
+                .addMigrations(MIGRATION_7_8)
+                .addMigrations(MIGRATION_8_9)
                 .fallbackToDestructiveMigration()
                 .build();
     }
@@ -165,6 +168,29 @@ public abstract class AppDatabase extends RoomDatabase {
         }
     };
 
+    private static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_txs_coinId_to_from` ON `txs` (`coinId`, `to`, `from`)");
+        }
+    };
+    private static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_addresses_coinId_belongTo_path_index` "
+                    + "ON `addresses` (`coinId`, `belongTo`, `path`, `index`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_multi_sig_address_walletFingerPrint_changeIndex_index` "
+                    + "ON `multi_sig_address` (`walletFingerPrint`, `changeIndex`, `index`)");
+        }
+    };
+    private static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_txs_coinId_timeStamp` ON `txs` (`coinId`, `timeStamp`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_txs_belongTo` ON `txs` (`belongTo`)");
+        }
+    };
+
     private void updateDatabaseCreated(final Context context) {
         if (context.getDatabasePath(DATABASE_NAME).exists()) {
             setDatabaseCreated();
@@ -38,6 +38,13 @@ public interface AddressDao {
     @Query("SELECT * FROM addresses WHERE coinId = :coinId AND belongTo =:belongTo")
     List<AddressEntity> loadAddressSync(String coinId, String belongTo);
 
+    /**
+     * @return the highest index of the addresses with a path in [fromPath, toPath), or null if there is none
+     */
+    @Query("SELECT MAX(`index`) FROM addresses WHERE coinId = :coinId AND belongTo = :belongTo"
+            + " AND path >= :fromPath AND path < :toPath")
+    Integer loadMaxIndex(String coinId, String belongTo, String fromPath, String toPath);
+
     @Query("SELECT * FROM addresses WHERE path = :path AND belongTo = :belongTo")
     AddressEntity loadAddress(String path, String belongTo);
 
@@ -40,6 +40,9 @@ public interface MultiSigAddressDao {
     @Query("SELECT * FROM multi_sig_address where walletFingerPrint=:walletFingerPrint AND path=:path")
     MultiSigAddressEntity loadAddressByPath(String walletFingerPrint, String path);
 
+    @Query("SELECT MAX(`index`) FROM multi_sig_address where walletFingerPrint=:walletFingerPrint AND changeIndex=:changeIndex")
+    Integer loadMaxIndex(String walletFingerPrint, int changeIndex);
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(List<MultiSigAddressEntity> addressEntities);
 
@@ -19,10 +19,12 @@ package com.keystone.cold.db.dao;
 
 
 import androidx.lifecycle.LiveData;
+import androidx.paging.DataSource;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RoomWarnings;
 
 import com.keystone.cold.db.entity.TxEntity;
 
@@ -30,8 +32,34 @@ import java.util.List;
 
 @Dao
 public interface TxDao {
-    @Query("SELECT * FROM txs where coinId = :coinId ORDER BY timeStamp DESC")
-    LiveData<List<TxEntity>> loadTxs(String coinId);
+    /**
+     * Every column but signedHex, which holds the whole signed tx and is only needed
+     * once a single tx is opened.
+     */
+    String LIST_COLUMNS = "txId, coinId, coinCode, amount, `from`, `to`, fee, timeStamp, memo, "
+            + "signId, belongTo, signStatus";
+
+    /**
+     * @return the single-sig txs of the wallet signed for the given signId, oldest first,
+     * without their signedHex
+     */
+    @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
+    @Query("SELECT " + LIST_COLUMNS + " FROM txs WHERE coinId = :coinId AND belongTo = :belongTo"
+            + " AND (signStatus IS NULL OR signStatus = '') AND signId = :signId"
+            + " ORDER BY timeStamp ASC")
+    DataSource.Factory<Integer, TxEntity> loadTxs(String coinId, String belongTo, String signId);
+
+    /**
+     * @return the single-sig txs of the wallet signed for no watch wallet and outside any
+     * psbt multisig, oldest first, without their signedHex
+     */
+    @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
+    @Query("SELECT " + LIST_COLUMNS + " FROM txs WHERE coinId = :coinId AND belongTo = :belongTo"
+            + " AND (signStatus IS NULL OR signStatus = '')"
+            + " AND instr(signId, '_sign_id') = 0 AND instr(signId, :multisigSignId) = 0"
+            + " ORDER BY timeStamp ASC")
+    DataSource.Factory<Integer, TxEntity> loadKeystoneTxs(String coinId, String belongTo,
+                                                          String multisigSignId);
 
     @Query("SELECT * FROM txs where coinId = :coinId and signId = 'electrum_sign_id' ORDER BY timeStamp DESC")
     List<TxEntity> loadElectrumTxsSync(String coinId);
@@ -42,6 +70,12 @@ public interface TxDao {
     @Query("SELECT * FROM txs where coinId = :coinId")
     List<TxEntity> loadTxsSync(String coinId);
 
+    @Query("SELECT EXISTS(SELECT 1 FROM txs WHERE coinId = :coinId AND `to` = :to AND `from` = :from)")
+    boolean hasTx(String coinId, String from, String to);
+
+    @Query("SELECT EXISTS(SELECT 1 FROM txs WHERE coinId = :coinId AND `to` = :to)")
+    boolean hasTxTo(String coinId, String to);
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(TxEntity tx);
 
@@ -54,8 +88,12 @@ public interface TxDao {
     @Query("DELETE FROM txs WHERE belongTo = 'hidden'")
     int deleteHidden();
 
-    @Query("SELECT * FROM txs WHERE belongTo =:walletFingerprint")
-    LiveData<List<TxEntity>> loadMultisigTxs(String walletFingerprint);
+    /**
+     * @return the txs of the multisig wallet, latest inserted first, without their signedHex
+     */
+    @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
+    @Query("SELECT " + LIST_COLUMNS + " FROM txs WHERE belongTo =:walletFingerprint ORDER BY rowid DESC")
+    DataSource.Factory<Integer, TxEntity> loadMultisigTxs(String walletFingerprint);
 
     @Query("DELETE FROM txs WHERE belongTo =:walletFingerPrint ")
     void deleteTxs(String walletFingerPrint);
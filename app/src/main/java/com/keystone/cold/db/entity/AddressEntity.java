@@ -21,11 +21,12 @@ import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import com.keystone.cold.model.Address;
 
-@Entity(tableName = "addresses")
+@Entity(tableName = "addresses", indices = {@Index({"coinId", "belongTo", "path", "index"})})
 
 public class AddressEntity implements Address, FilterableItem {
 
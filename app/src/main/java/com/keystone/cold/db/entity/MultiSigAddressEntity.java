@@ -32,7 +32,8 @@ import static androidx.room.ForeignKey.CASCADE;
         foreignKeys = @ForeignKey(entity = MultiSigWalletEntity.class,
                 parentColumns = "walletFingerPrint",
                 childColumns = "walletFingerPrint", onDelete = CASCADE),
-        indices = {@Index(value = "id",unique = true), @Index(value = "walletFingerPrint")})
+        indices = {@Index(value = "id",unique = true), @Index(value = "walletFingerPrint"),
+                @Index({"walletFingerPrint", "changeIndex", "index"})})
 public class MultiSigAddressEntity {
     @PrimaryKey(autoGenerate = true)
     @NonNull
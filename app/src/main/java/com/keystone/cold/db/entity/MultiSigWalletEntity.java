@@ -153,7 +153,7 @@ public class MultiSigWalletEntity {
     }
 
     public String deriveAddress(int[] index, boolean isMainnet) {
-        Deriver deriver = new Deriver(isMainnet);
+        Deriver deriver = Deriver.get(isMainnet);
         List<String> xpubList = new ArrayList<>();
         try {
             JSONArray jsonArray = new JSONArray(getExPubs());
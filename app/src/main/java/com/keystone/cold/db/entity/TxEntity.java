@@ -28,7 +28,8 @@ import com.keystone.cold.model.Tx;
 
 import java.util.Objects;
 
-@Entity(tableName = "txs", indices = {@Index("txId")})
+@Entity(tableName = "txs", indices = {@Index("txId"), @Index({"coinId", "to", "from"}),
+        @Index({"coinId", "timeStamp"}), @Index("belongTo")})
 
 public class TxEntity implements Tx, FilterableItem {
 
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.encryption;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.keystone.coinlib.utils.Coins;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches key material read from the secure element, so repeated lookups of the master
+ * fingerprint or of an extended public key during one session need no serial exchange.
+ * <p>
+ * Entries are keyed by (belongTo, curve, path). Everything is dropped by {@link #invalidate()}
+ * whenever the keys behind them may change: vault switch, passphrase update, mnemonic write,
+ * secure element restart or reset.
+ */
+public class KeyMaterialCache {
+    private static final KeyMaterialCache sInstance = new KeyMaterialCache();
+
+    private final Map<String, String> mValues = new ConcurrentHashMap<>();
+    // guarded by this, bumped by every invalidate
+    private int mGeneration;
+
+    @NonNull
+    public static KeyMaterialCache getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * @param path   the derivation path, null for the master fingerprint
+     * @param loader reads the value from the secure element on a miss, null or empty on failure
+     * @return the cached or loaded value; failures are not cached
+     */
+    @Nullable
+    public String get(@NonNull String belongTo, @NonNull Coins.CURVE curve, @Nullable String path,
+                      @NonNull Callable<String> loader) {
+        final String key = belongTo + "|" + curve + "|" + (path == null ? "" : path.toUpperCase());
+        String value = mValues.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        final int generation;
+        synchronized (this) {
+            generation = mGeneration;
+        }
+
+        try {
+            value = loader.call();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        synchronized (this) {
+            // a value loaded across an invalidate may belong to the previous vault
+            if (value != null && !value.isEmpty() && generation == mGeneration) {
+                mValues.put(key, value);
+            }
+        }
+
+        return value;
+    }
+
+    public synchronized void invalidate() {
+        ++mGeneration;
+        mValues.clear();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.protocol.parser;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.MessageOrBuilder;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts protobuf messages straight to {@link JSONObject}.
+ * <p>
+ * The result equals printing the message with {@code JsonFormat} and parsing the text
+ * back, without the text in between: fields keep their proto names and number order,
+ * enums become their names, and numbers and bytes come out as the parser would return
+ * them. Unknown fields are left out.
+ */
+public final class ProtoJson {
+
+    private ProtoJson() {
+    }
+
+    public static JSONObject toJson(MessageOrBuilder message) throws JSONException {
+        JSONObject object = new JSONObject();
+        for (Map.Entry<FieldDescriptor, Object> entry : message.getAllFields().entrySet()) {
+            FieldDescriptor field = entry.getKey();
+            Object value;
+            if (field.isRepeated()) {
+                JSONArray array = new JSONArray();
+                for (Object item : (List<?>) entry.getValue()) {
+                    array.put(toJsonValue(field, item));
+                }
+                value = array;
+            } else {
+                value = toJsonValue(field, entry.getValue());
+            }
+            object.put(nameOf(field), value);
+        }
+        return object;
+    }
+
+    private static String nameOf(FieldDescriptor field) {
+        if (field.isExtension()) {
+            return "[" + field.getFullName() + "]";
+        } else if (field.getType() == FieldDescriptor.Type.GROUP) {
+            return field.getMessageType().getName();
+        }
+        return field.getName();
+    }
+
+    private static Object toJsonValue(FieldDescriptor field, Object value) throws JSONException {
+        switch (field.getType()) {
+            case INT32:
+            case SINT32:
+            case SFIXED32:
+                return value;
+            case INT64:
+            case SINT64:
+            case SFIXED64:
+                return toNumber((Long) value);
+            case UINT32:
+            case FIXED32:
+                return toNumber(((Integer) value) & 0xffffffffL);
+            case UINT64:
+            case FIXED64:
+                long unsigned = (Long) value;
+                return unsigned >= 0 ? toNumber(unsigned) : Double.valueOf(Long.toUnsignedString(unsigned));
+            case FLOAT:
+                return toDouble(Float.toString((Float) value));
+            case DOUBLE:
+                return toDouble(Double.toString((Double) value));
+            case BOOL:
+            case STRING:
+                return value;
+            case BYTES:
+                return toText((ByteString) value);
+            case ENUM:
+                return ((EnumValueDescriptor) value).getName();
+            case MESSAGE:
+            case GROUP:
+                return toJson((MessageOrBuilder) value);
+            default:
+                throw new JSONException("unsupported field type " + field.getType());
+        }
+    }
+
+    // the json parser returns integers that fit as Integer
+    private static Object toNumber(long value) {
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        return value;
+    }
+
+    // NaN and Infinity are not json numbers, the parser keeps them as strings
+    private static Object toDouble(String text) {
+        double value = Double.parseDouble(text);
+        return Double.isNaN(value) || Double.isInfinite(value) ? text : value;
+    }
+
+    /**
+     * JsonFormat's {@code escapeBytes} followed by the parser's unescaping, case by case.
+     * Every byte becomes one char, bytes above 0x7f sign extended as JsonFormat's
+     * {@code (char) b} does.
+     */
+    private static String toText(ByteString bytes) {
+        StringBuilder builder = new StringBuilder(bytes.size());
+        for (int i = 0; i < bytes.size(); i++) {
+            byte b = bytes.byteAt(i);
+            switch (b) {
+                // written as \a and \v, which are not json escapes; the parser drops the backslash
+                case 0x07:
+                    builder.append('a');
+                    break;
+                case 0x0b:
+                    builder.append('v');
+                    break;
+                // every other byte is escaped or written as is and parsed back to (char) b
+                default:
+                    builder.append((char) b);
+            }
+        }
+        return builder.toString();
+    }
+}
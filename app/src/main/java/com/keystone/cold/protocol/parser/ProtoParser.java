@@ -17,42 +17,50 @@
 
 package com.keystone.cold.protocol.parser;
 
-import com.google.protobuf.InvalidProtocolBufferException;
-import com.googlecode.protobuf.format.JsonFormat;
 import com.keystone.cold.encryptioncore.utils.Preconditions;
 import com.keystone.cold.protobuf.BaseProtoc.Base;
 import com.keystone.cold.protobuf.PayloadProtoc.Payload;
 import com.keystone.cold.protobuf.SyncProtoc;
-import com.keystone.cold.protocol.ZipUtil;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.spongycastle.util.encoders.Base64;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
 public class ProtoParser {
 
     private final byte[] protoBytes;
+    private final boolean compressed;
     private Payload payload;
     private Payload.Type type;
 
     public ProtoParser(String str, boolean compress) {
-        byte[] buffer = Base64.decode(str);
-        if (compress) {
-            buffer = ZipUtil.unzip(buffer);
-        }
-        protoBytes = buffer;
+        this(Base64.decode(str), compress);
     }
 
     public ProtoParser(byte[] bytes) {
+        this(bytes, false);
+    }
+
+    /**
+     * @param compressed true if the bytes are gzipped, they are inflated while parsing
+     */
+    public ProtoParser(byte[] bytes, boolean compressed) {
         protoBytes = bytes;
+        this.compressed = compressed;
     }
 
     public JSONObject parseToJson() {
         try {
-            Base base = Base.parseFrom(protoBytes);
+            Base base = compressed
+                    ? Base.parseFrom(new GZIPInputStream(new ByteArrayInputStream(protoBytes)))
+                    : Base.parseFrom(protoBytes);
             payload = base.getData();
-            return new JSONObject(new JsonFormat().printToString(payload));
-        } catch (InvalidProtocolBufferException | JSONException e) {
+            return ProtoJson.toJson(payload);
+        } catch (IOException | JSONException e) {
             e.printStackTrace();
         }
         return null;
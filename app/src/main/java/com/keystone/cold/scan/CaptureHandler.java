@@ -24,6 +24,7 @@ import com.keystone.cold.AppExecutors;
 import com.keystone.cold.scan.camera.CameraManager;
 import com.keystone.cold.scan.common.Constant;
 import com.keystone.cold.scan.decode.DecodeThread;
+import com.keystone.cold.util.URScanProgress;
 import com.sparrowwallet.hummingbird.ResultType;
 import com.sparrowwallet.hummingbird.UR;
 import com.sparrowwallet.hummingbird.URDecoder;
@@ -40,6 +41,7 @@ public final class CaptureHandler extends Handler {
     private State state;
     private final CameraManager cameraManager;
     private URDecoder decoder = new URDecoder();
+    private URScanProgress progress = new URScanProgress();
     private final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
 
     private final QREncoding encoding;
@@ -84,6 +86,11 @@ public final class CaptureHandler extends Handler {
 
     private void tryDecodeAsUR(String text) {
         sExecutor.submit(() -> {
+            if (!progress.offer(text)) {
+                // seen before, no need to decode it again
+                requestNextFrame();
+                return;
+            }
             if (decoder.receivePart(text)) {
                 //done scan
                 if (decoder.getResult() != null) {
@@ -103,9 +110,9 @@ public final class CaptureHandler extends Handler {
                     }
                 } else {
                     //continue scan
-                    state = State.PREVIEW;
-                    host.handleProgressPercent(decoder.getEstimatedPercentComplete());
-                    cameraManager.requestPreviewFrame(decodeThread.getHandler(), Constant.DECODE);
+                    progress.setPercentComplete(decoder.getEstimatedPercentComplete());
+                    host.handleProgressPercent(progress);
+                    requestNextFrame();
                 }
                 return;
             } else {
@@ -119,6 +126,11 @@ public final class CaptureHandler extends Handler {
         });
     }
 
+    private void requestNextFrame() {
+        state = State.PREVIEW;
+        cameraManager.requestPreviewFrame(decodeThread.getHandler(), Constant.DECODE);
+    }
+
     private void decodeComplete(String text, QREncoding codec) {
         AppExecutors.getInstance().mainThread().execute(() -> {
             state = State.SUCCESS;
@@ -148,6 +160,7 @@ public final class CaptureHandler extends Handler {
         if (state == State.SUCCESS) {
             state = State.PREVIEW;
             decoder = new URDecoder();
+            progress = new URScanProgress();
             cameraManager.requestPreviewFrame(decodeThread.getHandler(), Constant.DECODE);
         }
     }
@@ -27,21 +27,14 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.keystone.cold.R;
 import com.keystone.cold.databinding.FileListBinding;
-import com.keystone.cold.databinding.FileListItemBinding;
+import com.keystone.cold.databinding.PsbtFileListItemBinding;
 import com.keystone.cold.ui.common.BaseBindingAdapter;
 import com.keystone.cold.ui.fragment.BaseFragment;
 import com.keystone.cold.ui.fragment.main.electrum.Callback;
 import com.keystone.cold.ui.modal.ModalDialog;
-import com.keystone.cold.update.utils.FileUtils;
-import com.keystone.cold.update.utils.Storage;
 import com.keystone.cold.viewmodel.PsbtViewModel;
 import com.keystone.cold.viewmodel.multisigs.MultiSigMode;
 
-import org.spongycastle.util.encoders.Base64;
-import org.spongycastle.util.encoders.Hex;
-
-import java.io.File;
-import java.nio.charset.StandardCharsets;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.keystone.cold.viewmodel.GlobalViewModel.hasSdcard;
@@ -51,12 +44,12 @@ public class PsbtListFragment extends BaseFragment<FileListBinding>
         implements Callback {
 
     public static final String TAG = "PsbtListFragment";
-    public static final String PSBT_MAGIC_PREFIX = Hex.toHexString("psbt".getBytes(StandardCharsets.UTF_8));
     private PsbtViewModel viewModel;
     private FileListAdapter adapter;
     private AtomicBoolean showEmpty;
     private boolean multisig;
     private MultiSigMode mode;
+    private boolean opening;
 
     @Override
     protected int setView() {
@@ -85,10 +78,10 @@ public class PsbtListFragment extends BaseFragment<FileListBinding>
         } else {
             mBinding.list.setAdapter(adapter);
             viewModel.loadUnsignPsbt().observe(this, files -> {
+                showEmpty.set(files.isEmpty());
                 if (files.size() > 0) {
                     adapter.setItems(files);
                 } else {
-                    showEmpty.set(true);
                     mBinding.emptyTitle.setText(R.string.no_unsigned_txn);
                     mBinding.emptyMessage.setText(R.string.no_unsigned_txn_hint);
                 }
@@ -120,16 +113,12 @@ public class PsbtListFragment extends BaseFragment<FileListBinding>
             initViews();
             return;
         }
-        Storage storage = Storage.createByEnvironment();
-        byte[] content = FileUtils.bufferlize(new File(storage.getExternalDir(), file));
-        if (content != null) {
-            String psbtBase64 = null;
-            if (isBase64Psbt(content)) {
-                psbtBase64 = new String(content);
-            } else if (Hex.toHexString(content).startsWith(PSBT_MAGIC_PREFIX)) {
-                psbtBase64 = Base64.toBase64String(content);
-            }
-
+        if (opening) {
+            return;
+        }
+        opening = true;
+        viewModel.loadPsbtBase64(file).observe(this, psbtBase64 -> {
+            opening = false;
             if (psbtBase64 != null) {
                 Bundle bundle = new Bundle();
                 bundle.putString("psbt_base64", psbtBase64);
@@ -144,27 +133,17 @@ public class PsbtListFragment extends BaseFragment<FileListBinding>
                 }
                 return;
             }
-        }
-
-        ModalDialog.showCommonModal(mActivity,
-                getString(R.string.electrum_decode_txn_fail),
-                getString(R.string.error_txn_file),
-                getString(R.string.confirm),
-                null);
 
-    }
-
-    private boolean isBase64Psbt(byte[] content) {
-        try {
-            byte[] data = Base64.decode(new String(content));
-            return Hex.toHexString(data).startsWith(PSBT_MAGIC_PREFIX);
-        } catch (Exception e) {
-            return false;
-        }
+            ModalDialog.showCommonModal(mActivity,
+                    getString(R.string.electrum_decode_txn_fail),
+                    getString(R.string.error_txn_file),
+                    getString(R.string.confirm),
+                    null);
+        });
     }
 
 
-    public static class FileListAdapter extends BaseBindingAdapter<String, FileListItemBinding> {
+    public static class FileListAdapter extends BaseBindingAdapter<PsbtViewModel.PsbtFile, PsbtFileListItemBinding> {
         private final Callback callback;
 
         FileListAdapter(Context context, Callback callback) {
@@ -174,11 +153,11 @@ public class PsbtListFragment extends BaseFragment<FileListBinding>
 
         @Override
         protected int getLayoutResId(int viewType) {
-            return R.layout.file_list_item;
+            return R.layout.psbt_file_list_item;
         }
 
         @Override
-        protected void onBindItem(FileListItemBinding binding, String item) {
+        protected void onBindItem(PsbtFileListItemBinding binding, PsbtViewModel.PsbtFile item) {
             binding.setFile(item);
             binding.setCallback(callback);
         }
@@ -17,36 +17,33 @@
 
 package com.keystone.cold.ui.fragment.main;
 
-import android.content.Context;
 import android.os.Bundle;
-import android.text.TextUtils;
+import android.view.LayoutInflater;
 import android.view.View;
+import android.view.ViewGroup;
 
+import androidx.annotation.NonNull;
+import androidx.databinding.DataBindingUtil;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.ViewModelProviders;
+import androidx.paging.PagedList;
+import androidx.paging.PagedListAdapter;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.keystone.coinlib.utils.Account;
 import com.keystone.cold.R;
-import com.keystone.cold.Utilities;
 import com.keystone.cold.databinding.TxListBinding;
 import com.keystone.cold.databinding.TxListItemBinding;
 import com.keystone.cold.db.entity.TxEntity;
-import com.keystone.cold.ui.common.FilterableBaseBindingAdapter;
+import com.keystone.cold.ui.common.BaseBindingViewHolder;
 import com.keystone.cold.ui.fragment.BaseFragment;
 import com.keystone.cold.viewmodel.CoinListViewModel;
 import com.keystone.cold.viewmodel.multisigs.LegacyMultiSigViewModel;
-import com.keystone.cold.viewmodel.WatchWallet;
 
-import java.util.Collections;
-import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 import static com.keystone.cold.ui.fragment.Constants.KEY_COIN_ID;
 import static com.keystone.cold.ui.fragment.main.TxFragment.KEY_TX_ID;
-import static com.keystone.cold.viewmodel.GlobalViewModel.getAccount;
-import static com.keystone.cold.viewmodel.WatchWallet.ELECTRUM;
 import static com.keystone.cold.viewmodel.WatchWallet.ELECTRUM_SIGN_ID;
 import static com.keystone.cold.viewmodel.WatchWallet.PSBT_MULTISIG_SIGN_ID;
 import static com.keystone.cold.viewmodel.WatchWallet.getWatchWallet;
@@ -55,7 +52,6 @@ public class TxListFragment extends BaseFragment<TxListBinding> {
 
     private TxAdapter adapter;
     private TxCallback txCallback;
-    private String query;
     private boolean multisig;
     private String walletFingerprint;
 
@@ -73,7 +69,7 @@ public class TxListFragment extends BaseFragment<TxListBinding> {
         }
         CoinListViewModel viewModel = ViewModelProviders.of(mActivity)
                 .get(CoinListViewModel.class);
-        adapter = new TxAdapter(mActivity);
+        adapter = new TxAdapter();
         mBinding.list.setAdapter(adapter);
         mBinding.toolbar.setNavigationOnClickListener(v -> navigateUp());
         txCallback = tx -> {
@@ -88,7 +84,7 @@ public class TxListFragment extends BaseFragment<TxListBinding> {
             }
         };
 
-        LiveData<List<TxEntity>> txs;
+        LiveData<PagedList<TxEntity>> txs;
         if (multisig) {
             LegacyMultiSigViewModel vm = ViewModelProviders.of(this).get(LegacyMultiSigViewModel.class);
             txs = vm.loadTxs(walletFingerprint);
@@ -96,36 +92,8 @@ public class TxListFragment extends BaseFragment<TxListBinding> {
             txs = viewModel.loadTxs(data.getString(KEY_COIN_ID));
         }
         txs.observe(this, txEntities -> {
-            if (!multisig) {
-                txEntities = txEntities.stream()
-                        .filter(this::filterSingleSig)
-                        .filter(this::shouldShow)
-                        .filter(this::filterByMode)
-                        .sorted((o1, o2) -> (int) (o1.getTimeStamp() - o2.getTimeStamp()))
-                        .collect(Collectors.toList());
-            } else {
-                Collections.reverse(txEntities);
-            }
-
-            if (txEntities.isEmpty()) {
-                showEmpty(true);
-            } else {
-                showEmpty(false);
-                adapter.setItems(txEntities);
-            }
-        });
-        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
-            @Override
-            public void onChanged() {
-                super.onChanged();
-                if (!TextUtils.isEmpty(query) && adapter.getItemCount() == 0) {
-                    mBinding.empty.setVisibility(View.VISIBLE);
-                    mBinding.list.setVisibility(View.GONE);
-                } else {
-                    mBinding.empty.setVisibility(View.GONE);
-                    mBinding.list.setVisibility(View.VISIBLE);
-                }
-            }
+            showEmpty(txEntities.isEmpty());
+            adapter.submitList(txEntities);
         });
     }
 
@@ -141,62 +109,43 @@ public class TxListFragment extends BaseFragment<TxListBinding> {
         }
     }
 
-    private boolean filterByMode(TxEntity txEntity) {
-        WatchWallet watchWallet = getWatchWallet(mActivity);
-        if (watchWallet == WatchWallet.KEYSTONE) {
-            return !txEntity.getSignId().contains("_sign_id")
-                    && !txEntity.getSignId().contains(PSBT_MULTISIG_SIGN_ID);
-        } else {
-            if (watchWallet == ELECTRUM) {
-                Account account = getAccount(mActivity);
-                if (account == Account.P2WPKH || account == Account.P2WPKH_TESTNET) {
-                    return (watchWallet.getSignId()+"_NATIVE_SEGWIT").equals(txEntity.getSignId());
-                } else {
-                    return watchWallet.getSignId().equals(txEntity.getSignId());
-                }
-            } else {
-                return watchWallet.getSignId().equals(txEntity.getSignId());
-            }
-        }
-    }
-
-    private boolean shouldShow(TxEntity tx) {
-        return Utilities.getCurrentBelongTo(mActivity).equals(tx.getBelongTo());
-    }
-
-    private boolean filterSingleSig(TxEntity txEntity) {
-        return TextUtils.isEmpty(txEntity.getSignStatus());
-    }
-
     @Override
     protected void initData(Bundle savedInstanceState) {
     }
 
-    public void setQuery(String s) {
-        if (adapter != null) {
-            query = s;
-            adapter.getFilter().filter(s);
-        }
-    }
+    private static final DiffUtil.ItemCallback<TxEntity> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<TxEntity>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull TxEntity oldItem, @NonNull TxEntity newItem) {
+                    return oldItem.getTxId().equals(newItem.getTxId());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull TxEntity oldItem, @NonNull TxEntity newItem) {
+                    return oldItem.getTxId().equals(newItem.getTxId())
+                            && Objects.equals(oldItem.getSignId(), newItem.getSignId());
+                }
+            };
 
-    class TxAdapter extends FilterableBaseBindingAdapter<TxEntity, TxListItemBinding> {
+    class TxAdapter extends PagedListAdapter<TxEntity, RecyclerView.ViewHolder> {
 
-        TxAdapter(Context context) {
-            super(context);
+        TxAdapter() {
+            super(DIFF_CALLBACK);
         }
 
         @Override
-        protected int getLayoutResId(int viewType) {
-            return R.layout.tx_list_item;
+        @NonNull
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            TxListItemBinding binding = DataBindingUtil.inflate(LayoutInflater.from(mActivity),
+                    R.layout.tx_list_item, parent, false);
+            return new BaseBindingViewHolder(binding.getRoot());
         }
 
         @Override
-        protected void onBindItem(TxListItemBinding binding, TxEntity item) {
-            binding.setTx(item);
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+            TxListItemBinding binding = DataBindingUtil.getBinding(holder.itemView);
+            binding.setTx(getItem(position));
             binding.setTxCallback(txCallback);
-
         }
     }
 }
-
-
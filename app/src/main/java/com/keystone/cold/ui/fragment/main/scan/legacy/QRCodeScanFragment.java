@@ -375,7 +375,12 @@ public class QRCodeScanFragment extends BaseFragment<QrcodeScanFragmentBinding>
 
     @Override
     public void handleProgressPercent(double percent) {
-        mActivity.runOnUiThread(() -> mBinding.scanProgress.setText(getString(R.string.scan_progress, (int) Math.floor((percent * 100)) + "%")));
+        showScanProgress((int) Math.floor((percent * 100)) + "%");
+    }
+
+    @Override
+    public void showScanProgress(String progress) {
+        mActivity.runOnUiThread(() -> mBinding.scanProgress.setText(getString(R.string.scan_progress, progress)));
     }
 
     @Override
@@ -23,23 +23,31 @@ import com.google.zxing.Result;
 import com.keystone.cold.AppExecutors;
 import com.keystone.cold.ui.fragment.main.scan.scanner.camera.CameraManager;
 import com.keystone.cold.ui.fragment.main.scan.scanner.common.Constant;
-import com.keystone.cold.ui.fragment.main.scan.scanner.decode.DecodeThread;
+import com.keystone.cold.ui.fragment.main.scan.scanner.decode.DecodePool;
+import com.keystone.cold.util.URScanProgress;
 import com.sparrowwallet.hummingbird.ResultType;
 import com.sparrowwallet.hummingbird.UR;
 import com.sparrowwallet.hummingbird.URDecoder;
 
-import org.spongycastle.util.encoders.Hex;
-
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public final class CaptureHandler extends Handler {
 
+    // leave one core to the camera and the ui
+    private static final int DECODE_THREADS =
+            Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+    // one more buffer than decoders so the camera always has one to fill
+    private static final int PREVIEW_BUFFERS = DECODE_THREADS + 1;
+
     private final Host host;
-    private final DecodeThread decodeThread;
+    private final DecodePool decodePool;
     private State state;
     private final CameraManager cameraManager;
-    private URDecoder decoder = new URDecoder();
+    // set on the main thread, cleared on sExecutor once the scan completes
+    private volatile URDecoder decoder;
+    // replaced together with decoder, only used on sExecutor after that
+    private URScanProgress progress;
     private final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
 
     private enum State {
@@ -49,8 +57,7 @@ public final class CaptureHandler extends Handler {
 
     public CaptureHandler(Host host, CameraManager cameraManager) {
         this.host = host;
-        decodeThread = new DecodeThread(host);
-        decodeThread.start();
+        decodePool = new DecodePool(host, cameraManager, DECODE_THREADS);
         state = State.SUCCESS;
 
         // Start ourselves capturing previews and decoding.
@@ -66,20 +73,26 @@ public final class CaptureHandler extends Handler {
                 restartPreviewAndDecode();
                 break;
             case Constant.DECODE_SUCCEEDED:
-                String text = ((Result) message.obj).getText();
-                tryDecodeAsUR(text);
-                break;
-            case Constant.DECODE_FAILED:
-                state = State.PREVIEW;
-                cameraManager.requestPreviewFrame(decodeThread.getHandler(), Constant.DECODE);
+                URDecoder urDecoder = decoder;
+                if (state == State.PREVIEW && urDecoder != null) {
+                    String text = ((Result) message.obj).getText();
+                    tryDecodeAsUR(urDecoder, progress, text);
+                }
                 break;
             case Constant.RETURN_SCAN_RESULT:
                 break;
         }
     }
 
-    private void tryDecodeAsUR(String text) {
+    /**
+     * Parts are fed to the decoder on sExecutor while the decode threads go on with the
+     * next frames. Parts decoded after the scan completed and parts seen before are dropped.
+     */
+    private void tryDecodeAsUR(URDecoder decoder, URScanProgress progress, String text) {
         sExecutor.submit(() -> {
+            if (decoder != this.decoder || !progress.offer(text)) {
+                return;
+            }
             if (decoder.receivePart(text)) {
                 //done scan
                 if (decoder.getResult() != null) {
@@ -91,9 +104,8 @@ public final class CaptureHandler extends Handler {
                     }
                 } else {
                     //continue scan
-                    state = State.PREVIEW;
-                    host.handleProgressPercent(decoder.getEstimatedPercentComplete());
-                    cameraManager.requestPreviewFrame(decodeThread.getHandler(), Constant.DECODE);
+                    progress.setPercentComplete(decoder.getEstimatedPercentComplete());
+                    host.handleProgressPercent(progress);
                 }
                 return;
             } else {
@@ -108,42 +120,41 @@ public final class CaptureHandler extends Handler {
     }
 
     private void decodeComplete(String result) {
+        decoder = null;
         AppExecutors.getInstance().mainThread().execute(() -> {
             state = State.SUCCESS;
+            cameraManager.stopPreviewFrames();
             host.handleDecode(result);
         });
     }
 
     private void decodeComplete(UR result) {
+        decoder = null;
         AppExecutors.getInstance().mainThread().execute(() -> {
             state = State.SUCCESS;
+            cameraManager.stopPreviewFrames();
             host.handleDecode(result);
         });
     }
 
     public void quitSynchronously() {
         state = State.DONE;
+        decoder = null;
         cameraManager.stopPreview();
-        Message quit = Message.obtain(decodeThread.getHandler(), Constant.QUIT);
-        quit.sendToTarget();
-        try {
-            // Wait at most half a second; should be enough time, and onPause()
-            // will timeout quickly
-            decodeThread.join(500L);
-        } catch (InterruptedException e) {
-            // continue
-        }
+        // Wait at most half a second; should be enough time, and onPause()
+        // will timeout quickly
+        decodePool.quitSynchronously();
 
         // Be absolutely sure we don't send any queued up messages
         removeMessages(Constant.DECODE_SUCCEEDED);
-        removeMessages(Constant.DECODE_FAILED);
     }
 
     public void restartPreviewAndDecode() {
         if (state == State.SUCCESS) {
             state = State.PREVIEW;
             decoder = new URDecoder();
-            cameraManager.requestPreviewFrame(decodeThread.getHandler(), Constant.DECODE);
+            progress = new URScanProgress();
+            cameraManager.startPreviewFrames(decodePool, PREVIEW_BUFFERS);
         }
     }
 
@@ -17,10 +17,12 @@
 
 package com.keystone.cold.ui.fragment.main.scan.scanner;
 
+import android.content.Context;
 import android.os.Handler;
 
 import com.keystone.cold.ui.fragment.main.scan.scanner.bean.ZxingConfig;
 import com.keystone.cold.ui.fragment.main.scan.scanner.camera.CameraManager;
+import com.keystone.cold.util.URScanProgress;
 import com.sparrowwallet.hummingbird.UR;
 
 
@@ -33,7 +35,29 @@ public interface Host {
 
     void handleProgressPercent(double percent);
 
+    /**
+     * Shows how far the scan is, may be called off the ui thread.
+     */
+    void showScanProgress(String progress);
+
+    /**
+     * Called for every new part of an animated UR, on the thread that decodes the parts.
+     */
+    default void handleProgressPercent(URScanProgress progress) {
+        Context context = getContext();
+        if (context == null) {
+            handleProgressPercent(progress.getPercentComplete());
+            return;
+        }
+        showScanProgress(progress.format(context));
+    }
+
     CameraManager getCameraManager();
 
     Handler getHandler();
+
+    /**
+     * @return the context to format the progress with, null once detached
+     */
+    Context getContext();
 }
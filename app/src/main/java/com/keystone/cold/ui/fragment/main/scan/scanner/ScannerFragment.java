@@ -264,7 +264,12 @@ public class ScannerFragment extends BaseFragment<ScannerFragmentBinding>
 
     @Override
     public void handleProgressPercent(double percent) {
-        mActivity.runOnUiThread(() -> mBinding.scanProgress.setText(getString(R.string.scan_progress, (int) Math.floor((percent * 100)) + "%")));
+        showScanProgress((int) Math.floor((percent * 100)) + "%");
+    }
+
+    @Override
+    public void showScanProgress(String progress) {
+        mActivity.runOnUiThread(() -> mBinding.scanProgress.setText(getString(R.string.scan_progress, progress)));
     }
 
     @Override
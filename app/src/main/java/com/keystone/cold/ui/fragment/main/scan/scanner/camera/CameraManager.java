@@ -17,6 +17,7 @@
 package com.keystone.cold.ui.fragment.main.scan.scanner.camera;
 
 import android.content.Context;
+import android.graphics.ImageFormat;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.hardware.Camera;
@@ -30,6 +31,9 @@ import com.keystone.cold.ui.fragment.main.scan.scanner.bean.ZxingConfig;
 import com.keystone.cold.ui.fragment.main.scan.scanner.bean.ZxingConfigBuilder;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 /**
  * This object wraps the Camera service object and expects to be the only one
@@ -62,6 +66,22 @@ public final class CameraManager {
      * message.
      */
     private final PreviewCallback previewCallback;
+    /**
+     * The callback buffers handed to the camera by {@link #startPreviewFrames},
+     * only these are given back to it by {@link #releasePreviewFrame}.
+     */
+    private final Set<byte[]> previewBuffers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Receives preview frames continuously, see {@link #startPreviewFrames}.
+     */
+    public interface FrameListener {
+        /**
+         * Called on the thread that opened the camera. The frame must be given back with
+         * {@link #releasePreviewFrame(byte[])} once it is no longer needed.
+         */
+        void onPreviewFrame(byte[] data, int width, int height);
+    }
 
     public CameraManager(Context context, ZxingConfig config) {
         this.context = context;
@@ -180,6 +200,7 @@ public final class CameraManager {
             autoFocusManager = null;
         }
         if (camera != null && previewing) {
+            stopPreviewFrames();
             camera.stopPreview();
             previewCallback.setHandler(null, 0);
             previewing = false;
@@ -202,6 +223,50 @@ public final class CameraManager {
         }
     }
 
+    /**
+     * Preview frames will be delivered to the listener until {@link #stopPreviewFrames()}.
+     * The camera fills the given number of buffers in turn and skips frames while all of
+     * them are held by the listener.
+     *
+     * @param listener The listener to deliver the frames to.
+     * @param buffers  The number of frames that may be held at once.
+     */
+    public synchronized void startPreviewFrames(FrameListener listener, int buffers) {
+        Camera theCamera = camera;
+        Point cameraResolution = configManager.getCameraResolution();
+        if (theCamera == null || !previewing || cameraResolution == null) {
+            return;
+        }
+        stopPreviewFrames();
+
+        int format = theCamera.getParameters().getPreviewFormat();
+        int size = cameraResolution.x * cameraResolution.y * ImageFormat.getBitsPerPixel(format) / 8;
+        previewCallback.setListener(listener);
+        theCamera.setPreviewCallbackWithBuffer(previewCallback);
+        for (int i = 0; i < buffers; i++) {
+            byte[] buffer = new byte[size];
+            previewBuffers.add(buffer);
+            theCamera.addCallbackBuffer(buffer);
+        }
+    }
+
+    /**
+     * Gives a frame delivered to the {@link FrameListener} back to the camera.
+     */
+    public synchronized void releasePreviewFrame(byte[] data) {
+        if (camera != null && previewBuffers.contains(data)) {
+            camera.addCallbackBuffer(data);
+        }
+    }
+
+    public synchronized void stopPreviewFrames() {
+        if (camera != null && !previewBuffers.isEmpty()) {
+            camera.setPreviewCallbackWithBuffer(null);
+        }
+        previewCallback.setListener(null);
+        previewBuffers.clear();
+    }
+
     public synchronized Rect getFramingRect() {
         if (framingRect == null) {
             if (camera == null) {
@@ -309,27 +374,42 @@ public final class CameraManager {
      */
     public PlanarYUVLuminanceSource buildLuminanceSource(byte[] data,
                                                          int width, int height) {
-        Rect rect = getFramingRectInPreview();
-        if (rect == null) {
+        Rect rect = new Rect();
+        if (!getDecodeRect(width, height, rect)) {
             return null;
         }
         // Go ahead and assume it's YUV rather than die.
+        return new PlanarYUVLuminanceSource(data, width, height, rect.left,
+                rect.top, rect.width(), rect.height(), false);
+    }
 
+    /**
+     * Sets the part of a rotated preview frame to decode.
+     *
+     * @param width      The width of the rotated preview frame.
+     * @param height     The height of the rotated preview frame.
+     * @param decodeRect Set to the part of the frame to decode.
+     * @return false if the framing rect is not known yet or lies outside the frame.
+     */
+    public boolean getDecodeRect(int width, int height, Rect decodeRect) {
+        Rect rect = getFramingRectInPreview();
+        if (rect == null) {
+            return false;
+        }
 
         if (config == null) {
             config = new ZxingConfigBuilder().createZxingConfig();
         }
 
         if (config.isFullScreenScan()) {
-            return new PlanarYUVLuminanceSource(data, width, height, 0,
-                    0, width, height, false);
+            decodeRect.set(0, 0, width, height);
+            return true;
         } else {
             int actionbarHeight = context.getResources().getDimensionPixelSize(R.dimen.toolBarHeight);
-            return new PlanarYUVLuminanceSource(data, width, height, rect.left,
-                    rect.top + actionbarHeight, rect.width(), rect.height(), false);
+            decodeRect.set(rect);
+            decodeRect.offset(0, actionbarHeight);
+            return decodeRect.intersect(0, 0, width, height);
         }
-
-
     }
 
     public static CameraManager get() {
@@ -29,6 +29,7 @@ final class PreviewCallback implements Camera.PreviewCallback {
     private final CameraConfigurationManager configManager;
     private Handler previewHandler;
     private int previewMessage;
+    private volatile CameraManager.FrameListener frameListener;
 
     PreviewCallback(CameraConfigurationManager configManager) {
         this.configManager = configManager;
@@ -39,9 +40,22 @@ final class PreviewCallback implements Camera.PreviewCallback {
         this.previewMessage = previewMessage;
     }
 
+    void setListener(CameraManager.FrameListener frameListener) {
+        this.frameListener = frameListener;
+    }
+
     @Override
     public void onPreviewFrame(byte[] data, Camera camera) {
         Point cameraResolution = configManager.getCameraResolution();
+        CameraManager.FrameListener listener = frameListener;
+        if (listener != null) {
+            if (cameraResolution != null) {
+                listener.onPreviewFrame(data, cameraResolution.x, cameraResolution.y);
+            } else {
+                camera.addCallbackBuffer(data);
+            }
+            return;
+        }
         Handler thePreviewHandler = previewHandler;
         if (cameraResolution != null && thePreviewHandler != null) {
             Message message = thePreviewHandler.obtainMessage(previewMessage, cameraResolution.x,
@@ -16,6 +16,7 @@
 
 package com.keystone.cold.ui.fragment.main.scan.scanner.decode;
 
+import android.graphics.Rect;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
@@ -41,12 +42,16 @@ public final class DecodeHandler extends Handler {
 
     private final Host host;
     private final MultiFormatReader multiFormatReader;
+    private final DecodePool pool;
+    private final FramePreprocessor preprocessor = new FramePreprocessor();
+    private final Rect decodeRect = new Rect();
     private boolean running = true;
 
-    DecodeHandler(Host host, Map<DecodeHintType, Object> hints) {
+    DecodeHandler(Host host, Map<DecodeHintType, Object> hints, DecodePool pool) {
         multiFormatReader = new MultiFormatReader();
         multiFormatReader.setHints(hints);
         this.host = host;
+        this.pool = pool;
     }
 
     @Override
@@ -56,7 +61,12 @@ public final class DecodeHandler extends Handler {
         }
         switch (message.what) {
             case Constant.DECODE:
-                decode((byte[]) message.obj, message.arg1, message.arg2);
+                byte[] frame = (byte[]) message.obj;
+                try {
+                    decode(frame, message.arg1, message.arg2);
+                } finally {
+                    pool.onDecoded(this, frame);
+                }
                 break;
             case Constant.QUIT:
                 running = false;
@@ -68,22 +78,13 @@ public final class DecodeHandler extends Handler {
     private void decode(byte[] data, int width, int height) {
 
         Result rawResult = null;
-        byte[] rotatedData = new byte[data.length];
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                rotatedData[x * height + height - y - 1] = data[x + y * width];
+        // the frame is rotated, so width and height swap
+        if (host.getCameraManager().getDecodeRect(height, width, decodeRect)) {
+            PlanarYUVLuminanceSource source = preprocessor.rotate(data, width, height, decodeRect);
+            if (preprocessor.skip(source)) {
+                return;
             }
-        }
-        int tmp = width; // Here we are swapping, that's the difference to #11
-        width = height;
-        height = tmp;
-        data = rotatedData;
-
-        PlanarYUVLuminanceSource source = host.getCameraManager()
-                .buildLuminanceSource(data, width, height);
-
 
-        if (source != null) {
             BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
 
             try {
@@ -92,21 +93,15 @@ public final class DecodeHandler extends Handler {
             } finally {
                 multiFormatReader.reset();
             }
+            preprocessor.setDecoded(rawResult != null);
         }
 
+        // frames keep coming, so a failed frame needs no reply
         Handler handler = host.getHandler();
-        if (rawResult != null) {
-
-            if (handler != null) {
-                Message message = Message.obtain(handler,
-                        Constant.DECODE_SUCCEEDED, rawResult);
-                message.sendToTarget();
-            }
-        } else {
-            if (handler != null) {
-                Message message = Message.obtain(handler, Constant.DECODE_FAILED);
-                message.sendToTarget();
-            }
+        if (rawResult != null && handler != null) {
+            Message message = Message.obtain(handler,
+                    Constant.DECODE_SUCCEEDED, rawResult);
+            message.sendToTarget();
         }
     }
 
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.ui.fragment.main.scan.scanner.decode;
+
+import android.os.Handler;
+import android.os.Message;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.keystone.cold.ui.fragment.main.scan.scanner.Host;
+import com.keystone.cold.ui.fragment.main.scan.scanner.camera.CameraManager;
+import com.keystone.cold.ui.fragment.main.scan.scanner.common.Constant;
+
+import java.util.ArrayDeque;
+
+/**
+ * Spreads preview frames over a few {@link DecodeThread}s.
+ * <p>
+ * A frame goes to an idle thread or, if every thread is busy, straight back to the camera.
+ * Results are sent to the host's handler in the order they are decoded, which need not be
+ * the order of the frames.
+ */
+public final class DecodePool implements CameraManager.FrameListener {
+
+    private static final String TAG = "Vault.Qrcode.DecodePool";
+
+    private final CameraManager cameraManager;
+    private final DecodeThread[] threads;
+
+    // guarded by this
+    private final ArrayDeque<Handler> idle = new ArrayDeque<>();
+    private boolean running = true;
+    private int dropped;
+
+    public DecodePool(Host host, CameraManager cameraManager, int size) {
+        this.cameraManager = cameraManager;
+        threads = new DecodeThread[size];
+        for (int i = 0; i < size; i++) {
+            threads[i] = new DecodeThread(host, this);
+            threads[i].start();
+        }
+        for (DecodeThread thread : threads) {
+            idle.addLast(thread.getHandler());
+        }
+    }
+
+    @Override
+    public void onPreviewFrame(byte[] data, int width, int height) {
+        Handler handler;
+        synchronized (this) {
+            handler = running ? idle.pollFirst() : null;
+            if (handler == null) {
+                ++dropped;
+            }
+        }
+
+        if (handler == null) {
+            cameraManager.releasePreviewFrame(data);
+        } else {
+            Message.obtain(handler, Constant.DECODE, width, height, data).sendToTarget();
+        }
+    }
+
+    /**
+     * Called by a decode thread once it no longer needs the frame.
+     */
+    void onDecoded(@NonNull Handler handler, byte[] data) {
+        cameraManager.releasePreviewFrame(data);
+        synchronized (this) {
+            if (running) {
+                idle.addLast(handler);
+            }
+        }
+    }
+
+    /**
+     * Stops the decode threads, waiting at most half a second for them to finish.
+     */
+    public void quitSynchronously() {
+        synchronized (this) {
+            running = false;
+            idle.clear();
+            Log.d(TAG, "dropped " + dropped + " preview frames while all decoders were busy");
+        }
+
+        for (DecodeThread thread : threads) {
+            Message.obtain(thread.getHandler(), Constant.QUIT).sendToTarget();
+        }
+
+        long deadline = System.currentTimeMillis() + 500L;
+        for (DecodeThread thread : threads) {
+            try {
+                thread.join(Math.max(1L, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                // continue
+            }
+        }
+    }
+}
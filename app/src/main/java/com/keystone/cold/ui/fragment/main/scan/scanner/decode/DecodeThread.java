@@ -37,13 +37,15 @@ import java.util.concurrent.CountDownLatch;
 public final class DecodeThread extends Thread {
 
     private final Host host;
+    private final DecodePool pool;
     private final Hashtable<DecodeHintType, Object> hints;
     private Handler handler;
     private final CountDownLatch handlerInitLatch;
 
-    public DecodeThread(Host host) {
+    DecodeThread(Host host, DecodePool pool) {
 
         this.host = host;
+        this.pool = pool;
         handlerInitLatch = new CountDownLatch(1);
 
         hints = new Hashtable<>();
@@ -67,7 +69,7 @@ public final class DecodeThread extends Thread {
     @Override
     public void run() {
         Looper.prepare();
-        handler = new DecodeHandler(host, hints);
+        handler = new DecodeHandler(host, hints, pool);
         handlerInitLatch.countDown();
         Looper.loop();
     }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.ui.fragment.main.scan.scanner.decode;
+
+import android.graphics.Rect;
+
+import androidx.annotation.NonNull;
+
+import com.google.zxing.PlanarYUVLuminanceSource;
+
+/**
+ * Prepares preview frames for one decode thread without allocating per frame.
+ * <p>
+ * Only the decode rect is rotated, into a buffer that is reused across frames. A frame that
+ * looks like the previous one is skipped if that one could not be decoded, as binarizing it
+ * again would fail the same way.
+ */
+final class FramePreprocessor {
+
+    // the frame is compared on a grid of SAMPLES x SAMPLES luminance samples
+    private static final int SAMPLES = 32;
+    // mean absolute luminance difference below which a frame counts as unchanged
+    private static final int UNCHANGED_THRESHOLD = 2;
+    // decode at least every so many frames even if nothing seems to change
+    private static final int MAX_SKIPPED = 4;
+
+    private byte[] rotated = new byte[0];
+    private byte[] samples = new byte[SAMPLES * SAMPLES];
+    private byte[] previousSamples = new byte[SAMPLES * SAMPLES];
+    private boolean hasPrevious;
+    private boolean previousFailed;
+    private int skipped;
+
+    /**
+     * Rotates the given rect of the luminance plane clockwise by 90 degrees.
+     *
+     * @param data   A preview frame, starting with its luminance plane.
+     * @param width  The width of the preview frame.
+     * @param height The height of the preview frame.
+     * @param rect   The part to keep, in the coordinates of the rotated frame.
+     */
+    @NonNull
+    PlanarYUVLuminanceSource rotate(@NonNull byte[] data, int width, int height, @NonNull Rect rect) {
+        final int outWidth = rect.width();
+        final int outHeight = rect.height();
+        if (rotated.length < outWidth * outHeight) {
+            rotated = new byte[outWidth * outHeight];
+        }
+        final byte[] out = rotated;
+
+        // column x of the rotated frame is row (height - 1 - x) of the preview frame
+        for (int x = 0; x < outWidth; x++) {
+            int src = (height - 1 - rect.left - x) * width + rect.top;
+            int dst = x;
+            for (int y = 0; y < outHeight; y++) {
+                out[dst] = data[src++];
+                dst += outWidth;
+            }
+        }
+
+        return new PlanarYUVLuminanceSource(out, outWidth, outHeight, 0, 0,
+                outWidth, outHeight, false);
+    }
+
+    /**
+     * Compares the frame last passed to {@link #rotate} with the one before.
+     *
+     * @return true if it need not be decoded
+     */
+    boolean skip(@NonNull PlanarYUVLuminanceSource source) {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final byte[] current = samples;
+
+        long difference = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            final int offset = (i * height / SAMPLES) * width;
+            for (int j = 0; j < SAMPLES; j++) {
+                final int index = i * SAMPLES + j;
+                current[index] = rotated[offset + j * width / SAMPLES];
+                difference += Math.abs((current[index] & 0xff) - (previousSamples[index] & 0xff));
+            }
+        }
+
+        final boolean unchanged = hasPrevious
+                && difference < (long) UNCHANGED_THRESHOLD * SAMPLES * SAMPLES;
+        samples = previousSamples;
+        previousSamples = current;
+        hasPrevious = true;
+
+        if (unchanged && previousFailed && skipped < MAX_SKIPPED) {
+            skipped++;
+            return true;
+        }
+        skipped = 0;
+        return false;
+    }
+
+    void setDecoded(boolean decoded) {
+        previousFailed = !decoded;
+    }
+}
@@ -123,8 +123,7 @@ public class AssetScannerState extends ScannerState {
             WatchWalletNotMatchException {
         KeystoneTxViewModel viewModel = ViewModelProviders.of(mActivity).get(KeystoneTxViewModel.class);
         byte[] bytes = (byte[]) result.resolve();
-        String hex = Hex.toHexString(bytes);
-        JSONObject object = viewModel.decodeAsProtobuf(hex);
+        JSONObject object = viewModel.decodeAsProtobuf(bytes);
         if (object != null) {
             Log.i(TAG, "decodeAsProtobuf result: " + object);
             Bundle bundle = viewModel.decodeAsBundle(object);
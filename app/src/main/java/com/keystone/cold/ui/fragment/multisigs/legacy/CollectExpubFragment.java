@@ -54,7 +54,6 @@ import com.keystone.cold.ui.fragment.main.scan.scanner.ScannerState;
 import com.keystone.cold.ui.fragment.main.scan.scanner.ScannerViewModel;
 import com.keystone.cold.ui.fragment.main.scan.scanner.exceptions.UnExpectedQRException;
 import com.keystone.cold.ui.modal.ModalDialog;
-import com.keystone.cold.update.utils.FileUtils;
 import com.keystone.cold.viewmodel.CollectXpubViewModel;
 import com.keystone.cold.viewmodel.SharedDataViewModel;
 import com.keystone.cold.viewmodel.exceptions.CollectExPubWrongDataException;
@@ -326,13 +325,13 @@ public class CollectExpubFragment extends MultiSigBaseFragment<CollectExpubBindi
         if (!hasSdcard()) {
             showNoSdcardModal(mActivity);
         } else {
-            decodeXpubFile(file, info);
+            collectXpubViewModel.readXpubFile(file)
+                    .observe(this, content -> decodeXpubFile(content, info));
         }
     }
 
-    private void decodeXpubFile(File file, CollectXpubViewModel.XpubInfo info) {
+    private void decodeXpubFile(String content, CollectXpubViewModel.XpubInfo info) {
         try {
-            String content = FileUtils.readString(file);
             content = content.replaceAll("p2wsh_p2sh", "p2sh_p2wsh");
             JSONObject obj = new JSONObject(content);
 
@@ -18,45 +18,73 @@
 package com.keystone.cold.ui.views.qrcode;
 
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
 import android.util.Log;
 import android.util.LruCache;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 import com.google.zxing.qrcode.encoder.ByteMatrix;
 import com.google.zxing.qrcode.encoder.Encoder;
 import com.google.zxing.qrcode.encoder.QRCode;
-import com.keystone.cold.encryptioncore.utils.ByteFormatter;
-import com.keystone.cold.update.utils.Digest;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+/**
+ * Renders qr codes into bitmaps and keeps the latest ones, up to {@link #MAX_CACHE_BYTES}.
+ * <p>
+ * Bitmaps that drop out of the cache are reused for new codes once no holder shows them.
+ * A holder's bitmap is only reused after it has been replaced twice, so the image view is
+ * never drawing a bitmap that is being rendered into.
+ */
 class Cache {
     private static final String TAG = "Vault.Qrcode.Cache";
+    private static final int MAX_CACHE_BYTES = 8 * 1024 * 1024;
+    private static final int MAX_POOL_SIZE = 3;
     private static final Cache INSTANCE = new Cache();
-    private final Paint mPaint;
-    private final LruCache<String, Bitmap> mBitmapCache;
+    private final LruCache<Key, Bitmap> mBitmapCache;
     private ExecutorService mExecutors = Executors.newSingleThreadExecutor();
     private final Map<EncodeHintType, Object> mHint;
 
+    // guarded by this
+    private final Set<Bitmap> mCached = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<QrCodeHolder, Shown> mShown = new WeakHashMap<>();
+    private final ArrayDeque<Bitmap> mPool = new ArrayDeque<>();
+
+    // guarded by mRenderLock, restart() may leave a render running on the old executor
+    private final Object mRenderLock = new Object();
+    private int[] mPixels = new int[0];
+
     private Cache() {
         mHint = new EnumMap<>(EncodeHintType.class);
         mHint.put(EncodeHintType.MARGIN, 0);
         mHint.put(EncodeHintType.CHARACTER_SET, "UTF-8");
 
-        mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mPaint.setStrokeWidth(0.5F);
-        mPaint.setStyle(Paint.Style.FILL_AND_STROKE);
-        mPaint.setColor(Color.BLACK);
-        mBitmapCache = new LruCache<>(10);
+        mBitmapCache = new LruCache<Key, Bitmap>(MAX_CACHE_BYTES) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                return value.getByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, Key key, Bitmap oldValue, Bitmap newValue) {
+                onUncached(oldValue);
+            }
+        };
     }
 
     public static Cache getInstance() {
@@ -64,55 +92,147 @@ class Cache {
     }
 
     public void offer(@NonNull String msg, @NonNull QrCodeHolder view) {
-        final String hash = checksum(msg);
-        final Bitmap cached = mBitmapCache.get(hash);
+        final Key key = new Key(msg, view.getViewWidth(), view.getViewHeight());
+        final Bitmap cached;
+
+        // an evicted bitmap is pooled unless shown, so mark it shown before it can be evicted
+        synchronized (this) {
+            cached = mBitmapCache.get(key);
+            if (cached != null) {
+                show(cached, view);
+            }
+        }
 
         if (cached != null) {
-            renderBitmap(cached, view);
+            view.onRender(cached);
             return;
         }
 
         mExecutors.submit(() -> {
             try {
-                final int width = view.getViewWidth();
-                final int height = view.getViewHeight();
-                final QRCode qrCode = Encoder.encode(msg, ErrorCorrectionLevel.L, mHint);
-                final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
-                final Canvas canvas = new Canvas(bitmap);
-                renderQrCode(qrCode.getMatrix(), width, height, canvas);
-                mBitmapCache.put(hash, bitmap);
-                renderBitmap(bitmap, view);
+                final Bitmap bitmap = render(msg, key.width, key.height);
+                synchronized (this) {
+                    mCached.add(bitmap);
+                    mBitmapCache.put(key, bitmap);
+                    show(bitmap, view);
+                }
+                view.onRender(bitmap);
             } catch (Exception e) {
                 Log.w(TAG, "Error while setting code", e);
             }
         });
     }
 
-    private void renderBitmap(@NonNull Bitmap bitmap, @NonNull QrCodeHolder view) {
-        view.onRender(bitmap);
+    /**
+     * Renders the message into a bitmap that is not cached, hand it back with
+     * {@link #recycle(Bitmap)} once it is no longer shown.
+     */
+    @NonNull
+    Bitmap render(@NonNull String msg, int width, int height) throws WriterException {
+        final QRCode qrCode = Encoder.encode(msg, ErrorCorrectionLevel.L, mHint);
+        final Bitmap bitmap = obtainBitmap(width, height);
+        renderQrCode(qrCode.getMatrix(), bitmap);
+        return bitmap;
+    }
+
+    synchronized void recycle(@NonNull Bitmap bitmap) {
+        reuse(bitmap);
     }
 
-    private void renderQrCode(@NonNull ByteMatrix matrix, int width, int height, @NonNull Canvas canvas) {
+    // guarded by this
+    private void show(@NonNull Bitmap bitmap, @NonNull QrCodeHolder view) {
+        Shown shown = mShown.get(view);
+        if (shown == null) {
+            shown = new Shown();
+            mShown.put(view, shown);
+        }
+        final Bitmap replaced = shown.push(bitmap);
+        if (replaced != null) {
+            reuse(replaced);
+        }
+    }
+
+    /**
+     * Draws each run of rows covering one module row once and copies it to the rest,
+     * then writes all pixels to the bitmap in a single call.
+     */
+    private void renderQrCode(@NonNull ByteMatrix matrix, @NonNull Bitmap bitmap) {
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
         final int inputWidth = matrix.getWidth();
         final int inputHeight = matrix.getHeight();
         final float cellSize = Math.min(((float) width) / inputWidth, ((float) height / inputHeight));
+        final int outputWidth = Math.min(width, (int) (inputWidth * cellSize));
+        final int outputHeight = Math.min(height, (int) (inputHeight * cellSize));
+        final byte[][] modules = matrix.getArray();
+
+        synchronized (mRenderLock) {
+            if (mPixels.length < width * height) {
+                mPixels = new int[width * height];
+            }
+            final int[] pixels = mPixels;
+            Arrays.fill(pixels, 0, width * height, Color.WHITE);
 
-        float outputY = 0F;
-        float outputX;
+            int previousInputY = -1;
+            for (int outputY = 0; outputY < outputHeight; ++outputY) {
+                final int offset = outputY * width;
+                final int inputY = Math.min((int) (outputY / cellSize), inputHeight - 1);
+                if (inputY == previousInputY) {
+                    System.arraycopy(pixels, offset - width, pixels, offset, outputWidth);
+                    continue;
+                }
+                previousInputY = inputY;
 
-        canvas.drawColor(Color.WHITE);
-        for (int inputY = 0; inputY < inputHeight; ++inputY, outputY += cellSize) {
-            outputX = 0F;
-            for (int inputX = 0; inputX < inputWidth; ++inputX, outputX += cellSize) {
-                if (matrix.get(inputX, inputY) == 1) {
-                    canvas.drawRect(outputX, outputY, outputX + cellSize, outputY + cellSize, mPaint);
+                final byte[] row = modules[inputY];
+                for (int outputX = 0; outputX < outputWidth; ++outputX) {
+                    final int inputX = Math.min((int) (outputX / cellSize), inputWidth - 1);
+                    if (row[inputX] == 1) {
+                        pixels[offset + outputX] = Color.BLACK;
+                    }
                 }
             }
+
+            bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+        }
+    }
+
+    @NonNull
+    private synchronized Bitmap obtainBitmap(int width, int height) {
+        final Iterator<Bitmap> iterator = mPool.iterator();
+        while (iterator.hasNext()) {
+            final Bitmap bitmap = iterator.next();
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                iterator.remove();
+                return bitmap;
+            }
         }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
     }
 
-    private String checksum(String msg) {
-        return ByteFormatter.bytes2hex(Digest.MD5.checksum(msg));
+    private synchronized void onUncached(@NonNull Bitmap bitmap) {
+        mCached.remove(bitmap);
+        reuse(bitmap);
+    }
+
+    // guarded by this
+    private void reuse(@NonNull Bitmap bitmap) {
+        if (mCached.contains(bitmap) || isShown(bitmap)) {
+            return;
+        }
+        if (mPool.size() >= MAX_POOL_SIZE) {
+            mPool.pollFirst();
+        }
+        mPool.addLast(bitmap);
+    }
+
+    // guarded by this
+    private boolean isShown(@NonNull Bitmap bitmap) {
+        for (Shown shown : mShown.values()) {
+            if (shown.current == bitmap || shown.previous == bitmap) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public void restart() {
@@ -124,5 +244,56 @@ class Cache {
     public void clear() {
         mExecutors.shutdownNow();
         mBitmapCache.evictAll();
+        synchronized (this) {
+            mPool.clear();
+        }
+    }
+
+    private static final class Key {
+        final String msg;
+        final int width;
+        final int height;
+
+        Key(@NonNull String msg, int width, int height) {
+            this.msg = msg;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key key = (Key) o;
+            return width == key.width && height == key.height && msg.equals(key.msg);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * msg.hashCode() + width) + height;
+        }
+    }
+
+    /**
+     * The last two bitmaps handed to a holder, the previous one may still be on screen
+     * until the holder has applied the current one.
+     */
+    private static final class Shown {
+        Bitmap current;
+        Bitmap previous;
+
+        /**
+         * @return the bitmap that is no longer shown, if any
+         */
+        @Nullable
+        Bitmap push(@NonNull Bitmap bitmap) {
+            if (bitmap == current) {
+                return null;
+            }
+            final Bitmap replaced = previous;
+            previous = current;
+            current = bitmap;
+            return replaced;
+        }
     }
-}
\ No newline at end of file
+}
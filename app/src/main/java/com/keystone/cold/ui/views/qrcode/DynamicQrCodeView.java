@@ -44,6 +44,8 @@ import static com.sparrowwallet.hummingbird.UR.fromBytes;
 
 public class DynamicQrCodeView extends LinearLayout implements QrCodeHolder {
     private static final int DURATION = 200; //ms
+    private static final int RETRY_DELAY = 16; //ms
+    private static final int FRAMES_AHEAD = 4;
     private String data;
     private RegistryType type;
     public int count;
@@ -56,6 +58,7 @@ public class DynamicQrCodeView extends LinearLayout implements QrCodeHolder {
     private boolean detached = false;
 
     private UREncoder encoder;
+    private FramePipeline pipeline;
 
     public enum QrCapacity {
         HIGH(800),
@@ -105,10 +108,13 @@ public class DynamicQrCodeView extends LinearLayout implements QrCodeHolder {
                     } else {
                         ur = fromBytes(Hex.decode(data));
                     }
-                    encoder = new UREncoder(ur, qrCapacity.capacity, 10, 0);
-                    mCache.restart();
-                    handler.removeCallbacks(runnable);
-                    handler.post(runnable);
+                    UREncoder urEncoder = new UREncoder(ur, qrCapacity.capacity, 10, 0);
+                    handler.post(() -> {
+                        encoder = urEncoder;
+                        stopPipeline();
+                        handler.removeCallbacks(runnable);
+                        handler.post(runnable);
+                    });
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
@@ -154,21 +160,19 @@ public class DynamicQrCodeView extends LinearLayout implements QrCodeHolder {
 
     public void showQrCode() {
         if (multiPart) {
-            String part = encoder.nextPart().toUpperCase();
-            if (ViewCompat.isLaidOut(this)) {
-                mCache.offer(part, this);
-            } else {
-                getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-                    @Override
-                    public void onGlobalLayout() {
-                        getViewTreeObserver().removeOnGlobalLayoutListener(this);
-                        mCache.offer(part, DynamicQrCodeView.this);
-                    }
-                });
+            if (encoder == null) {
+                return;
+            }
+            if (pipeline == null && ViewCompat.isLaidOut(this) && getViewWidth() > 0) {
+                pipeline = new FramePipeline(encoder, getViewWidth(), getViewHeight(), FRAMES_AHEAD);
+            }
+            Bitmap frame = pipeline != null ? pipeline.next() : null;
+            if (frame != null) {
+                setImageBitmap(frame);
             }
-            if (autoAnimate && !detached) {
+            if (!detached && (autoAnimate || frame == null)) {
                 handler.removeCallbacks(runnable);
-                handler.postDelayed(runnable, DURATION);
+                handler.postDelayed(runnable, frame != null ? DURATION : RETRY_DELAY);
             }
         } else {
             if (ViewCompat.isLaidOut(this)) {
@@ -213,6 +217,14 @@ public class DynamicQrCodeView extends LinearLayout implements QrCodeHolder {
         super.onDetachedFromWindow();
         handler.removeCallbacks(runnable);
         detached = true;
+        stopPipeline();
         mCache.restart();
     }
+
+    private void stopPipeline() {
+        if (pipeline != null) {
+            pipeline.stop();
+            pipeline = null;
+        }
+    }
 }
\ No newline at end of file
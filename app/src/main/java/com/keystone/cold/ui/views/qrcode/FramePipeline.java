@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.ui.views.qrcode;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.zxing.WriterException;
+import com.sparrowwallet.hummingbird.UREncoder;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Produces the frames of an animated ur qr code ahead of display.
+ * <p>
+ * Parts are taken from the encoder in order on one thread and rendered on a small pool,
+ * keeping up to {@code depth} frames ready or in flight. The display loop only swaps in
+ * frames that are done, so a slow render delays one frame instead of the animation.
+ */
+class FramePipeline {
+    private static final String TAG = "Vault.Qrcode.Pipeline";
+    private static final int RENDER_THREADS = 2;
+
+    private final UREncoder mEncoder;
+    private final int mWidth;
+    private final int mHeight;
+    private final int mDepth;
+    private final Cache mCache = Cache.getInstance();
+    private final ExecutorService mPartExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService mRenderExecutor = Executors.newFixedThreadPool(RENDER_THREADS);
+
+    // main thread only
+    private final ArrayDeque<CompletableFuture<Bitmap>> mFrames = new ArrayDeque<>();
+    private Bitmap mCurrent;
+    private Bitmap mPrevious;
+    private boolean mStopped;
+
+    @MainThread
+    FramePipeline(@NonNull UREncoder encoder, int width, int height, int depth) {
+        mEncoder = encoder;
+        mWidth = width;
+        mHeight = height;
+        mDepth = depth;
+        fill();
+    }
+
+    /**
+     * @return the next frame, or null if it is not rendered yet and the current one stays
+     */
+    @MainThread
+    @Nullable
+    Bitmap next() {
+        final CompletableFuture<Bitmap> head = mFrames.peekFirst();
+        if (mStopped || head == null || !head.isDone()) {
+            return null;
+        }
+
+        mFrames.pollFirst();
+        fill();
+
+        final Bitmap bitmap;
+        try {
+            bitmap = head.join();
+        } catch (CompletionException e) {
+            Log.w(TAG, "Error while rendering part", e);
+            return null;
+        }
+
+        // the previous frame may still be on screen until the view applies the current one
+        if (mPrevious != null) {
+            mCache.recycle(mPrevious);
+        }
+        mPrevious = mCurrent;
+        mCurrent = bitmap;
+        return bitmap;
+    }
+
+    @MainThread
+    void stop() {
+        mStopped = true;
+        mPartExecutor.shutdownNow();
+        mRenderExecutor.shutdownNow();
+        for (CompletableFuture<Bitmap> frame : mFrames) {
+            frame.cancel(true);
+        }
+        mFrames.clear();
+    }
+
+    private void fill() {
+        while (mFrames.size() < mDepth) {
+            mFrames.addLast(CompletableFuture
+                    .supplyAsync(() -> mEncoder.nextPart().toUpperCase(), mPartExecutor)
+                    .thenApplyAsync(this::render, mRenderExecutor));
+        }
+    }
+
+    private Bitmap render(@NonNull String part) {
+        try {
+            return mCache.render(part, mWidth, mHeight);
+        } catch (WriterException e) {
+            throw new CompletionException(e);
+        }
+    }
+}
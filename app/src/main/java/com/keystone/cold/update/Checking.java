@@ -239,8 +239,6 @@ public class Checking implements Callable<UpdateManifest> {
         final File updateFile = mStorage.getUpdateZipFile();
         String updateKey = BuildConfig.UPDATE_PUBLIC_KEY;
 
-        File serialBin = null;
-
         if (TextUtils.isEmpty(updateKey)) {
             return false;
         }
@@ -252,22 +250,12 @@ public class Checking implements Callable<UpdateManifest> {
                 return false;
             }
 
-            serialBin = ZipHelper.extract(zipFile, serialFile, updateKey, mStorage.getUpdateCacheDir().getAbsolutePath());
-            byte[] serialBytes = FileUtils.bufferlize(serialBin);
-            if (serialBytes == null) {
-                return false;
-            }
             //first 32 byte is version info
-            byte[] metaData = new byte[32];
-            System.arraycopy(serialBytes, 0, metaData, 0, 32);
+            byte[] metaData = ZipHelper.readHead(zipFile, serialFile, updateKey, 32);
             return new CheckUpdateFirmwareCallable(metaData).call();
         } catch (Exception e) {
             e.printStackTrace();
             return false;
-        } finally {
-            if (serialBin != null && serialBin.exists()) {
-                serialBin.delete();
-            }
         }
     }
 
@@ -35,7 +35,7 @@ import com.keystone.cold.silentInstall.listener.InstallResultListener;
 import com.keystone.cold.update.data.FileInfo;
 import com.keystone.cold.update.data.UpdateManifest;
 import com.keystone.cold.update.utils.Digest;
-import com.keystone.cold.update.utils.FileUtils;
+import com.keystone.cold.update.utils.MultiDigest;
 import com.keystone.cold.update.utils.Storage;
 import com.keystone.cold.update.utils.ZipHelper;
 
@@ -54,12 +54,20 @@ public class Updating implements Callable<Boolean> {
     private final Storage mStorage;
     private final Context mContext;
     private final String password;
+    @Nullable
+    private final UpdateCallable.ProgressCallback mProgressCallback;
 
     public Updating(@NonNull Storage storage, Context context, @NonNull UpdateManifest manifest, String password) {
+        this(storage, context, manifest, password, null);
+    }
+
+    public Updating(@NonNull Storage storage, Context context, @NonNull UpdateManifest manifest, String password,
+                    @Nullable UpdateCallable.ProgressCallback progressCallback) {
         mStorage = storage;
         mContext = context;
         mManifest = Preconditions.checkNotNull(manifest);
         this.password = password;
+        mProgressCallback = progressCallback;
     }
 
     @Nullable
@@ -68,16 +76,19 @@ public class Updating implements Callable<Boolean> {
             final File file;
 
             try {
-                file = ZipHelper.extract(zipFile, info.fileName, key, dir.getAbsolutePath());
+                // hash while extracting instead of reading the file back once per digest
+                final MultiDigest digest = new MultiDigest(Digest.MD5, Digest.SHA1);
+                file = ZipHelper.extract(zipFile, info.fileName, key, dir.getAbsolutePath(), digest);
 
-                if (file.exists()) {
-                    final String md5 = ByteFormatter.bytes2hex(Digest.MD5.checksum(file));
-                    final String sha1 = ByteFormatter.bytes2hex(Digest.SHA1.checksum(file));
+                final String md5 = ByteFormatter.bytes2hex(digest.digest(Digest.MD5));
+                final String sha1 = ByteFormatter.bytes2hex(digest.digest(Digest.SHA1));
 
-                    if (Objects.equals(md5, info.md5) && Objects.equals(sha1, info.sha1)) {
-                        return file;
-                    }
+                if (Objects.equals(md5, info.md5) && Objects.equals(sha1, info.sha1)) {
+                    return file;
                 }
+
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
             } catch (ZipException e) {
                 e.printStackTrace();
             }
@@ -126,14 +137,8 @@ public class Updating implements Callable<Boolean> {
             return false;
         }
 
-        final byte[] data = FileUtils.bufferlize(file);
-        file.delete();
-
-        if (data == null || data.length == 0) {
-            return false;
-        }
-
-        final Callable callable = new UpdateCallable(data, password);
+        // the firmware is streamed page by page from the extracted file
+        final Callable callable = new UpdateCallable(file, password, mProgressCallback);
 
         try {
             callable.call();
@@ -141,6 +146,8 @@ public class Updating implements Callable<Boolean> {
         } catch (Exception e) {
             e.printStackTrace();
             return false;
+        } finally {
+            file.delete();
         }
     }
 
@@ -17,12 +17,9 @@ import androidx.annotation.Nullable;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 public enum Digest {
     MD5("MD5"), SHA1("SHA1"), SHA256("SHA-256");
@@ -35,6 +32,11 @@ public enum Digest {
         this.name = name;
     }
 
+    @NonNull
+    String getAlgorithm() {
+        return name;
+    }
+
     @Nullable
     public byte[] checksum(@NonNull File file) {
         if (!file.exists()) {
@@ -42,8 +44,8 @@ public enum Digest {
             return null;
         }
 
-        try (InputStream inputStream = new FileInputStream(file)) {
-            return checksum(inputStream);
+        try {
+            return new MultiDigest(this).update(file).digest(this);
         } catch (IOException e) {
             e.printStackTrace();
             return null;
@@ -66,22 +68,6 @@ public enum Digest {
 
     @Nullable
     public byte[] checksum(@NonNull InputStream inputStream) throws IOException {
-        final MessageDigest digest;
-
-        try {
-            digest = MessageDigest.getInstance(this.name);
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            return null;
-        }
-
-        final byte[] buffer = new byte[1024];
-        int read;
-
-        while ((read = inputStream.read(buffer)) > 0) {
-            digest.update(buffer, 0, read);
-        }
-
-        return digest.digest();
+        return new MultiDigest(this).update(inputStream).digest(this);
     }
 }
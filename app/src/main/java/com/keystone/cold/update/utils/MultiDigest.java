@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.update.utils;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Computes several {@link Digest}s over the same data in one pass.
+ * <p>
+ * Every chunk read is fed to all digests before the next chunk is read, so a file is read
+ * from storage once no matter how many checksums are needed. Data can be pushed through
+ * {@link #update(byte[], int, int)} while it is produced, e.g. while a zip entry is extracted.
+ */
+public class MultiDigest {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<Digest, MessageDigest> mDigests = new EnumMap<>(Digest.class);
+    private final Map<Digest, byte[]> mResults = new EnumMap<>(Digest.class);
+
+    public MultiDigest(@NonNull Digest... digests) {
+        for (Digest digest : digests) {
+            try {
+                mDigests.put(digest, MessageDigest.getInstance(digest.getAlgorithm()));
+            } catch (NoSuchAlgorithmException e) {
+                // MD5, SHA-1 and SHA-256 are available on every platform
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @NonNull
+    public MultiDigest update(@NonNull byte[] buffer, int offset, int length) {
+        if (!mResults.isEmpty()) {
+            throw new IllegalStateException("digest already finished");
+        }
+
+        for (MessageDigest digest : mDigests.values()) {
+            digest.update(buffer, offset, length);
+        }
+
+        return this;
+    }
+
+    @NonNull
+    public MultiDigest update(@NonNull InputStream inputStream) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+
+        while ((read = inputStream.read(buffer)) > 0) {
+            update(buffer, 0, read);
+        }
+
+        return this;
+    }
+
+    @NonNull
+    public MultiDigest update(@NonNull File file) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            final FileChannel channel = inputStream.getChannel();
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+            while (channel.read(buffer) > 0) {
+                update(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Finishes all digests on the first call; no data can be added afterwards.
+     *
+     * @return the checksum of everything passed to {@code update} so far
+     */
+    @NonNull
+    public byte[] digest(@NonNull Digest digest) {
+        if (!mDigests.containsKey(digest)) {
+            throw new IllegalArgumentException(digest + " is not computed by this MultiDigest");
+        }
+
+        if (mResults.isEmpty()) {
+            for (Map.Entry<Digest, MessageDigest> entry : mDigests.entrySet()) {
+                mResults.put(entry.getKey(), entry.getValue().digest());
+            }
+        }
+
+        return mResults.get(digest).clone();
+    }
+}
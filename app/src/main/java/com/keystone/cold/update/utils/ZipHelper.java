@@ -24,8 +24,13 @@ import androidx.annotation.Nullable;
 
 import net.lingala.zip4j.core.ZipFile;
 import net.lingala.zip4j.exception.ZipException;
+import net.lingala.zip4j.io.ZipInputStream;
+import net.lingala.zip4j.model.FileHeader;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.UUID;
 
 public class ZipHelper {
@@ -51,6 +56,68 @@ public class ZipHelper {
         return new File(destPath, randomName);
     }
 
+    /**
+     * Extracts {@code fileName} and feeds the extracted bytes to {@code digest} as they are
+     * written, so the file does not have to be read again to be verified.
+     */
+    @NonNull
+    public static File extract(@NonNull ZipFile zipFile, @NonNull String fileName, @NonNull String password,
+                               @NonNull String destPath, @NonNull MultiDigest digest) throws ZipException {
+        final FileHeader fileHeader = getFileHeader(zipFile, fileName, password);
+        final ZipInputStream inputStream = zipFile.getInputStream(fileHeader);
+        final File file = new File(destPath, UUID.randomUUID().toString());
+
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            final byte[] buffer = new byte[MultiDigest.BUFFER_SIZE];
+            int read;
+
+            while ((read = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, read);
+                digest.update(buffer, 0, read);
+            }
+
+            // verifies the CRC of the entry
+            inputStream.close();
+        } catch (IOException e) {
+            closeSkippingCheck(inputStream);
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            throw new ZipException(e);
+        }
+
+        return file;
+    }
+
+    /**
+     * Decrypts and inflates only the first {@code length} bytes of {@code fileName}.
+     */
+    @NonNull
+    public static byte[] readHead(@NonNull ZipFile zipFile, @NonNull String fileName,
+                                  @NonNull String password, int length) throws ZipException {
+        final ZipInputStream inputStream = zipFile.getInputStream(getFileHeader(zipFile, fileName, password));
+        final byte[] head = new byte[length];
+
+        try {
+            int position = 0;
+            int read;
+
+            while (position < length && (read = inputStream.read(head, position, length - position)) > 0) {
+                position += read;
+            }
+
+            if (position < length) {
+                throw new ZipException(fileName + " is shorter than " + length + " bytes");
+            }
+        } catch (IOException e) {
+            throw new ZipException(e);
+        } finally {
+            // the entry is not read to the end, so its CRC can not be checked
+            closeSkippingCheck(inputStream);
+        }
+
+        return head;
+    }
+
     @Nullable
     public static ZipFile wrapUpdateZipFile(@NonNull File file) throws ZipException {
         final ZipFile zipFile = new ZipFile(file);
@@ -61,4 +128,27 @@ public class ZipHelper {
             return null;
         }
     }
+
+    @NonNull
+    private static FileHeader getFileHeader(@NonNull ZipFile zipFile, @NonNull String fileName,
+                                            @NonNull String password) throws ZipException {
+        if (zipFile.isEncrypted() || !TextUtils.isEmpty(fileName)) {
+            zipFile.setPassword(password);
+        }
+
+        final FileHeader fileHeader = zipFile.getFileHeader(fileName);
+        if (fileHeader == null) {
+            throw new ZipException("file header not found for " + fileName);
+        }
+
+        return fileHeader;
+    }
+
+    private static void closeSkippingCheck(@NonNull ZipInputStream inputStream) {
+        try {
+            inputStream.close(true);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.util;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.keystone.cold.R;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tracks the parts of one animated UR scan.
+ * <p>
+ * The sender loops over its parts, so most decoded parts have been seen before. These are
+ * dropped by {@link #offer(String)} before they reach the UR decoder, and counted to tell
+ * how fast new parts come in. Not thread safe, use it from the thread that feeds the decoder.
+ */
+public class URScanProgress {
+    private final Set<String> seen = new HashSet<>();
+    private long firstPartTime;
+    private long lastPartTime;
+    private int duplicateParts;
+    private double percentComplete;
+
+    /**
+     * @return false if the part was seen before and need not be decoded again
+     */
+    public boolean offer(@NonNull String part) {
+        final long now = SystemClock.elapsedRealtime();
+        if (seen.isEmpty()) {
+            firstPartTime = now;
+        }
+        lastPartTime = now;
+
+        if (!seen.add(part)) {
+            ++duplicateParts;
+            return false;
+        }
+        return true;
+    }
+
+    public void setPercentComplete(double percentComplete) {
+        this.percentComplete = percentComplete;
+    }
+
+    /**
+     * @return the estimated share of the message received, from 0 to 1
+     */
+    public double getPercentComplete() {
+        return percentComplete;
+    }
+
+    public int getUniqueParts() {
+        return seen.size();
+    }
+
+    public int getDuplicateParts() {
+        return duplicateParts;
+    }
+
+    /**
+     * @return the share of decoded parts that had been seen before, from 0 to 1
+     */
+    public double getDuplicateRatio() {
+        final int total = seen.size() + duplicateParts;
+        return total == 0 ? 0 : (double) duplicateParts / total;
+    }
+
+    public double getUniquePartsPerSecond() {
+        final long elapsed = lastPartTime - firstPartTime;
+        return elapsed <= 0 ? 0 : seen.size() * 1000.0 / elapsed;
+    }
+
+    /**
+     * @return the estimated milliseconds until the message is complete, or -1 if unknown
+     */
+    public long getEstimatedTimeLeft() {
+        final long elapsed = lastPartTime - firstPartTime;
+        if (elapsed <= 0 || percentComplete <= 0) {
+            return -1;
+        }
+        return (long) (elapsed * (1 - percentComplete) / percentComplete);
+    }
+
+    /**
+     * @return the percent received, followed by the rate of new parts, the repeated share and
+     * the time left once they can be estimated
+     */
+    public String format(@NonNull Context context) {
+        final int percent = (int) Math.floor(percentComplete * 100);
+        final long timeLeft = getEstimatedTimeLeft();
+        if (timeLeft < 0) {
+            return percent + "%";
+        }
+        return context.getString(R.string.scan_progress_detail, percent, getUniquePartsPerSecond(),
+                (int) Math.round(getDuplicateRatio() * 100), (int) Math.ceil(timeLeft / 1000.0));
+    }
+}
@@ -25,11 +25,8 @@ import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.keystone.coinlib.coins.BTC.AddressGenerator;
 import com.keystone.coinlib.coins.BTC.Btc;
-import com.keystone.coinlib.coins.BTC.Deriver;
-import com.keystone.coinlib.exception.InvalidPathException;
-import com.keystone.coinlib.path.AddressIndex;
-import com.keystone.coinlib.path.CoinPath;
 import com.keystone.coinlib.utils.Account;
 import com.keystone.coinlib.utils.Coins;
 import com.keystone.cold.DataRepository;
@@ -41,7 +38,6 @@ import com.keystone.cold.db.entity.CoinEntity;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 public class AddAddressViewModel extends AndroidViewModel {
 
@@ -111,32 +107,19 @@ public class AddAddressViewModel extends AndroidViewModel {
         @Override
         protected Void doInBackground(Integer... count) {
             AccountEntity accountEntity = repo.loadAccountsByXpub(coinEntity.getId(), xpub);
-            List<AddressEntity> address = repo.loadAddressSync(coinEntity.getCoinId());
-
-            Optional<AddressEntity> optional = address.stream()
-                    .filter(addressEntity -> addressEntity.getPath()
-                    .startsWith(accountEntity.getHdPath()+"/" + changeIndex))
-                    .max((o1, o2) -> o1.getIndex() - o2.getIndex());
-            int index = -1;
-            if (optional.isPresent()) {
-                try {
-                    AddressIndex addressIndex = CoinPath.parsePath(optional.get().getPath());
-                    index = addressIndex.getValue();
-                } catch (InvalidPathException e) {
-                    e.printStackTrace();
-                }
-            }
+            int index = repo.loadMaxAddressIndex(coinEntity.getCoinId(),
+                    accountEntity.getHdPath(), changeIndex);
 
             int addressCount = index + 1;
             Btc.AddressType addressType = getAddressType(accountEntity);
             List<AddressEntity> entities = new ArrayList<>();
             boolean isMainNet = Coins.BTC.coinCode().equals(coinEntity.getCoinCode());
-            Deriver deriver = new Deriver(isMainNet);
+            List<String> addresses = new AddressGenerator(isMainNet)
+                    .derive(xpub, changeIndex, addressCount, count[0], addressType);
             for (int i = 0; i < count[0]; i++) {
                 AddressEntity addressEntity = new AddressEntity();
                 addressEntity.setPath(accountEntity.getHdPath()+"/" + changeIndex+"/" + (addressCount + i));
-                String addr = deriver.derive(xpub, changeIndex, i + addressCount, addressType);
-                addressEntity.setAddressString(addr);
+                addressEntity.setAddressString(addresses.get(i));
                 addressEntity.setCoinId(coinEntity.getCoinId());
                 addressEntity.setIndex(i + addressCount);
                 addressEntity.setName("BTC-" + (i + addressCount));
@@ -23,6 +23,9 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.paging.DataSource;
+import androidx.paging.LivePagedListBuilder;
+import androidx.paging.PagedList;
 
 import com.keystone.coinlib.utils.Account;
 import com.keystone.cold.AppExecutors;
@@ -37,8 +40,20 @@ import com.keystone.cold.protocol.builder.SyncBuilder;
 
 import java.util.List;
 
+import static com.keystone.cold.viewmodel.GlobalViewModel.getAccount;
+import static com.keystone.cold.viewmodel.WatchWallet.getWatchWallet;
+
 public class CoinListViewModel extends AndroidViewModel {
 
+    /**
+     * Tx lists load 20 rows at a time and only bind rows already loaded, so a row never
+     * has to be drawn without its tx.
+     */
+    public static final PagedList.Config TX_PAGE_CONFIG = new PagedList.Config.Builder()
+            .setPageSize(20)
+            .setEnablePlaceholders(false)
+            .build();
+
     private final DataRepository mRepository;
 
     public CoinListViewModel(@NonNull Application application) {
@@ -58,8 +73,26 @@ public class CoinListViewModel extends AndroidViewModel {
         return mRepository.loadCasaSignature(id);
     }
 
-    public LiveData<List<TxEntity>> loadTxs(String coinId) {
-        return mRepository.loadTxs(coinId);
+    /**
+     * @return the single-sig txs of the current wallet made in the current watch wallet mode,
+     * oldest first and paged
+     */
+    public LiveData<PagedList<TxEntity>> loadTxs(String coinId) {
+        WatchWallet watchWallet = getWatchWallet(getApplication());
+        DataSource.Factory<Integer, TxEntity> txs;
+        if (watchWallet == WatchWallet.KEYSTONE) {
+            txs = mRepository.loadKeystoneTxs(coinId);
+        } else if (watchWallet == WatchWallet.ELECTRUM) {
+            Account account = getAccount(getApplication());
+            if (account == Account.P2WPKH || account == Account.P2WPKH_TESTNET) {
+                txs = mRepository.loadTxs(coinId, watchWallet.getSignId() + "_NATIVE_SEGWIT");
+            } else {
+                txs = mRepository.loadTxs(coinId, watchWallet.getSignId());
+            }
+        } else {
+            txs = mRepository.loadTxs(coinId, watchWallet.getSignId());
+        }
+        return new LivePagedListBuilder<>(txs, TX_PAGE_CONFIG).build();
     }
 
     private List<AccountEntity> loadAccountForCoin(CoinEntity coin) {
@@ -30,6 +30,7 @@ import com.keystone.coinlib.accounts.Account;
 import com.keystone.coinlib.accounts.MultiSig;
 import com.keystone.coinlib.utils.B58;
 import com.keystone.cold.AppExecutors;
+import com.keystone.cold.update.utils.FileUtils;
 import com.keystone.cold.update.utils.Storage;
 import com.keystone.cold.viewmodel.exceptions.CollectExPubWrongDataException;
 import com.sparrowwallet.hummingbird.registry.CryptoAccount;
@@ -112,6 +113,12 @@ public class CollectXpubViewModel extends AndroidViewModel {
         return result;
     }
 
+    public LiveData<String> readXpubFile(File file) {
+        MutableLiveData<String> result = new MutableLiveData<>();
+        AppExecutors.getInstance().diskIO().execute(() -> result.postValue(FileUtils.readString(file)));
+        return result;
+    }
+
     public CryptoAccount decodeCryptoAccount(String hex) throws CollectExPubWrongDataException {
         try {
             List<DataItem> dataItems = CborDecoder.decode(Hex.decode(hex));
@@ -311,7 +311,7 @@ public class GlobalViewModel extends AndroidViewModel {
                 type = Btc.AddressType.P2PKH;
             }
 
-            Deriver btcDeriver = new Deriver(Utilities.isMainNet(getApplication()));
+            Deriver btcDeriver = Deriver.get(Utilities.isMainNet(getApplication()));
             for (int i = 0; i < DEFAULT_CHANGE_ADDRESS_NUM; i++) {
                 changes.add(btcDeriver.derive(xpub, 1, i, type));
             }
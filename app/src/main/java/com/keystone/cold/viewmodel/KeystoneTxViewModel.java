@@ -12,7 +12,6 @@ import com.keystone.coinlib.utils.Coins;
 import com.keystone.cold.MainApplication;
 import com.keystone.cold.Utilities;
 import com.keystone.cold.callables.GetMasterFingerprintCallable;
-import com.keystone.cold.protocol.ZipUtil;
 import com.keystone.cold.protocol.parser.ProtoParser;
 import com.keystone.cold.viewmodel.exceptions.UnknowQrCodeException;
 import com.keystone.cold.viewmodel.exceptions.WatchWalletNotMatchException;
@@ -20,7 +19,6 @@ import com.keystone.cold.viewmodel.exceptions.XfpNotMatchException;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.spongycastle.util.encoders.Hex;
 
 import static com.keystone.cold.ui.fragment.main.TxConfirmFragment.KEY_TX_DATA;
 
@@ -33,9 +31,8 @@ public class KeystoneTxViewModel extends AndroidViewModel {
         this.application = application;
     }
 
-    public JSONObject decodeAsProtobuf(String hex) {
-        hex = ZipUtil.unzip(hex);
-        return new ProtoParser(Hex.decode(hex)).parseToJson();
+    public JSONObject decodeAsProtobuf(byte[] gzipped) {
+        return new ProtoParser(gzipped, true).parseToJson();
     }
 
     public Bundle decodeAsBundle(JSONObject object)
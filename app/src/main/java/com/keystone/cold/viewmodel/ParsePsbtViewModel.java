@@ -8,9 +8,9 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.MutableLiveData;
 
-import com.googlecode.protobuf.format.JsonFormat;
 import com.keystone.coinlib.Util;
 import com.keystone.coinlib.coins.AbsTx;
+import com.keystone.coinlib.coins.BTC.BtcTxData;
 import com.keystone.coinlib.coins.BTC.UtxoTx;
 import com.keystone.coinlib.exception.InvalidTransactionException;
 import com.keystone.coinlib.utils.Account;
@@ -24,9 +24,9 @@ import com.keystone.cold.db.entity.AccountEntity;
 import com.keystone.cold.db.entity.CoinEntity;
 import com.keystone.cold.db.entity.TxEntity;
 import com.keystone.cold.protobuf.TransactionProtoc;
+import com.keystone.cold.protocol.parser.ProtoJson;
 import com.keystone.cold.ui.views.AuthenticateModal;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.spongycastle.util.encoders.Hex;
@@ -98,9 +98,13 @@ public abstract class ParsePsbtViewModel extends AndroidViewModel {
     protected String getToAddress() {
         String to = transaction.getTo();
         if (transaction instanceof UtxoTx) {
-            JSONArray outputs = ((UtxoTx) transaction).getOutputs();
-            if (outputs != null) {
-                return outputs.toString();
+            BtcTxData txData = ((UtxoTx) transaction).getTxData();
+            if (!txData.getOutputs().isEmpty()) {
+                try {
+                    return txData.outputsToJson().toString();
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                }
             }
         }
         return to;
@@ -119,8 +123,7 @@ public abstract class ParsePsbtViewModel extends AndroidViewModel {
                 .setSignId(isMultisig ? "PSBT_MULTISIG" : signId)
                 .setTimestamp(generateAutoIncreaseId())
                 .setDecimal(8);
-        String signTransaction = new JsonFormat().printToString(builder.build());
-        JSONObject signTx = new JSONObject(signTransaction);
+        JSONObject signTx = ProtoJson.toJson(builder.build());
         signTx.put(isMainNet ? "btcTx" : "xtnTx", adaptTx);
         return signTx;
     }
@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.viewmodel;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.keystone.coinlib.Util;
+import com.keystone.coinlib.coins.BTC.Psbt;
+import com.keystone.coinlib.coins.BTC.PsbtDecoder;
+import com.keystone.coinlib.exception.InvalidTransactionException;
+import com.keystone.cold.update.utils.FileUtils;
+
+import org.spongycastle.util.encoders.Base64;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the unsigned psbt files on the sd card. Files are recognized by their first bytes,
+ * summaries are parsed once per file version, keyed by path, size and mtime, and the most
+ * recent file is kept in memory so opening it needs no more io.
+ */
+final class PsbtInbox {
+    private static final String TAG = "Vault.PsbtInbox";
+    private static final Pattern signedPsbtPattern = Pattern.compile("^signed_[0-9a-fA-F]{8}.psbt$");
+    // "psbt" followed by 0xff
+    private static final byte[] MAGIC = {0x70, 0x73, 0x62, 0x74, (byte) 0xff};
+    // base64 of the magic, the last char holds the high half of 0xff
+    private static final byte[] BASE64_MAGIC = "cHNidP".getBytes(StandardCharsets.US_ASCII);
+
+    private static final PsbtInbox sInstance = new PsbtInbox(Executors.newSingleThreadExecutor());
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Executor parseExecutor;
+    private List<Entry> lastScan = Collections.emptyList();
+    private Entry preloaded;
+    private String preloadedBase64;
+
+    static PsbtInbox getInstance() {
+        return sInstance;
+    }
+
+    PsbtInbox(@NonNull Executor parseExecutor) {
+        this.parseExecutor = parseExecutor;
+    }
+
+    /**
+     * @return the files found by the last scan, to show before the next one completes
+     */
+    synchronized List<Entry> getLastScan() {
+        return lastScan;
+    }
+
+    /**
+     * Lists the psbt files of the directory sorted by name. Only files that are new or changed
+     * since the last scan have their first bytes read.
+     */
+    @WorkerThread
+    synchronized List<Entry> scan(@NonNull File dir) {
+        List<Entry> result = new ArrayList<>();
+        Map<String, Entry> found = new HashMap<>();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (!f.isFile() || signedPsbtPattern.matcher(f.getName()).matches()) {
+                    continue;
+                }
+                Entry entry = entries.get(f.getPath());
+                if (entry == null || !entry.isSameVersion(f)) {
+                    entry = new Entry(f, readFormat(f));
+                }
+                found.put(f.getPath(), entry);
+                if (entry.format != Format.NONE) {
+                    result.add(entry);
+                }
+            }
+        }
+        entries.clear();
+        entries.putAll(found);
+        result.sort((a, b) -> a.name.compareTo(b.name));
+        lastScan = Collections.unmodifiableList(result);
+        return lastScan;
+    }
+
+    /**
+     * Parses the entries missing a summary for this wallet on the parse thread, the most recent
+     * file first, and keeps the content of that one.
+     *
+     * @param masterFingerprint the wallet's master fingerprint, outputs derived from it are change
+     * @param listener          called on the parse thread after each new summary
+     */
+    void summarize(@NonNull List<Entry> scanned, boolean isMainNet, @NonNull String masterFingerprint,
+                   @NonNull Runnable listener) {
+        List<Entry> pending = new ArrayList<>(scanned);
+        pending.sort((a, b) -> Long.compare(b.lastModified, a.lastModified));
+        parseExecutor.execute(() -> {
+            PsbtDecoder decoder = new PsbtDecoder(isMainNet);
+            for (int i = 0; i < pending.size(); i++) {
+                Entry entry = pending.get(i);
+                byte[] content = null;
+                if (i == 0 && !isPreloaded(entry)) {
+                    content = FileUtils.bufferlize(entry.file);
+                    setPreloaded(entry, toBase64(entry.format, content));
+                }
+                if (entry.summary != null && entry.summary.isFor(masterFingerprint)) {
+                    continue;
+                }
+                if (content == null) {
+                    content = FileUtils.bufferlize(entry.file);
+                }
+                entry.summary = Summary.of(decoder, entry.format, content, masterFingerprint);
+                listener.run();
+            }
+        });
+    }
+
+    /**
+     * @return the base64 psbt of the entry, null if the file is gone or not a psbt
+     */
+    @WorkerThread
+    @Nullable
+    String load(@NonNull Entry entry) {
+        synchronized (this) {
+            if (entry == preloaded && preloadedBase64 != null && entry.isSameVersion(entry.file)) {
+                return preloadedBase64;
+            }
+        }
+        return toBase64(entry.format, FileUtils.bufferlize(entry.file));
+    }
+
+    private synchronized boolean isPreloaded(Entry entry) {
+        return preloaded == entry && preloadedBase64 != null;
+    }
+
+    private synchronized void setPreloaded(Entry entry, String base64) {
+        preloaded = entry;
+        preloadedBase64 = base64;
+    }
+
+    @Nullable
+    private static String toBase64(Format format, @Nullable byte[] content) {
+        if (content == null) {
+            return null;
+        }
+        switch (format) {
+            case BASE64:
+                return new String(content, StandardCharsets.US_ASCII).trim();
+            case BINARY:
+                return Base64.toBase64String(content);
+            default:
+                return null;
+        }
+    }
+
+    private static Format readFormat(File file) {
+        byte[] head = new byte[Math.max(MAGIC.length, BASE64_MAGIC.length)];
+        int length = 0;
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while (length < head.length && (read = in.read(head, length, head.length - length)) > 0) {
+                length += read;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "read " + file.getName() + " failed", e);
+            return Format.NONE;
+        }
+        if (length >= MAGIC.length && Arrays.equals(Arrays.copyOf(head, MAGIC.length), MAGIC)) {
+            return Format.BINARY;
+        }
+        if (length >= BASE64_MAGIC.length
+                && Arrays.equals(Arrays.copyOf(head, BASE64_MAGIC.length), BASE64_MAGIC)) {
+            return Format.BASE64;
+        }
+        return Format.NONE;
+    }
+
+    enum Format {
+        NONE, BINARY, BASE64
+    }
+
+    static final class Entry {
+        final File file;
+        final String name;
+        final long size;
+        final long lastModified;
+        final Format format;
+        // written on the parse thread, again when the wallet changes
+        volatile Summary summary;
+
+        private Entry(File file, Format format) {
+            this.file = file;
+            this.name = file.getName();
+            this.size = file.length();
+            this.lastModified = file.lastModified();
+            this.format = format;
+        }
+
+        boolean isSameVersion(File f) {
+            return f.length() == size && f.lastModified() == lastModified;
+        }
+    }
+
+    static final class Summary {
+        static final Summary INVALID = new Summary(0, 0, 0, -1, "");
+
+        final int inputs;
+        final int outputs;
+        // satoshis sent to outputs that are not change
+        final long amount;
+        // satoshis, -1 when an input misses its utxo
+        final long fee;
+        // the wallet the change outputs were matched against
+        private final String masterFingerprint;
+
+        private Summary(int inputs, int outputs, long amount, long fee, String masterFingerprint) {
+            this.inputs = inputs;
+            this.outputs = outputs;
+            this.amount = amount;
+            this.fee = fee;
+            this.masterFingerprint = masterFingerprint;
+        }
+
+        boolean isValid() {
+            return this != INVALID;
+        }
+
+        boolean isFor(String masterFingerprint) {
+            return this == INVALID || this.masterFingerprint.equalsIgnoreCase(masterFingerprint);
+        }
+
+        /**
+         * Outputs count as change only if one of their derivations starts at the wallet's
+         * master fingerprint, in either byte order as the confirm view models accept it.
+         */
+        static Summary of(PsbtDecoder decoder, Format format, @Nullable byte[] content,
+                          String masterFingerprint) {
+            if (content == null) {
+                return INVALID;
+            }
+            try {
+                Psbt psbt = format == Format.BASE64
+                        ? decoder.decode(new String(content, StandardCharsets.US_ASCII))
+                        : decoder.decode(content);
+                long in = 0;
+                boolean allValues = true;
+                for (Psbt.Input input : psbt.getInputs()) {
+                    allValues &= input.getValue() > 0;
+                    in += input.getValue();
+                }
+                long out = 0;
+                long amount = 0;
+                for (Psbt.Output output : psbt.getOutputs()) {
+                    out += output.getValue();
+                    if (!isChange(output, masterFingerprint)) {
+                        amount += output.getValue();
+                    }
+                }
+                return new Summary(psbt.getInputs().size(), psbt.getOutputs().size(),
+                        amount, allValues ? in - out : -1, masterFingerprint);
+            } catch (InvalidTransactionException | RuntimeException e) {
+                Log.w(TAG, "parse psbt failed", e);
+                return INVALID;
+            }
+        }
+
+        private static boolean isChange(Psbt.Output output, String masterFingerprint) {
+            if (output.getHdPath() == null || masterFingerprint.isEmpty()) {
+                return false;
+            }
+            for (Psbt.Bip32Derivation derivation : output.getHdPath()) {
+                String fingerprint = derivation.getMasterFingerprint();
+                if (fingerprint.equalsIgnoreCase(masterFingerprint)
+                        || Util.reverseHex(fingerprint).equalsIgnoreCase(masterFingerprint)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
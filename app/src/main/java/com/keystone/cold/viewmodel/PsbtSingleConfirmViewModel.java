@@ -11,6 +11,7 @@ import com.keystone.coinlib.Util;
 import com.keystone.coinlib.coins.AbsTx;
 import com.keystone.coinlib.coins.BTC.Btc;
 import com.keystone.coinlib.coins.BTC.BtcImpl;
+import com.keystone.coinlib.coins.BTC.BtcTxData;
 import com.keystone.coinlib.coins.BTC.Deriver;
 import com.keystone.coinlib.coins.BTC.UtxoTx;
 import com.keystone.coinlib.exception.FingerPrintNotMatchException;
@@ -42,7 +43,6 @@ import org.json.JSONObject;
 import java.text.NumberFormat;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.stream.Stream;
 
@@ -208,17 +208,13 @@ public class PsbtSingleConfirmViewModel extends ParsePsbtViewModel {
         AppExecutors.getInstance().diskIO().execute(() -> {
             String inputs = getFromAddress();
             String outputs = getToAddress();
-            List<TxEntity> txs = mRepository.loadAllTxSync(Utilities.currentCoin(getApplication()).coinId());
-            for (TxEntity tx : txs) {
-                if (inputs.equals(tx.getFrom()) && outputs.equals(tx.getTo())) {
-                    feeAttachCheckingResult.postValue(DUPLICATE_TX);
-                    break;
-                } else if (outputs.equals(tx.getTo())) {
-                    feeAttachCheckingResult.postValue(SAME_OUTPUTS);
-                    break;
-                } else {
-                    feeAttachCheckingResult.postValue(NORMAL);
-                }
+            String coinId = Utilities.currentCoin(getApplication()).coinId();
+            if (mRepository.hasTx(coinId, inputs, outputs)) {
+                feeAttachCheckingResult.postValue(DUPLICATE_TX);
+            } else if (mRepository.hasTxTo(coinId, outputs)) {
+                feeAttachCheckingResult.postValue(SAME_OUTPUTS);
+            } else {
+                feeAttachCheckingResult.postValue(NORMAL);
             }
         });
     }
@@ -228,7 +224,7 @@ public class PsbtSingleConfirmViewModel extends ParsePsbtViewModel {
         if (changeAddressInfoList == null || changeAddressInfoList.isEmpty()) {
             return;
         }
-        Deriver deriver = new Deriver(isMainNet);
+        Deriver deriver = Deriver.get(isMainNet);
         for (UtxoTx.ChangeAddressInfo changeAddressInfo : changeAddressInfoList) {
             String hdPath = changeAddressInfo.hdPath;
             String address = changeAddressInfo.address;
@@ -306,21 +302,19 @@ public class PsbtSingleConfirmViewModel extends ParsePsbtViewModel {
         try {
             if (transaction instanceof UtxoTx) {
                 JSONArray inputsClone = new JSONArray();
-                JSONArray inputs = ((UtxoTx) transaction).getInputs();
 
                 CoinEntity coinEntity = mRepository.loadCoinSync(Coins.coinIdFromCoinCode(transaction.getCoinCode()));
                 AccountEntity accountEntity =
                         mRepository.loadAccountsByPath(coinEntity.getId(), getAccount(getApplication()).getPath());
 
-                for (int i = 0; i < inputs.length(); i++) {
-                    JSONObject input = inputs.getJSONObject(i);
-                    long value = input.getJSONObject("utxo").getLong("value");
-                    String hdpath = input.getString("ownerKeyPath");
+                for (BtcTxData.Input input : ((UtxoTx) transaction).getTxData().getInputs()) {
+                    long value = input.getValue();
+                    String hdpath = input.getOwnerKeyPath();
                     AddressIndex addressIndex = CoinPath.parsePath(hdpath);
                     int index = addressIndex.getValue();
                     int change = addressIndex.getParent().getValue();
 
-                    String from = new Deriver(isMainNet).derive(accountEntity.getExPub()
+                    String from = Deriver.get(isMainNet).derive(accountEntity.getExPub()
                             , change, index, getAddressType(accountEntity));
                     inputsClone.put(new JSONObject().put("value", value)
                             .put("address", from));
@@ -375,22 +369,7 @@ public class PsbtSingleConfirmViewModel extends ParsePsbtViewModel {
         AccountEntity accountEntity = getAccountEntityByPath(accountHdPath, coin);
         if (accountEntity == null) return;
 
-        List<AddressEntity> addressEntities = mRepository.loadAddressSync(coin.getCoinId());
-        Optional<AddressEntity> addressEntityOptional = addressEntities
-                .stream()
-                .filter(addressEntity -> addressEntity.getPath()
-                        .startsWith(accountEntity.getHdPath() + "/" + 0))
-                .max((o1, o2) -> o1.getPath().compareTo(o2.getPath()));
-
-        int index = -1;
-        if (addressEntityOptional.isPresent()) {
-            try {
-                AddressIndex addressIndex = CoinPath.parsePath(addressEntityOptional.get().getPath());
-                index = addressIndex.getValue();
-            } catch (InvalidPathException e) {
-                e.printStackTrace();
-            }
-        }
+        int index = mRepository.loadMaxAddressIndex(coin.getCoinId(), accountEntity.getHdPath(), 0);
 
         if (index < pathIndex) {
             final CountDownLatch mLatch = new CountDownLatch(1);
@@ -20,51 +20,133 @@ package com.keystone.cold.viewmodel;
 import android.app.Application;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.keystone.coinlib.utils.Coins;
 import com.keystone.cold.AppExecutors;
+import com.keystone.cold.R;
+import com.keystone.cold.Utilities;
+import com.keystone.cold.callables.GetMasterFingerprintCallable;
 import com.keystone.cold.update.utils.Storage;
 
-import java.io.File;
+import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 
 public class PsbtViewModel extends AndroidViewModel {
-    private static final Pattern signedPsbtPattern = Pattern.compile("^signed_[0-9a-fA-F]{8}.psbt$");
+    private final PsbtInbox inbox = PsbtInbox.getInstance();
+    private volatile List<PsbtInbox.Entry> entries = Collections.emptyList();
 
     public PsbtViewModel(@NonNull Application application) {
         super(application);
     }
 
-    private boolean isSignedPsbt(String fileName) {
-        Matcher matcher = signedPsbtPattern.matcher(fileName);
-        return matcher.matches();
-    }
-
-    public LiveData<List<String>> loadUnsignPsbt() {
-        MutableLiveData<List<String>> result = new MutableLiveData<>();
+    /**
+     * Posts the files of the last scan right away, then the files on the sd card, then again
+     * each time the summary of one of them is parsed.
+     */
+    public LiveData<List<PsbtFile>> loadUnsignPsbt() {
+        MutableLiveData<List<PsbtFile>> result = new MutableLiveData<>();
+        List<PsbtInbox.Entry> lastScan = inbox.getLastScan();
+        if (!lastScan.isEmpty()) {
+            entries = lastScan;
+            result.setValue(toPsbtFiles(lastScan));
+        }
         AppExecutors.getInstance().diskIO().execute(() -> {
-            List<String> fileList = new ArrayList<>();
+            List<PsbtInbox.Entry> scanned = Collections.emptyList();
             Storage storage = Storage.createByEnvironment();
             if (storage != null) {
-                File[] files = storage.getExternalDir().listFiles();
-                if (files != null) {
-                    for (File f : files) {
-                        if (f.getName().endsWith(".psbt")
-                                && !isSignedPsbt(f.getName())) {
-                            fileList.add(f.getName());
-                        }
-                    }
-                }
+                scanned = inbox.scan(storage.getExternalDir());
             }
-            fileList.sort(String::compareTo);
-            result.postValue(fileList);
+            entries = scanned;
+            result.postValue(toPsbtFiles(scanned));
+            List<PsbtInbox.Entry> files = scanned;
+            inbox.summarize(scanned, Utilities.isMainNet(getApplication()),
+                    new GetMasterFingerprintCallable().call(),
+                    () -> result.postValue(toPsbtFiles(files)));
         });
         return result;
     }
+
+    /**
+     * Reads the psbt off the ui thread, posts null if the file is gone or not a valid psbt.
+     */
+    public LiveData<String> loadPsbtBase64(String fileName) {
+        MutableLiveData<String> result = new MutableLiveData<>();
+        PsbtInbox.Entry entry = findEntry(fileName);
+        if (entry == null) {
+            result.setValue(null);
+            return result;
+        }
+        AppExecutors.getInstance().diskIO().execute(() -> result.postValue(inbox.load(entry)));
+        return result;
+    }
+
+    @Nullable
+    private PsbtInbox.Entry findEntry(String fileName) {
+        for (PsbtInbox.Entry entry : entries) {
+            if (entry.name.equals(fileName)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private List<PsbtFile> toPsbtFiles(List<PsbtInbox.Entry> scanned) {
+        List<PsbtFile> files = new ArrayList<>(scanned.size());
+        for (PsbtInbox.Entry entry : scanned) {
+            files.add(new PsbtFile(entry.name, formatSummary(entry.summary)));
+        }
+        return files;
+    }
+
+    @Nullable
+    private String formatSummary(@Nullable PsbtInbox.Summary summary) {
+        if (summary == null || !summary.isValid()) {
+            return null;
+        }
+        String unit = Utilities.isMainNet(getApplication())
+                ? Coins.BTC.coinCode() : Coins.XTN.coinCode();
+        if (summary.fee < 0) {
+            return getApplication().getString(R.string.psbt_file_summary_no_fee,
+                    summary.inputs, summary.outputs, formatSatoshi(summary.amount, unit));
+        }
+        return getApplication().getString(R.string.psbt_file_summary,
+                summary.inputs, summary.outputs, formatSatoshi(summary.amount, unit),
+                formatSatoshi(summary.fee, unit));
+    }
+
+    private static String formatSatoshi(long satoshi, String unit) {
+        double value = satoshi / Math.pow(10, 8);
+        NumberFormat nf = NumberFormat.getInstance();
+        nf.setMaximumFractionDigits(20);
+        return nf.format(value) + " " + unit;
+    }
+
+    public static class PsbtFile {
+        private final String name;
+        private final String summary;
+
+        PsbtFile(String name, String summary) {
+            this.name = name;
+            this.summary = summary;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return inputs, outputs, amount and fee of the psbt, null until parsed or if invalid
+         */
+        @Nullable
+        public String getSummary() {
+            return summary;
+        }
+    }
 }
@@ -36,7 +36,6 @@ import com.keystone.coinlib.utils.Coins;
 import com.keystone.cold.R;
 import com.keystone.cold.Utilities;
 import com.keystone.cold.callables.GetMasterFingerprintCallable;
-import com.keystone.cold.protocol.ZipUtil;
 import com.keystone.cold.protocol.parser.ProtoParser;
 import com.keystone.cold.ui.fragment.main.scan.legacy.QRCodeScanFragment;
 import com.keystone.cold.ui.fragment.main.QrScanPurpose;
@@ -124,19 +123,20 @@ public class QrScanViewModel extends AndroidViewModel {
                 } else {
                     throw new UnknowQrCodeException("not support bc32 qrcode in current wallet mode");
                 }
-            } else if (tryDecodeAsJson(hex) != null) {
-                JSONObject object = tryDecodeAsJson(hex);
-                if (checkWebAuth(object)) return;
-            } else if (decodeAsProtobuf(hex) != null) {
-                JSONObject object = decodeAsProtobuf(hex);
-
-                if (wallet == WatchWallet.KEYSTONE) {
-                    decodeAndProcess(object);
+            } else {
+                byte[] bytes = Hex.decode(hex);
+                JSONObject object = tryDecodeAsJson(bytes);
+                if (object != null) {
+                    if (checkWebAuth(object)) return;
+                } else if ((object = decodeAsProtobuf(bytes)) != null) {
+                    if (wallet == WatchWallet.KEYSTONE) {
+                        decodeAndProcess(object);
+                    } else {
+                        throw new UnknowQrCodeException("not support bc32 qrcode in current wallet mode");
+                    }
                 } else {
                     throw new UnknowQrCodeException("not support bc32 qrcode in current wallet mode");
                 }
-            } else {
-                throw new UnknowQrCodeException("not support bc32 qrcode in current wallet mode");
             }
         }
     }
@@ -145,14 +145,13 @@ public class QrScanViewModel extends AndroidViewModel {
         return hex.startsWith(Hex.toHexString("psbt".getBytes()));
     }
 
-    private JSONObject decodeAsProtobuf(String hex) {
-        hex = ZipUtil.unzip(hex);
-        return new ProtoParser(Hex.decode(hex)).parseToJson();
+    private JSONObject decodeAsProtobuf(byte[] gzipped) {
+        return new ProtoParser(gzipped, true).parseToJson();
     }
 
-    private JSONObject tryDecodeAsJson(String hex) {
+    private JSONObject tryDecodeAsJson(byte[] bytes) {
         try {
-            return new JSONObject(new String(Hex.decode(hex)));
+            return new JSONObject(new String(bytes));
         } catch (Exception ignored) {
         }
         return null;
@@ -26,7 +26,6 @@ import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
-import com.googlecode.protobuf.format.JsonFormat;
 import com.keystone.coinlib.ExtendPubkeyFormat;
 import com.keystone.coinlib.Util;
 import com.keystone.coinlib.accounts.MultiSig;
@@ -34,6 +33,7 @@ import com.keystone.coinlib.coins.AbsCoin;
 import com.keystone.coinlib.coins.AbsTx;
 import com.keystone.coinlib.coins.BTC.Btc;
 import com.keystone.coinlib.coins.BTC.BtcImpl;
+import com.keystone.coinlib.coins.BTC.BtcTxData;
 import com.keystone.coinlib.coins.BTC.Deriver;
 import com.keystone.coinlib.coins.BTC.UtxoTx;
 import com.keystone.coinlib.exception.InvalidPathException;
@@ -64,6 +64,7 @@ import com.keystone.cold.db.entity.MultiSigWalletEntity;
 import com.keystone.cold.db.entity.TxEntity;
 import com.keystone.cold.encryption.ChipSigner;
 import com.keystone.cold.protobuf.TransactionProtoc;
+import com.keystone.cold.protocol.parser.ProtoJson;
 import com.keystone.cold.ui.views.AuthenticateModal;
 import com.keystone.cold.util.HashUtil;
 import com.keystone.cold.viewmodel.exceptions.NoMatchedMultisigWalletException;
@@ -225,17 +226,13 @@ public class TxConfirmViewModel extends AndroidViewModel {
         AppExecutors.getInstance().diskIO().execute(() -> {
             String inputs = txEntity.getFrom();
             String outputs = txEntity.getTo();
-            List<TxEntity> txs = mRepository.loadAllTxSync(Utilities.currentCoin(getApplication()).coinId());
-            for (TxEntity tx : txs) {
-                if (inputs.equals(tx.getFrom()) && outputs.equals(tx.getTo())) {
-                    feeAttachCheckingResult.postValue(DUPLICATE_TX);
-                    break;
-                } else if (outputs.equals(tx.getTo())) {
-                    feeAttachCheckingResult.postValue(SAME_OUTPUTS);
-                    break;
-                } else {
-                    feeAttachCheckingResult.postValue(NORMAL);
-                }
+            String coinId = Utilities.currentCoin(getApplication()).coinId();
+            if (mRepository.hasTx(coinId, inputs, outputs)) {
+                feeAttachCheckingResult.postValue(DUPLICATE_TX);
+            } else if (mRepository.hasTxTo(coinId, outputs)) {
+                feeAttachCheckingResult.postValue(SAME_OUTPUTS);
+            } else {
+                feeAttachCheckingResult.postValue(NORMAL);
             }
         });
     }
@@ -367,8 +364,7 @@ public class TxConfirmViewModel extends AndroidViewModel {
                 .setSignId(isMultisig ? "PSBT_MULTISIG" : signId)
                 .setTimestamp(generateAutoIncreaseId())
                 .setDecimal(8);
-        String signTransaction = new JsonFormat().printToString(builder.build());
-        JSONObject signTx = new JSONObject(signTransaction);
+        JSONObject signTx = ProtoJson.toJson(builder.build());
         signTx.put(isMainNet ? "btcTx" : "xtnTx", adaptTx);
         return signTx;
     }
@@ -390,7 +386,7 @@ public class TxConfirmViewModel extends AndroidViewModel {
         if (changeAddressInfoList == null || changeAddressInfoList.isEmpty()) {
             return true;
         }
-        Deriver deriver = new Deriver(Utilities.isMainNet(getApplication()));
+        Deriver deriver = Deriver.get(Utilities.isMainNet(getApplication()));
         for (UtxoTx.ChangeAddressInfo changeAddressInfo : changeAddressInfoList) {
             String hdPath = changeAddressInfo.hdPath;
             String address = changeAddressInfo.address;
@@ -454,9 +450,13 @@ public class TxConfirmViewModel extends AndroidViewModel {
         String to = transaction.getTo();
 
         if (transaction instanceof UtxoTx) {
-            JSONArray outputs = ((UtxoTx) transaction).getOutputs();
-            if (outputs != null) {
-                return outputs.toString();
+            BtcTxData txData = ((UtxoTx) transaction).getTxData();
+            if (!txData.getOutputs().isEmpty()) {
+                try {
+                    return txData.outputsToJson().toString();
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                }
             }
         }
 
@@ -474,12 +474,10 @@ public class TxConfirmViewModel extends AndroidViewModel {
         try {
             if (transaction instanceof UtxoTx) {
                 JSONArray inputsClone = new JSONArray();
-                JSONArray inputs = ((UtxoTx) transaction).getInputs();
 
-                for (int i = 0; i < inputs.length(); i++) {
-                    JSONObject input = inputs.getJSONObject(i);
-                    long value = input.getJSONObject("utxo").getLong("value");
-                    String hdpath = input.getString("ownerKeyPath");
+                for (BtcTxData.Input input : ((UtxoTx) transaction).getTxData().getInputs()) {
+                    long value = input.getValue();
+                    String hdpath = input.getOwnerKeyPath();
                     hdpath = hdpath.replace(wallet.getExPubPath() + "/", "");
                     String[] index = hdpath.split("/");
                     String from = wallet.deriveAddress(
@@ -511,21 +509,19 @@ public class TxConfirmViewModel extends AndroidViewModel {
         try {
             if (transaction instanceof UtxoTx) {
                 JSONArray inputsClone = new JSONArray();
-                JSONArray inputs = ((UtxoTx) transaction).getInputs();
 
                 CoinEntity coinEntity = mRepository.loadCoinSync(Coins.coinIdFromCoinCode(transaction.getCoinCode()));
                 AccountEntity accountEntity =
                         mRepository.loadAccountsByPath(coinEntity.getId(), getAccount(getApplication()).getPath());
 
-                for (int i = 0; i < inputs.length(); i++) {
-                    JSONObject input = inputs.getJSONObject(i);
-                    long value = input.getJSONObject("utxo").getLong("value");
-                    String hdpath = input.getString("ownerKeyPath");
+                for (BtcTxData.Input input : ((UtxoTx) transaction).getTxData().getInputs()) {
+                    long value = input.getValue();
+                    String hdpath = input.getOwnerKeyPath();
                     AddressIndex addressIndex = CoinPath.parsePath(hdpath);
                     int index = addressIndex.getValue();
                     int change = addressIndex.getParent().getValue();
 
-                    String from = new Deriver(Utilities.isMainNet(getApplication())).derive(accountEntity.getExPub()
+                    String from = Deriver.get(Utilities.isMainNet(getApplication())).derive(accountEntity.getExPub()
                             , change, index, getAddressType(accountEntity));
                     inputsClone.put(new JSONObject().put("value", value)
                             .put("address", from));
@@ -596,12 +592,7 @@ public class TxConfirmViewModel extends AndroidViewModel {
 
         MultiSigAddressEntity entity = mRepository.loadAllMultiSigAddress(wallet.getWalletFingerPrint(), maxIndexHdPath);
         if (entity == null) {
-            List<MultiSigAddressEntity> address = mRepository.loadAllMultiSigAddressSync(wallet.getWalletFingerPrint());
-            Optional<MultiSigAddressEntity> optional = address.stream()
-                    .filter(addressEntity -> addressEntity.getPath()
-                            .startsWith(wallet.getExPubPath() + "/" + 0))
-                    .max((o1, o2) -> o1.getIndex() - o2.getIndex());
-            int index = optional.map(MultiSigAddressEntity::getIndex).orElse(-1);
+            int index = mRepository.loadMaxMultiSigAddressIndex(wallet.getWalletFingerPrint(), 0);
             if (index < max) {
                 final CountDownLatch mLatch = new CountDownLatch(1);
                 addingAddress.postValue(true);
@@ -637,22 +628,7 @@ public class TxConfirmViewModel extends AndroidViewModel {
         AccountEntity accountEntity = getAccountEntityByPath(accountHdPath, coin);
         if (accountEntity == null) return;
 
-        List<AddressEntity> addressEntities = mRepository.loadAddressSync(coin.getCoinId());
-        Optional<AddressEntity> addressEntityOptional = addressEntities
-                .stream()
-                .filter(addressEntity -> addressEntity.getPath()
-                        .startsWith(accountEntity.getHdPath() + "/" + 0))
-                .max((o1, o2) -> o1.getPath().compareTo(o2.getPath()));
-
-        int index = -1;
-        if (addressEntityOptional.isPresent()) {
-            try {
-                AddressIndex addressIndex = CoinPath.parsePath(addressEntityOptional.get().getPath());
-                index = addressIndex.getValue();
-            } catch (InvalidPathException e) {
-                e.printStackTrace();
-            }
-        }
+        int index = mRepository.loadMaxAddressIndex(coin.getCoinId(), accountEntity.getHdPath(), 0);
 
         if (index < pathIndex) {
             final CountDownLatch mLatch = new CountDownLatch(1);
@@ -855,11 +831,11 @@ public class TxConfirmViewModel extends AndroidViewModel {
         }
 
         if (transaction.isMultisig() && mode.equals(MultiSigMode.LEGACY)) {
+            String expub = new GetExtendedPublicKeyCallable(wallet.getExPubPath()).call();
             for (int i = 0; i < distinctPaths.length; i++) {
                 String path = distinctPaths[i].replace(wallet.getExPubPath() + "/", "");
                 String[] index = path.split("/");
                 if (index.length != 2) return null;
-                String expub = new GetExtendedPublicKeyCallable(wallet.getExPubPath()).call();
                 String pubKey = Util.getPublicKeyHex(
                         ExtendPubkeyFormat.convertExtendPubkey(expub, ExtendPubkeyFormat.xpub),
                         Integer.parseInt(index[0]), Integer.parseInt(index[1]));
@@ -20,6 +20,7 @@ package com.keystone.cold.viewmodel;
 import android.annotation.SuppressLint;
 import android.app.Application;
 import android.content.Context;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
@@ -37,13 +38,17 @@ import com.keystone.cold.update.utils.Storage;
 
 import org.spongycastle.util.encoders.Hex;
 
+import java.util.Locale;
+
 public class UpdatingViewModel extends AndroidViewModel {
+    private static final String TAG = "Vault.UpdatingViewModel";
 
     @SuppressLint("StaticFieldLeak")
     private final Context mContext;
 
     private final MutableLiveData<UpdateManifest> updateManifest = new MutableLiveData<>();
     private final MutableLiveData<UpdatingState> updatingState = new MutableLiveData<>();
+    private final MutableLiveData<Integer> updatingProgress = new MutableLiveData<>();
 
     public static final int MIN_BATTERY_FOR_UPDATE = 70;
 
@@ -55,6 +60,13 @@ public class UpdatingViewModel extends AndroidViewModel {
         return updatingState;
     }
 
+    /**
+     * @return percent of the secure element firmware acknowledged so far
+     */
+    public MutableLiveData<Integer> getUpdatingProgress() {
+        return updatingProgress;
+    }
+
     public UpdatingViewModel(@NonNull Application application) {
         super(application);
         mContext = application;
@@ -108,7 +120,18 @@ public class UpdatingViewModel extends AndroidViewModel {
             }
             try {
                 updatingState.postValue(UpdatingState.UPDATING);
-                final boolean success = new Updating(storage, mContext, manifest, password).call();
+                final int[] lastPercent = {-1};
+                final boolean success = new Updating(storage, mContext, manifest, password,
+                        (ackedPages, pageCount, pagesPerSecond) -> {
+                            final int percent = ackedPages * 100 / pageCount;
+                            if (percent == lastPercent[0]) {
+                                return;
+                            }
+                            lastPercent[0] = percent;
+                            Log.i(TAG, String.format(Locale.US, "firmware %d/%d pages, %.1f pages/s",
+                                    ackedPages, pageCount, pagesPerSecond));
+                            updatingProgress.postValue(percent);
+                        }).call();
 
                 if (success) {
                     updatingState.postValue(UpdatingState.UPDATING_SUCCESS);
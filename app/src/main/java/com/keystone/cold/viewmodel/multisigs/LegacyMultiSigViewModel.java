@@ -25,12 +25,14 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.paging.LivePagedListBuilder;
+import androidx.paging.PagedList;
 
 import com.keystone.coinlib.ExtendPubkeyFormat;
 import com.keystone.coinlib.accounts.Account;
 import com.keystone.coinlib.accounts.ExtendedPublicKeyVersion;
 import com.keystone.coinlib.accounts.MultiSig;
-import com.keystone.coinlib.coins.BTC.Deriver;
+import com.keystone.coinlib.coins.BTC.AddressGenerator;
 import com.keystone.coinlib.utils.B58;
 import com.keystone.cold.AppExecutors;
 import com.keystone.cold.DataRepository;
@@ -40,7 +42,6 @@ import com.keystone.cold.Utilities;
 import com.keystone.cold.db.entity.MultiSigAddressEntity;
 import com.keystone.cold.db.entity.MultiSigWalletEntity;
 import com.keystone.cold.db.entity.TxEntity;
-import com.keystone.cold.update.utils.FileUtils;
 import com.keystone.cold.update.utils.Storage;
 import com.keystone.cold.util.HashUtil;
 import com.keystone.cold.viewmodel.exceptions.XfpNotMatchException;
@@ -59,7 +60,6 @@ import org.spongycastle.util.encoders.Hex;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
@@ -69,11 +69,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static com.keystone.coinlib.Util.getExpubFingerprint;
+import static com.keystone.cold.viewmodel.CoinListViewModel.TX_PAGE_CONFIG;
 import static com.keystone.coinlib.accounts.Account.*;
 
 public class LegacyMultiSigViewModel extends ViewModelBase {
@@ -193,8 +193,9 @@ public class LegacyMultiSigViewModel extends ViewModelBase {
         return repo.loadAddressForWallet(walletFingerprint);
     }
 
-    public LiveData<List<TxEntity>> loadTxs(String walletFingerprint) {
-        return repo.loadMultisigTxs(walletFingerprint);
+    public LiveData<PagedList<TxEntity>> loadTxs(String walletFingerprint) {
+        return new LivePagedListBuilder<>(repo.loadMultisigTxs(walletFingerprint), TX_PAGE_CONFIG)
+                .build();
     }
 
     public LiveData<MultiSigWalletEntity> getCurrentWallet() {
@@ -540,23 +541,7 @@ public class LegacyMultiSigViewModel extends ViewModelBase {
             Map<String, JSONObject> fileList = new HashMap<>();
             Storage storage = Storage.createByEnvironment();
             if (storage != null && storage.getExternalDir() != null) {
-                File[] files = storage.getExternalDir().listFiles();
-                if (files != null) {
-                    for (File f : files) {
-                        if (f.getName().endsWith(".txt")) {
-                            JSONObject object = decodeColdCardWalletFile(FileUtils.readString(f));
-                            if (object != null) {
-                                fileList.put(f.getName(), object);
-                            }
-                        } else if (f.getName().endsWith(".json")) {
-                            String fileContent = FileUtils.readString(f);
-                            JSONObject object = decodeCaravanWalletFile(fileContent);
-                            if (object != null) {
-                                fileList.put(f.getName(), object);
-                            }
-                        }
-                    }
-                }
+                fileList = WalletFileDiscovery.getInstance().discover(storage.getExternalDir());
             }
             result.postValue(fileList);
         });
@@ -661,15 +646,7 @@ public class LegacyMultiSigViewModel extends ViewModelBase {
         protected Void doInBackground(Integer... count) {
             boolean isMainNet = Utilities.isMainNet(MainApplication.getApplication());
             MultiSigWalletEntity wallet = repo.loadMultisigWallet(walletFingerprint);
-            List<MultiSigAddressEntity> address = repo.loadAddressForWalletSync(walletFingerprint);
-            Optional<MultiSigAddressEntity> optional = address.stream()
-                    .filter(addressEntity -> addressEntity.getPath()
-                            .startsWith(wallet.getExPubPath() + "/" + changeIndex))
-                    .max((o1, o2) -> o1.getIndex() - o2.getIndex());
-            int index = -1;
-            if (optional.isPresent()) {
-                index = optional.get().getIndex();
-            }
+            int index = repo.loadMaxMultiSigAddressIndex(walletFingerprint, changeIndex);
             List<MultiSigAddressEntity> entities = new ArrayList<>();
             int addressCount = index + 1;
             List<String> xpubList = new ArrayList<>();
@@ -682,14 +659,13 @@ public class LegacyMultiSigViewModel extends ViewModelBase {
                 e.printStackTrace();
             }
 
-            Deriver deriver = new Deriver(isMainNet);
+            List<String> addresses = new AddressGenerator(isMainNet).deriveMultiSig(wallet.getThreshold(),
+                    xpubList, changeIndex, addressCount, count[0],
+                    MultiSig.ofPath(wallet.getExPubPath()).get(0));
             for (int i = 0; i < count[0]; i++) {
                 MultiSigAddressEntity multisigAddress = new MultiSigAddressEntity();
-                String addr = deriver.deriveMultiSigAddress(wallet.getThreshold(),
-                        xpubList, new int[]{changeIndex, addressCount + i},
-                        MultiSig.ofPath(wallet.getExPubPath()).get(0));
                 multisigAddress.setPath(wallet.getExPubPath() + "/" + changeIndex + "/" + (addressCount + i));
-                multisigAddress.setAddress(addr);
+                multisigAddress.setAddress(addresses.get(i));
                 multisigAddress.setIndex(i + addressCount);
                 multisigAddress.setName("BTC-" + (i + addressCount));
                 multisigAddress.setWalletFingerPrint(walletFingerprint);
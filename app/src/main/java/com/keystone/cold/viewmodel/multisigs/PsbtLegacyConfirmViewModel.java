@@ -12,6 +12,7 @@ import com.keystone.coinlib.Util;
 import com.keystone.coinlib.coins.AbsTx;
 import com.keystone.coinlib.coins.BTC.Btc;
 import com.keystone.coinlib.coins.BTC.BtcImpl;
+import com.keystone.coinlib.coins.BTC.BtcTxData;
 import com.keystone.coinlib.coins.BTC.UtxoTx;
 import com.keystone.coinlib.exception.FingerPrintNotMatchException;
 import com.keystone.coinlib.exception.InvalidTransactionException;
@@ -43,7 +44,6 @@ import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -196,11 +196,11 @@ public class PsbtLegacyConfirmViewModel extends ParsePsbtViewModel {
             Log.w(TAG, "authToken null");
             return null;
         }
+        String expub = new GetExtendedPublicKeyCallable(wallet.getExPubPath()).call();
         for (int i = 0; i < distinctPaths.length; i++) {
             String path = distinctPaths[i].replace(wallet.getExPubPath() + "/", "");
             String[] index = path.split("/");
             if (index.length != 2) return null;
-            String expub = new GetExtendedPublicKeyCallable(wallet.getExPubPath()).call();
             String pubKey = Util.getPublicKeyHex(
                     ExtendPubkeyFormat.convertExtendPubkey(expub, ExtendPubkeyFormat.xpub),
                     Integer.parseInt(index[0]), Integer.parseInt(index[1]));
@@ -213,17 +213,13 @@ public class PsbtLegacyConfirmViewModel extends ParsePsbtViewModel {
         AppExecutors.getInstance().diskIO().execute(() -> {
             String inputs = getMultiSigFromAddress();
             String outputs = getToAddress();
-            List<TxEntity> txs = mRepository.loadAllTxSync(Utilities.currentCoin(getApplication()).coinId());
-            for (TxEntity tx : txs) {
-                if (inputs.equals(tx.getFrom()) && outputs.equals(tx.getTo())) {
-                    feeAttachCheckingResult.postValue(DUPLICATE_TX);
-                    break;
-                } else if (outputs.equals(tx.getTo())) {
-                    feeAttachCheckingResult.postValue(SAME_OUTPUTS);
-                    break;
-                } else {
-                    feeAttachCheckingResult.postValue(NORMAL);
-                }
+            String coinId = Utilities.currentCoin(getApplication()).coinId();
+            if (mRepository.hasTx(coinId, inputs, outputs)) {
+                feeAttachCheckingResult.postValue(DUPLICATE_TX);
+            } else if (mRepository.hasTxTo(coinId, outputs)) {
+                feeAttachCheckingResult.postValue(SAME_OUTPUTS);
+            } else {
+                feeAttachCheckingResult.postValue(NORMAL);
             }
         });
     }
@@ -303,12 +299,10 @@ public class PsbtLegacyConfirmViewModel extends ParsePsbtViewModel {
         try {
             if (transaction instanceof UtxoTx) {
                 JSONArray inputsClone = new JSONArray();
-                JSONArray inputs = ((UtxoTx) transaction).getInputs();
 
-                for (int i = 0; i < inputs.length(); i++) {
-                    JSONObject input = inputs.getJSONObject(i);
-                    long value = input.getJSONObject("utxo").getLong("value");
-                    String hdpath = input.getString("ownerKeyPath");
+                for (BtcTxData.Input input : ((UtxoTx) transaction).getTxData().getInputs()) {
+                    long value = input.getValue();
+                    String hdpath = input.getOwnerKeyPath();
                     hdpath = hdpath.replace(wallet.getExPubPath() + "/", "");
                     String[] index = hdpath.split("/");
                     String from = wallet.deriveAddress(
@@ -349,12 +343,7 @@ public class PsbtLegacyConfirmViewModel extends ParsePsbtViewModel {
 
         MultiSigAddressEntity entity = mRepository.loadAllMultiSigAddress(wallet.getWalletFingerPrint(), maxIndexHdPath);
         if (entity == null) {
-            List<MultiSigAddressEntity> address = mRepository.loadAllMultiSigAddressSync(wallet.getWalletFingerPrint());
-            Optional<MultiSigAddressEntity> optional = address.stream()
-                    .filter(addressEntity -> addressEntity.getPath()
-                            .startsWith(wallet.getExPubPath() + "/" + 0))
-                    .max((o1, o2) -> o1.getIndex() - o2.getIndex());
-            int index = optional.map(MultiSigAddressEntity::getIndex).orElse(-1);
+            int index = mRepository.loadMaxMultiSigAddressIndex(wallet.getWalletFingerPrint(), 0);
             if (index < max) {
                 final CountDownLatch mLatch = new CountDownLatch(1);
                 addingAddress.postValue(true);
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.viewmodel.multisigs;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.keystone.cold.util.HashUtil;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.spongycastle.util.encoders.Hex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.keystone.cold.viewmodel.multisigs.LegacyMultiSigViewModel.decodeCaravanWalletFile;
+import static com.keystone.cold.viewmodel.multisigs.LegacyMultiSigViewModel.decodeColdCardWalletFile;
+
+/**
+ * Finds the multisig wallet files of a directory. Files are rejected on their first bytes
+ * when possible, the others are read and decoded on a small pool, and decoded wallets are
+ * cached by the sha256 of the file content so an unchanged file is only decoded once.
+ */
+public final class WalletFileDiscovery {
+    private static final String TAG = "Vault.WalletFileDiscovery";
+    private static final int PARSE_THREADS =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int HEADER_BYTES = 512;
+    // a 15 of 15 wallet file is a few KB, larger files are something else
+    private static final long MAX_FILE_SIZE = 64 * 1024;
+    // cached for contents that are not a wallet
+    private static final String NOT_A_WALLET = "";
+
+    private static final WalletFileDiscovery sInstance = new WalletFileDiscovery();
+
+    private final ExecutorService parsePool = Executors.newFixedThreadPool(PARSE_THREADS);
+    // content hash -> wallet json
+    private final Map<String, String> decoded = new ConcurrentHashMap<>();
+
+    public static WalletFileDiscovery getInstance() {
+        return sInstance;
+    }
+
+    private WalletFileDiscovery() {
+    }
+
+    /**
+     * @return the wallets decoded from the .txt and .json files of the directory, by file name
+     */
+    @WorkerThread
+    @NonNull
+    public Map<String, JSONObject> discover(@Nullable File dir) {
+        Map<String, JSONObject> wallets = new HashMap<>();
+        File[] files = dir == null ? null : dir.listFiles();
+        if (files == null) {
+            return wallets;
+        }
+        List<File> candidates = new ArrayList<>();
+        List<Future<String>> results = new ArrayList<>();
+        for (File f : files) {
+            Type type = Type.of(f.getName());
+            if (type != null && f.isFile() && f.length() <= MAX_FILE_SIZE) {
+                candidates.add(f);
+                results.add(parsePool.submit(() -> decode(f, type)));
+            }
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            try {
+                String wallet = results.get(i).get();
+                if (wallet != null) {
+                    wallets.put(candidates.get(i).getName(), new JSONObject(wallet));
+                }
+            } catch (ExecutionException | JSONException e) {
+                Log.w(TAG, "decode " + candidates.get(i).getName() + " failed", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return wallets;
+    }
+
+    @Nullable
+    private String decode(File file, Type type) throws IOException {
+        byte[] content = read(file, type);
+        if (content == null) {
+            return null;
+        }
+        String hash = type.name() + Hex.toHexString(HashUtil.sha256(content));
+        String wallet = decoded.get(hash);
+        if (wallet == null) {
+            JSONObject object = type == Type.COLDCARD
+                    ? decodeColdCardWalletFile(new String(content, StandardCharsets.UTF_8))
+                    : decodeCaravanWalletFile(new String(content, StandardCharsets.UTF_8));
+            wallet = object == null ? NOT_A_WALLET : object.toString();
+            decoded.put(hash, wallet);
+        }
+        return wallet.isEmpty() ? null : wallet;
+    }
+
+    /**
+     * @return the file content, null if its first bytes rule out a wallet file
+     */
+    @Nullable
+    private static byte[] read(File file, Type type) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[HEADER_BYTES];
+            int read = readFully(in, buffer);
+            if (!type.sniff(buffer, read)) {
+                return null;
+            }
+            do {
+                out.write(buffer, 0, read);
+            } while ((read = in.read(buffer)) > 0);
+            return out.toByteArray();
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        int read;
+        while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) > 0) {
+            length += read;
+        }
+        return length;
+    }
+
+    private enum Type {
+        // Coldcard/Keystone text export, "label: value" lines
+        COLDCARD,
+        // Caravan json export
+        CARAVAN;
+
+        @Nullable
+        static Type of(String fileName) {
+            if (fileName.startsWith(".")) {
+                return null;
+            }
+            if (fileName.endsWith(".txt")) {
+                return COLDCARD;
+            }
+            if (fileName.endsWith(".json")) {
+                return CARAVAN;
+            }
+            return null;
+        }
+
+        boolean sniff(byte[] header, int length) {
+            int start = 0;
+            // utf-8 bom
+            if (length >= 3 && header[0] == (byte) 0xef && header[1] == (byte) 0xbb
+                    && header[2] == (byte) 0xbf) {
+                start = 3;
+            }
+            boolean hasColon = false;
+            for (int i = start; i < length; i++) {
+                if (header[i] == 0) {
+                    return false;
+                }
+                hasColon |= header[i] == ':';
+            }
+            if (this == COLDCARD) {
+                return hasColon;
+            }
+            while (start < length && Character.isWhitespace(header[start])) {
+                start++;
+            }
+            return start < length && header[start] == '{';
+        }
+    }
+}
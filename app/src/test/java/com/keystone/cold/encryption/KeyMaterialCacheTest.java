@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.keystone.cold.encryption;
+
+import android.content.ContextWrapper;
+import android.content.SharedPreferences;
+
+import com.keystone.cold.Utilities;
+import com.keystone.cold.callables.ResetCallable;
+import com.keystone.cold.callables.UpdatePassphraseCallable;
+import com.keystone.cold.callables.WriteMnemonicCallable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.keystone.coinlib.utils.Coins.CURVE.ED25519;
+import static com.keystone.coinlib.utils.Coins.CURVE.SECP256K1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class KeyMaterialCacheTest {
+    private static final String PATH = "M/49'/0'/0'";
+
+    private final KeyMaterialCache mCache = KeyMaterialCache.getInstance();
+    private final AtomicInteger mLoads = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        mCache.invalidate();
+    }
+
+    private Callable<String> loader(String value) {
+        return () -> {
+            mLoads.incrementAndGet();
+            return value;
+        };
+    }
+
+    private String get(String belongTo, String path) {
+        return mCache.get(belongTo, SECP256K1, path, loader("xpub"));
+    }
+
+    @Test
+    public void keyByBelongToCurveAndPath() {
+        assertEquals("xpub", get("main", PATH));
+        assertEquals("xpub", get("main", PATH.toLowerCase()));
+        assertEquals(1, mLoads.get());
+
+        get("vault2", PATH);
+        mCache.get("main", ED25519, PATH, loader("xpub"));
+        get("main", "M/49'/0'/1'");
+        get("main", null);
+        assertEquals(5, mLoads.get());
+
+        get("main", null);
+        assertEquals("master fingerprint is cached under an empty path", 5, mLoads.get());
+    }
+
+    @Test
+    public void failuresAreNotCached() {
+        assertNull(mCache.get("main", SECP256K1, PATH, loader(null)));
+        assertEquals("", mCache.get("main", SECP256K1, PATH, loader("")));
+        assertNull(mCache.get("main", SECP256K1, PATH, () -> {
+            throw new IllegalStateException("secure element busy");
+        }));
+        assertEquals("xpub", get("main", PATH));
+        assertEquals(3, mLoads.get());
+    }
+
+    @Test
+    public void dropValueLoadedAcrossInvalidate() {
+        assertEquals("xpub", mCache.get("main", SECP256K1, PATH, () -> {
+            mLoads.incrementAndGet();
+            // e.g. the vault switched while the secure element was answering
+            mCache.invalidate();
+            return "xpub";
+        }));
+
+        get("main", PATH);
+        assertEquals(2, mLoads.get());
+    }
+
+    @Test
+    public void invalidateOnVaultSwitch() {
+        get("main", PATH);
+        Utilities.setCurrentBelongTo(new PreferencesContext(), "vault2");
+        get("main", PATH);
+        assertEquals(2, mLoads.get());
+    }
+
+    @Test
+    public void invalidateOnReset() {
+        get("main", PATH);
+        new ResetCallable().call();
+        get("main", PATH);
+        assertEquals(2, mLoads.get());
+    }
+
+    @Test
+    public void invalidateOnPassphraseUpdate() {
+        get("main", PATH);
+        new UpdatePassphraseCallable("passphrase", "00", "").call();
+        get("main", PATH);
+        assertEquals(2, mLoads.get());
+    }
+
+    @Test
+    public void invalidateOnMnemonicWrite() {
+        get("main", PATH);
+        new WriteMnemonicCallable(new byte[16], 0, 0, "00").call();
+        get("main", PATH);
+        assertEquals(2, mLoads.get());
+    }
+
+    /**
+     * Hands out preferences that accept every edit, enough for
+     * {@link Utilities#setCurrentBelongTo}.
+     */
+    private static class PreferencesContext extends ContextWrapper {
+        PreferencesContext() {
+            super(null);
+        }
+
+        @Override
+        public SharedPreferences getSharedPreferences(String name, int mode) {
+            final ClassLoader loader = getClass().getClassLoader();
+            final SharedPreferences.Editor editor = (SharedPreferences.Editor) Proxy.newProxyInstance(
+                    loader, new Class<?>[]{SharedPreferences.Editor.class},
+                    (proxy, method, args) -> method.getReturnType() == SharedPreferences.Editor.class
+                            ? proxy : null);
+            return (SharedPreferences) Proxy.newProxyInstance(loader, new Class<?>[]{SharedPreferences.class},
+                    (proxy, method, args) -> method.getName().equals("edit") ? editor : null);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.protocol.parser;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.BytesValue;
+import com.googlecode.protobuf.format.JsonFormat;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Bytes fields must come out as the old pipeline, JsonFormat text parsed by the json parser,
+ * returned them, for every byte value.
+ */
+public class ProtoJsonTest {
+
+    private static BytesValue bytesValue(byte... bytes) {
+        return BytesValue.newBuilder().setValue(ByteString.copyFrom(bytes)).build();
+    }
+
+    private static String throughText(BytesValue message) throws JSONException {
+        return new JSONObject(new JsonFormat().printToString(message)).getString("value");
+    }
+
+    private static String direct(BytesValue message) throws JSONException {
+        return ProtoJson.toJson(message).getString("value");
+    }
+
+    @Test
+    public void everyByteAsText() throws JSONException {
+        for (int b = 0; b < 256; b++) {
+            if (b == 0x07 || b == 0x0b) {
+                continue;
+            }
+            BytesValue message = bytesValue((byte) b);
+            assertEquals("byte " + b, throughText(message), direct(message));
+        }
+    }
+
+    @Test
+    public void allBytesAtOnce() throws JSONException {
+        byte[] bytes = new byte[254];
+        int length = 0;
+        for (int b = 0; b < 256; b++) {
+            if (b != 0x07 && b != 0x0b) {
+                bytes[length++] = (byte) b;
+            }
+        }
+
+        BytesValue message = bytesValue(bytes);
+        assertEquals(throughText(message), direct(message));
+    }
+
+    // android's parser drops the backslash of an unknown escape, this parser rejects it
+    @Test
+    public void bellAndVerticalTab() throws JSONException {
+        String text = new JsonFormat().printToString(bytesValue((byte) 0x07, (byte) 0x0b));
+        assertTrue(text, text.contains("\"\\a\\v\""));
+
+        assertEquals("av", direct(bytesValue((byte) 0x07, (byte) 0x0b)));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.protocol.parser;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.googlecode.protobuf.format.JsonFormat;
+import com.keystone.cold.protobuf.BaseProtoc;
+import com.keystone.cold.protobuf.PayloadProtoc;
+import com.keystone.cold.protobuf.SyncProtoc;
+import com.keystone.cold.protobuf.TransactionProtoc;
+import com.keystone.cold.protocol.ZipUtil;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Decoding gzipped sign requests straight to json must give what the old pipeline gave,
+ * which went through hex strings and JsonFormat text.
+ */
+public class ProtoParserTest {
+    private static final String XFP = "464ce7dec19b055796f5a686630d477b06ed1eb1ad579d237741271a5729e241";
+
+    @Test
+    public void sameAsTextPipeline() throws JSONException {
+        for (int items : new int[]{1, 20}) {
+            byte[] gzipped = ZipUtil.zip(signTx(items).toByteArray());
+            assertSameJson(decodeThroughText(Hex.toHexString(gzipped)), new ProtoParser(gzipped, true).parseToJson());
+        }
+        byte[] gzipped = ZipUtil.zip(sync().toByteArray());
+        assertSameJson(decodeThroughText(Hex.toHexString(gzipped)), new ProtoParser(gzipped, true).parseToJson());
+    }
+
+    static JSONObject decodeThroughText(String hex) throws JSONException {
+        try {
+            byte[] bytes = Hex.decode(ZipUtil.unzip(hex));
+            BaseProtoc.Base base = BaseProtoc.Base.parseFrom(bytes);
+            return new JSONObject(new JsonFormat().printToString(base.getData()));
+        } catch (Exception e) {
+            throw new JSONException(e.getMessage());
+        }
+    }
+
+    static BaseProtoc.Base signTx(int items) {
+        TransactionProtoc.SignTransaction.Builder signTx = TransactionProtoc.SignTransaction.newBuilder();
+        fill(signTx, 1, 0);
+        FieldDescriptor btcTx = signTx.getDescriptorForType().findFieldByName("btcTx");
+        signTx.setField(btcTx, fill(signTx.newBuilderForField(btcTx), items, 1).build());
+        signTx.setCoinCode("BTC").setDecimal(8);
+
+        return base(PayloadProtoc.Payload.newBuilder()
+                .setType(PayloadProtoc.Payload.Type.TYPE_SIGN_TX)
+                .setXfp(XFP)
+                .setSignTx(signTx));
+    }
+
+    static BaseProtoc.Base sync() {
+        SyncProtoc.Sync.Builder sync = SyncProtoc.Sync.newBuilder();
+        for (int i = 0; i < 20; i++) {
+            SyncProtoc.Coin.Builder coin = SyncProtoc.Coin.newBuilder()
+                    .setCoinCode("COIN" + i)
+                    .setActive(true);
+            for (int j = 0; j < 3; j++) {
+                coin.addAccounts(SyncProtoc.Account.newBuilder()
+                        .setHdPath("M/44'/" + i + "'/" + j + "'")
+                        .setXPub("xpub6CYEjsU6zPM3sADS2ubu2aZeGxCm3C5KabkCpo4rkNbXGAH9M7rRUJ4E5CKiyUddmRzrSCopPzisTBrXkfCD4o577XKM9mzyZtP1Xdbizyk")
+                        .setAddressLength(j + 1)
+                        .setIsMultiSign(false));
+            }
+            sync.addCoins(coin);
+        }
+        return base(PayloadProtoc.Payload.newBuilder()
+                .setType(PayloadProtoc.Payload.Type.TYPE_SYNC)
+                .setXfp(XFP)
+                .setSync(sync));
+    }
+
+    private static BaseProtoc.Base base(PayloadProtoc.Payload.Builder payload) {
+        return BaseProtoc.Base.newBuilder()
+                .setData(payload)
+                .setVersion(1)
+                .setDescription("Keystone qrcode")
+                .setColdVersion(10226)
+                .build();
+    }
+
+    // fills every field outside a oneof, repeated fields get {@code items} values at the top level
+    private static Message.Builder fill(Message.Builder builder, int items, int depth) {
+        for (FieldDescriptor field : builder.getDescriptorForType().getFields()) {
+            if (field.getContainingOneof() != null) {
+                continue;
+            }
+            if (field.isRepeated()) {
+                for (int i = 0; i < (depth == 1 ? items : 1); i++) {
+                    builder.addRepeatedField(field, sample(builder, field, depth, i));
+                }
+            } else {
+                builder.setField(field, sample(builder, field, depth, 0));
+            }
+        }
+        return builder;
+    }
+
+    private static Object sample(Message.Builder builder, FieldDescriptor field, int depth, int i) {
+        switch (field.getJavaType()) {
+            case INT:
+                return 10000 + i;
+            case LONG:
+                return 3_000_000_000L + i;
+            case FLOAT:
+                return 0.1f;
+            case DOUBLE:
+                return 0.1;
+            case BOOLEAN:
+                return true;
+            case STRING:
+                return field.getName() + " " + i + " 0279be667ef9dcbbac55a06295ce870b07029bfcdb2dce28d959f2815b16f81798";
+            case BYTE_STRING:
+                return ByteString.copyFromUtf8("bytes \"" + i + "\"\t\n");
+            case ENUM:
+                List<?> values = field.getEnumType().getValues();
+                return values.get(values.size() - 1);
+            case MESSAGE:
+            default:
+                Message.Builder child = builder.newBuilderForField(field);
+                return (depth < 4 ? fill(child, 1, depth + 1) : child).build();
+        }
+    }
+
+    static void assertSameJson(Object expected, Object actual) throws JSONException {
+        if (expected instanceof JSONObject) {
+            JSONObject expectedObject = (JSONObject) expected;
+            JSONObject actualObject = (JSONObject) actual;
+            assertEquals(expectedObject.length(), actualObject.length());
+            Iterator<?> keys = expectedObject.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                assertSameJson(expectedObject.get(key), actualObject.get(key));
+            }
+        } else if (expected instanceof JSONArray) {
+            JSONArray expectedArray = (JSONArray) expected;
+            JSONArray actualArray = (JSONArray) actual;
+            assertEquals(expectedArray.length(), actualArray.length());
+            for (int i = 0; i < expectedArray.length(); i++) {
+                assertSameJson(expectedArray.get(i), actualArray.get(i));
+            }
+        } else {
+            assertEquals(expected.getClass(), actual.getClass());
+            assertEquals(expected, actual);
+        }
+    }
+}
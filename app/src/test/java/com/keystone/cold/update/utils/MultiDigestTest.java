@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.update.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+public class MultiDigestTest {
+    // spans several buffers and ends with a partial one
+    private static final int SIZE = 3 * MultiDigest.BUFFER_SIZE + 17;
+
+    private byte[] mData;
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mData = new byte[SIZE];
+        new Random(42).nextBytes(mData);
+
+        mFile = File.createTempFile("package", ".bin");
+        try (OutputStream outputStream = new FileOutputStream(mFile)) {
+            outputStream.write(mData);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        mFile.delete();
+    }
+
+    private byte[] expected(Digest digest) throws Exception {
+        return MessageDigest.getInstance(digest.getAlgorithm()).digest(mData);
+    }
+
+    @Test
+    public void updateFromStream() throws Exception {
+        final MultiDigest digest = new MultiDigest(Digest.MD5, Digest.SHA1)
+                .update(new ByteArrayInputStream(mData));
+
+        assertArrayEquals(expected(Digest.MD5), digest.digest(Digest.MD5));
+        assertArrayEquals(expected(Digest.SHA1), digest.digest(Digest.SHA1));
+    }
+
+    @Test
+    public void updateFromFile() throws Exception {
+        final MultiDigest digest = new MultiDigest(Digest.MD5, Digest.SHA1).update(mFile);
+
+        assertArrayEquals(expected(Digest.MD5), digest.digest(Digest.MD5));
+        assertArrayEquals(expected(Digest.SHA1), digest.digest(Digest.SHA1));
+    }
+
+    @Test
+    public void updateInChunks() throws Exception {
+        final MultiDigest digest = new MultiDigest(Digest.MD5);
+        for (int offset = 0; offset < SIZE; offset += 1000) {
+            digest.update(mData, offset, Math.min(1000, SIZE - offset));
+        }
+
+        assertArrayEquals(expected(Digest.MD5), digest.digest(Digest.MD5));
+    }
+
+    @Test
+    public void rejectUpdateAfterDigest() {
+        final MultiDigest digest = new MultiDigest(Digest.MD5).update(mData, 0, SIZE);
+        digest.digest(Digest.MD5);
+
+        try {
+            digest.update(mData, 0, 1);
+            fail();
+        } catch (IllegalStateException expected) {
+            // finished
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.keystone.cold.update.utils;
+
+import net.lingala.zip4j.core.ZipFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class ZipHelperTest {
+    private static final String ENTRY = "update.bin";
+    // spans several buffers and ends with a partial one
+    private static final int SIZE = 3 * MultiDigest.BUFFER_SIZE + 17;
+
+    private byte[] mData;
+    private File mDir;
+    private File mZip;
+
+    @Before
+    public void setUp() throws IOException {
+        mData = new byte[SIZE];
+        new Random(42).nextBytes(mData);
+
+        mDir = Files.createTempDirectory("update").toFile();
+        mZip = new File(mDir, "update.zip");
+        try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(mZip))) {
+            outputStream.putNextEntry(new ZipEntry(ENTRY));
+            outputStream.write(mData);
+            outputStream.closeEntry();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                //noinspection ResultOfMethodCallIgnored
+                f.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        mDir.delete();
+    }
+
+    private byte[] expected(Digest digest) throws Exception {
+        return MessageDigest.getInstance(digest.getAlgorithm()).digest(mData);
+    }
+
+    @Test
+    public void digestWhileExtracting() throws Exception {
+        final MultiDigest digest = new MultiDigest(Digest.MD5, Digest.SHA1);
+        // zip4j rejects an empty password even for entries that are not encrypted
+        final File extracted = ZipHelper.extract(new ZipFile(mZip), ENTRY, "password",
+                mDir.getAbsolutePath(), digest);
+
+        assertArrayEquals(mData, Files.readAllBytes(extracted.toPath()));
+        assertArrayEquals(expected(Digest.MD5), digest.digest(Digest.MD5));
+        assertArrayEquals(expected(Digest.SHA1), digest.digest(Digest.SHA1));
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.keystone.cold.viewmodel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class PsbtInboxTest {
+    private static final byte[] BINARY = {0x70, 0x73, 0x62, 0x74, (byte) 0xff, 0x01, 0x00, 0x0a};
+    private static final String BASE64 = Base64.getEncoder().encodeToString(BINARY);
+
+    private File mDir;
+    private PsbtInbox mInbox;
+
+    @Before
+    public void setUp() throws IOException {
+        mDir = Files.createTempDirectory("psbt").toFile();
+        // summarize on the calling thread
+        mInbox = new PsbtInbox(Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                //noinspection ResultOfMethodCallIgnored
+                f.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        mDir.delete();
+    }
+
+    private File write(String name, byte[] content, long lastModified) throws IOException {
+        File file = new File(mDir, name);
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(content);
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.setLastModified(lastModified);
+        return file;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * One p2wpkh input of 30000 and p2wpkh outputs of 10000 and 15000, each output derived
+     * from the master fingerprint given for it.
+     */
+    private static byte[] psbt(String firstFingerprint, String secondFingerprint) {
+        byte[] script = hex("0014751e76e8199196d454941c45d1b3a323f1433bd6");
+        String pubkey = "0279be667ef9dcbbac55a06295ce870b07029bfcdb2dce28d959f2815b16f81798";
+
+        ByteArrayOutputStream tx = new ByteArrayOutputStream();
+        writeUInt32(tx, 2);
+        tx.write(1);
+        byte[] prevTxId = new byte[32];
+        prevTxId[31] = 1;
+        tx.write(prevTxId, 0, prevTxId.length);
+        writeUInt32(tx, 0);
+        tx.write(0);
+        writeUInt32(tx, 0xfffffffd);
+        tx.write(2);
+        writeUInt64(tx, 10000);
+        writeVarBytes(tx, script);
+        writeUInt64(tx, 15000);
+        writeVarBytes(tx, script);
+        writeUInt32(tx, 0);
+
+        ByteArrayOutputStream psbt = new ByteArrayOutputStream();
+        psbt.write(BINARY, 0, 5);
+        writeVarBytes(psbt, new byte[]{0x00});
+        writeVarBytes(psbt, tx.toByteArray());
+        psbt.write(0x00);
+
+        ByteArrayOutputStream utxo = new ByteArrayOutputStream();
+        writeUInt64(utxo, 30000);
+        writeVarBytes(utxo, script);
+        writeVarBytes(psbt, new byte[]{0x01});
+        writeVarBytes(psbt, utxo.toByteArray());
+        writeVarBytes(psbt, hex("06" + pubkey));
+        writeVarBytes(psbt, hex(firstFingerprint + "54000080"));
+        psbt.write(0x00);
+
+        for (String fingerprint : new String[]{firstFingerprint, secondFingerprint}) {
+            writeVarBytes(psbt, hex("02" + pubkey));
+            writeVarBytes(psbt, hex(fingerprint + "54000080"));
+            psbt.write(0x00);
+        }
+        return psbt.toByteArray();
+    }
+
+    private static void writeUInt32(ByteArrayOutputStream out, long value) {
+        for (int i = 0; i < 4; i++) {
+            out.write((int) (value >> (8 * i)));
+        }
+    }
+
+    private static void writeUInt64(ByteArrayOutputStream out, long value) {
+        writeUInt32(out, value);
+        writeUInt32(out, value >>> 32);
+    }
+
+    private static void writeVarBytes(ByteArrayOutputStream out, byte[] bytes) {
+        out.write(bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static byte[] hex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void recognizePsbtByContent() throws IOException {
+        write("binary.bin", BINARY, 1_000_000L);
+        write("base64.txt", ascii(BASE64 + "\n"), 1_000_000L);
+        write("other.psbt", ascii("not a psbt"), 1_000_000L);
+        write("short.psbt", ascii("ps"), 1_000_000L);
+        write("signed_0123abcd.psbt", BINARY, 1_000_000L);
+
+        List<PsbtInbox.Entry> scanned = mInbox.scan(mDir);
+
+        assertEquals(2, scanned.size());
+        assertEquals("base64.txt", scanned.get(0).name);
+        assertEquals(PsbtInbox.Format.BASE64, scanned.get(0).format);
+        assertEquals("binary.bin", scanned.get(1).name);
+        assertEquals(PsbtInbox.Format.BINARY, scanned.get(1).format);
+        assertSame(scanned, mInbox.getLastScan());
+    }
+
+    @Test
+    public void rescanOnlyChangedFiles() throws IOException {
+        File file = write("a.psbt", BINARY, 1_000_000L);
+        PsbtInbox.Entry entry = mInbox.scan(mDir).get(0);
+
+        assertSame("unchanged file", entry, mInbox.scan(mDir).get(0));
+
+        //noinspection ResultOfMethodCallIgnored
+        file.setLastModified(2_000_000L);
+        PsbtInbox.Entry touched = mInbox.scan(mDir).get(0);
+        assertNotSame("new mtime", entry, touched);
+
+        write("a.psbt", ascii(BASE64), 2_000_000L);
+        PsbtInbox.Entry resized = mInbox.scan(mDir).get(0);
+        assertNotSame("new size", touched, resized);
+        assertEquals(PsbtInbox.Format.BASE64, resized.format);
+
+        write("a.psbt", ascii("not a psbt anymore"), 3_000_000L);
+        assertEquals("no longer a psbt", 0, mInbox.scan(mDir).size());
+    }
+
+    @Test
+    public void loadMostRecentFileFromMemory() throws IOException {
+        write("old.psbt", BINARY, 1_000_000L);
+        File recent = write("recent.psbt", ascii(BASE64), 2_000_000L);
+        List<PsbtInbox.Entry> scanned = mInbox.scan(mDir);
+        for (PsbtInbox.Entry entry : scanned) {
+            // keeps the decoder out, only the preload is under test
+            entry.summary = PsbtInbox.Summary.INVALID;
+        }
+        mInbox.summarize(scanned, true, "", () -> {
+        });
+        PsbtInbox.Entry old = scanned.get(0);
+        PsbtInbox.Entry entry = scanned.get(1);
+
+        // same size and mtime, so only the preloaded copy still has the first content
+        String replaced = BASE64.substring(0, BASE64.length() - 1) + "A";
+        write("recent.psbt", ascii(replaced), 2_000_000L);
+        assertEquals(BASE64, mInbox.load(entry));
+        assertEquals(BASE64, mInbox.load(old));
+
+        //noinspection ResultOfMethodCallIgnored
+        recent.setLastModified(3_000_000L);
+        assertEquals(replaced, mInbox.load(entry));
+    }
+
+    @Test
+    public void countChangeOfThisWalletOnly() throws IOException {
+        write("a.psbt", psbt("12345678", "87654321"), 1_000_000L);
+        List<PsbtInbox.Entry> scanned = mInbox.scan(mDir);
+        PsbtInbox.Entry entry = scanned.get(0);
+
+        mInbox.summarize(scanned, true, "12345678", () -> {
+        });
+        assertEquals(15000, entry.summary.amount);
+        assertEquals(5000, entry.summary.fee);
+
+        mInbox.summarize(scanned, true, "21436587", () -> {
+        });
+        assertEquals("fingerprint in reverse byte order", 10000, entry.summary.amount);
+
+        mInbox.summarize(scanned, true, "", () -> {
+        });
+        assertEquals("unknown wallet", 25000, entry.summary.amount);
+    }
+}
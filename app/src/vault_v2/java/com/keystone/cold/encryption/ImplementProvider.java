@@ -42,6 +42,7 @@ class ImplementProvider {
     private void initializeCore(@NonNull Context context) {
         final Config config = new Config.Builder()
                 .setPortSpeed(CONSTANTS.CONFIG.SPEED)
+                .setSessionIdleTimeout(CONSTANTS.CONFIG.SESSION_IDLE_TIMEOUT)
                 .build();
 
         EncryptionCore.initialize(context, config);
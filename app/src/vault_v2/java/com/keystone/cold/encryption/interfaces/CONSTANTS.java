@@ -25,6 +25,7 @@ public class CONSTANTS extends BASECONSTANTS {
         Digest DIGEST = Digest.SHA256;
         int PAGE_SIZE = 528;
         int SPEED = 115200;
+        long SESSION_IDLE_TIMEOUT = 30 * 1000; //ms
     }
 
     public interface METHODS extends BASECONSTANTS.METHODS {
@@ -22,7 +22,9 @@ import org.bouncycastle.jcajce.provider.digest.SHA256;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 
@@ -34,6 +36,7 @@ import java.util.StringTokenizer;
  * for generating deterministic keys</a>
  */
 public class MnemonicUtils {
+    private static final int MAX_LAST_WORDS = 8;
     private static List<String> WORD_LIST = null;
 
     public static String generateMnemonic(byte[] initialEntropy) {
@@ -111,15 +114,55 @@ public class MnemonicUtils {
         }
     }
 
+    /**
+     * @param word a word of the word list
+     * @return its index in the word list, or -1 if it is not in the list
+     */
+    public static int indexOf(String word) {
+        final Integer index = WordIndex.INDEX.get(word);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Lists the words that complete the mnemonic with a valid checksum, at most 8, in word
+     * list order.
+     * <p>
+     * The last word holds the last entropy bits followed by the checksum, so every value of
+     * the missing entropy bits gives exactly one valid last word. The values are tried in
+     * ascending order, which is also the word list order of the words they give.
+     *
+     * @param mnemonic all words of a mnemonic but the last
+     * @return the valid last words, empty if the words are unknown or of the wrong count
+     */
     public static List<String> calculateLastWord(String mnemonic) {
-        List<String> words = new ArrayList<>();
-        for (String word : WordList.words) {
-            if (validateMnemonic(mnemonic + " " +word)) {
-                words.add(word);
-            }
-            if (words.size() == 8) {
-                break;
-            }
+        final List<String> words = new ArrayList<>();
+        final BitSet bits = new BitSet();
+        final int size;
+        try {
+            size = mnemonicToBits(mnemonic, bits) + 11;
+        } catch (IllegalArgumentException e) {
+            return words;
+        }
+
+        final int ent = 32 * size / 33;
+        if (size % 33 != 0 || ent < 128 || ent > 256) {
+            return words;
+        }
+
+        final byte[] entropy = new byte[ent / 8];
+        for (int i = 0; i < entropy.length; i++) {
+            entropy[i] = readByte(bits, i);
+        }
+
+        final int checksumLength = ent / 32;
+        // the missing entropy bits are the low bits of the last entropy byte
+        final int missingLength = 11 - checksumLength;
+        final int last = entropy.length - 1;
+        final List<String> vocabulary = getWords();
+        for (int missing = 0; missing < 1 << missingLength && words.size() < MAX_LAST_WORDS; missing++) {
+            entropy[last] = (byte) (entropy[last] & (0xff << missingLength) | missing);
+            final int checksum = (calculateChecksum(entropy) & 0xff) >>> (8 - checksumLength);
+            words.add(vocabulary.get(missing << checksumLength | checksum));
         }
         return words;
     }
@@ -189,11 +232,10 @@ public class MnemonicUtils {
 
     private static int mnemonicToBits(String mnemonic, BitSet bits) {
         int bit = 0;
-        final List<String> vocabulary = getWords();
         final StringTokenizer tokenizer = new StringTokenizer(mnemonic, " ");
         while (tokenizer.hasMoreTokens()) {
             final String word = tokenizer.nextToken();
-            final int index = vocabulary.indexOf(word);
+            final int index = indexOf(word);
             if (index < 0) {
                 throw new IllegalArgumentException(String.format(
                         "Mnemonic word '%s' should be in the word list", word));
@@ -227,5 +269,13 @@ public class MnemonicUtils {
         return (byte) (bytes[0] & mask);
     }
 
+    private static final class WordIndex {
+        static final Map<String, Integer> INDEX = new HashMap<>(WordList.words.length * 2);
 
+        static {
+            for (int i = 0; i < WordList.words.length; i++) {
+                INDEX.put(WordList.words[i], i);
+            }
+        }
+    }
 }
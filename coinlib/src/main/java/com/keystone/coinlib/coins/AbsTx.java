@@ -142,6 +142,13 @@ public abstract class AbsTx {
         return metaData;
     }
 
+    /**
+     * @return the meta data in the form the coin script signs
+     */
+    public JSONObject getScriptData() {
+        return metaData;
+    }
+
     protected abstract void parseMetaData() throws JSONException, InvalidTransactionException;
 
     protected JSONObject extractMetaData(JSONObject signTxObject, String coinCode) throws JSONException {
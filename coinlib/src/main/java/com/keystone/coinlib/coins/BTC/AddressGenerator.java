@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.coinlib.coins.BTC;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.keystone.coinlib.accounts.Account;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+
+/**
+ * Derives a range of addresses in parallel. The range is split in halves on a fork-join pool
+ * until the slices are small enough to derive one after another; every index is independent,
+ * so the addresses come back in index order whatever order the slices finish in.
+ */
+public class AddressGenerator {
+    // one derivation takes well below a millisecond, keep the slices worth a fork
+    private static final int SLICE_SIZE = 16;
+
+    private final Deriver deriver;
+    private final ForkJoinPool pool;
+
+    public AddressGenerator(boolean isMainNet) {
+        this(Deriver.get(isMainNet), ForkJoinPool.commonPool());
+    }
+
+    public AddressGenerator(@NonNull Deriver deriver, @NonNull ForkJoinPool pool) {
+        this.deriver = deriver;
+        this.pool = pool;
+    }
+
+    /**
+     * @return the addresses of {@code accountXpub/change/start} to {@code start + count - 1}
+     */
+    @NonNull
+    public List<String> derive(@NonNull String accountXpub, int change, int start, int count,
+                               @NonNull Btc.AddressType type) {
+        return Arrays.asList(generate(pool, start, count,
+                index -> deriver.derive(accountXpub, change, index, type)));
+    }
+
+    /**
+     * @return the multisig addresses of {@code change/start} to {@code start + count - 1}
+     */
+    @NonNull
+    public List<String> deriveMultiSig(int threshold, @NonNull List<String> xPubs, int change,
+                                       int start, int count, @NonNull Account account) {
+        return Arrays.asList(generate(pool, start, count,
+                index -> deriver.deriveMultiSigAddress(threshold, xPubs, new int[]{change, index}, account)));
+    }
+
+    @VisibleForTesting
+    @NonNull
+    static String[] generate(@NonNull ForkJoinPool pool, int start, int count,
+                             @NonNull IntFunction<String> derive) {
+        if (count < 0) throw new IllegalArgumentException("count must not be negative");
+
+        final String[] addresses = new String[count];
+        if (count <= SLICE_SIZE) {
+            new Slice(addresses, start, 0, count, derive).compute();
+        } else {
+            pool.invoke(new Slice(addresses, start, 0, count, derive));
+        }
+        return addresses;
+    }
+
+    private static class Slice extends RecursiveAction {
+        private final String[] addresses;
+        private final int start;
+        private final int from;
+        private final int to;
+        private final IntFunction<String> derive;
+
+        Slice(String[] addresses, int start, int from, int to, IntFunction<String> derive) {
+            this.addresses = addresses;
+            this.start = start;
+            this.from = from;
+            this.to = to;
+            this.derive = derive;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SLICE_SIZE) {
+                for (int i = from; i < to; i++) {
+                    addresses[i] = derive.apply(start + i);
+                }
+                return;
+            }
+
+            final int middle = (from + to) >>> 1;
+            invokeAll(new Slice(addresses, start, from, middle, derive),
+                    new Slice(addresses, start, middle, to, derive));
+        }
+    }
+}
@@ -85,6 +85,8 @@ public class Btc extends AbsCoin {
         private static final int DUST_AMOUNT = 546;
         private static final int OMNI_USDT_PROPERTYID = 31;
         private List<ChangeAddressInfo> changeAddressInfo;
+        private BtcTxData txData;
+        private JSONObject scriptData;
 
         public Tx(JSONObject signTxObject, String coinCode) throws JSONException, InvalidTransactionException {
             super(signTxObject, coinCode);
@@ -100,22 +102,13 @@ public class Btc extends AbsCoin {
         }
 
         @Override
-        public JSONArray getInputs() {
-            try {
-                return metaData.getJSONArray("inputs");
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
-            return null;
+        public BtcTxData getTxData() {
+            return txData;
         }
+
         @Override
-        public JSONArray getOutputs() {
-            try {
-                return metaData.getJSONArray("outputs");
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
-            return null;
+        public JSONObject getScriptData() {
+            return scriptData;
         }
 
         @Override
@@ -165,55 +158,50 @@ public class Btc extends AbsCoin {
         }
 
         private void parseOutPut() throws JSONException {
-            JSONArray outputs = metaData.getJSONArray("outputs");
-            JSONArray outputsClone = new JSONArray(outputs.toString());
-            StringBuilder destinations = new StringBuilder();
-            for (int i = 0; i < outputs.length(); i++) {
-                JSONObject output = outputs.getJSONObject(i);
-                outputAmount += output.getLong("value");
-                if (output.optBoolean("isChange") && output.has("changeAddressPath")) {
-
+            outputAmount = txData.getOutputAmount();
+            for (BtcTxData.Output output : txData.getOutputs()) {
+                if (output.isChange()) {
                     if (changeAddressInfo == null) {
                         changeAddressInfo = new ArrayList<>();
                     }
                     changeAddressInfo.add(new ChangeAddressInfo(
-                            output.getString("address"),
-                            output.getString("changeAddressPath"),
-                            output.getLong("value")));
+                            output.getAddress(),
+                            output.getChangeAddressPath(),
+                            output.getValue()));
                 }
+            }
 
-                NumberFormat nf = NumberFormat.getInstance();
-                nf.setMaximumFractionDigits(20);
-                String amount = nf.format(satoshiToBtc(output.getLong("value")));
-                outputsClone.getJSONObject(i).put("value", amount + " " + coinCode);
-                destinations.append(output.get("address")).append(SEPARATOR);
+            List<BtcTxData.Output> outputs = txData.getOutputs();
+            if (outputs.size() == 1) {
+                to = outputs.get(0).getAddress();
+                return;
             }
-            if (outputsClone.length() == 1) {
-                to = destinations.deleteCharAt(destinations.length() - 1).toString();
-            } else {
-                to = outputsClone.toString();
+
+            NumberFormat nf = NumberFormat.getInstance();
+            nf.setMaximumFractionDigits(20);
+            JSONArray outputArray = metaData.getJSONArray("outputs");
+            JSONArray displayOutputs = new JSONArray();
+            for (int i = 0; i < outputs.size(); i++) {
+                String amount = nf.format(satoshiToBtc(outputs.get(i).getValue()));
+                displayOutputs.put(BtcTxData.shallowCopy(outputArray.getJSONObject(i))
+                        .put("value", amount + " " + coinCode));
             }
+            to = displayOutputs.toString();
         }
 
         protected void parseInput() throws JSONException, InvalidTransactionException {
             isMultisig = metaData.optBoolean("multisig");
-            JSONArray inputs = metaData.getJSONArray("inputs");
+            txData = BtcTxData.fromJson(metaData, !isToken);
+            scriptData = BtcTxData.toScriptData(metaData);
             StringBuilder paths = new StringBuilder();
-            for (int i = 0; i < inputs.length(); i++) {
-                JSONObject input = inputs.getJSONObject(i);
-                String path = input.getString("ownerKeyPath");
-                input.put("bip32Derivation",new JSONArray());
+            for (BtcTxData.Input input : txData.getInputs()) {
+                String path = input.getOwnerKeyPath();
                 if (!isMultisig) {
                     checkHdPath(path, false);
-                } else {
                 }
                 paths.append(path).append(SEPARATOR);
-                int index = input.optInt("index");
-                if (index == 0) {
-                    input.put("index", 0);
-                }
-                inputAmount += input.getJSONObject("utxo").getLong("value");
             }
+            inputAmount = txData.getInputAmount();
             hdPath = paths.deleteCharAt(paths.length() - 1).toString();
         }
 
@@ -225,13 +213,7 @@ public class Btc extends AbsCoin {
         }
 
         private double calculateDisplayAmount() {
-            long changeAmount = 0;
-            if (changeAddressInfo != null) {
-                for (ChangeAddressInfo info : changeAddressInfo) {
-                    changeAmount += info.value;
-                }
-            }
-            return satoshiToBtc(outputAmount - changeAmount);
+            return satoshiToBtc(txData.getSendAmount());
         }
 
         private double satoshiToBtc(long sat) {
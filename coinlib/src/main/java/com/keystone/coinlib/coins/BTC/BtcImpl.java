@@ -17,6 +17,9 @@
 
 package com.keystone.coinlib.coins.BTC;
 
+import android.os.SystemClock;
+import android.util.Log;
+
 import androidx.annotation.NonNull;
 
 import com.eclipsesource.v8.V8Array;
@@ -26,85 +29,166 @@ import com.eclipsesource.v8.V8ScriptExecutionException;
 import com.keystone.coinlib.coins.AbsTx;
 import com.keystone.coinlib.coins.SignPsbtResult;
 import com.keystone.coinlib.coins.SignTxResult;
+import com.keystone.coinlib.exception.InvalidTransactionException;
+import com.keystone.coinlib.exception.UnsafeTransactionException;
 import com.keystone.coinlib.interfaces.Signer;
 import com.keystone.coinlib.v8.CoinImpl;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.Iterator;
 import java.util.stream.Stream;
 
 public class BtcImpl extends CoinImpl {
 
-    private V8Function parsePsbt;
-    private V8Function signPsbt;
+    private static final String TAG = "Vault.BtcImpl";
+
+    private static volatile boolean sCrossCheckPsbt;
+
+    private final boolean isMainNet;
+
     public BtcImpl(boolean isMainNet) {
         super(isMainNet ? "BTC" : "XTN");
+        this.isMainNet = isMainNet;
     }
 
-    SignTxResult generateOmniTx(@NonNull AbsTx tx, Signer... signers) {
-        V8Object txData = constructTxData(tx.getMetaData());
-        return signTxImpl(txData, "generateOmniTransactionSync", signers);
+    /**
+     * @param crossCheck parse every PSBT with both the Java decoder and the script, log where
+     *                   they disagree and use the result of the script
+     */
+    public static void setCrossCheckPsbt(boolean crossCheck) {
+        sCrossCheckPsbt = crossCheck;
     }
 
-    SignPsbtResult signPsbt(@NonNull String psbt, boolean finalize, Signer... signers) {
-        if (this.signPsbt == null) {
-            this.signPsbt = (V8Function) coin.get("signPSBTBase64Sync");
+    SignTxResult generateOmniTx(@NonNull AbsTx tx, Signer... signers) {
+        acquireRuntime();
+        try {
+            V8Object txData = constructTxData(tx.getScriptData());
+            return signTxImpl(txData, "generateOmniTransactionSync", signers);
+        } finally {
+            releaseRuntime();
         }
-        v8.registerResource(signPsbt);
-
-        V8Array params = new V8Array(v8);
-        v8.registerResource(params);
-        params.push(psbt);
-
+    }
 
-        if (signers.length > 0) {
-            V8Array signProviders = new V8Array(v8);
-            v8.registerResource(signProviders);
-            Stream.of(signers).forEach(signer -> signProviders.push(createSignerProvider(signer)));
-            params.push(signProviders);
-        } else {
+    SignPsbtResult signPsbt(@NonNull String psbt, boolean finalize, Signer... signers) {
+        if (signers.length == 0) {
             return null;
         }
-        params.push(finalize);
+
+        acquireRuntime();
         try {
-            V8Object object = (V8Object) signPsbt.call(coin, params);
+            V8Function signPsbt = (V8Function) coin.get("signPSBTBase64Sync");
+            V8Object object = callSignPsbt(signPsbt, psbt, finalize, signers);
             return new SignPsbtResult(object.getString("txId"),
                     object.getString("psbtB64"));
         } catch (V8ScriptExecutionException e) {
             e.printStackTrace();
+            discardRuntime();
         } finally {
-            v8.release(false);
+            releaseRuntime();
         }
         return null;
     }
 
+    private V8Object callSignPsbt(V8Function signPsbt, @NonNull String psbt, boolean finalize,
+                                  Signer... signers) {
+        V8Array params = new V8Array(v8);
+        params.push(psbt);
+
+        V8Array signProviders = new V8Array(v8);
+        Stream.of(signers).forEach(signer -> signProviders.push(createSignerProvider(signer)));
+        params.push(signProviders);
+
+        params.push(finalize);
+        return (V8Object) signPsbt.call(coin, params);
+    }
+
     JSONObject parsePsbt(@NonNull String psbtBase64) {
-        if (this.parsePsbt == null) {
-            this.parsePsbt = (V8Function) coin.get("parsePsbt");
+        long start = SystemClock.elapsedRealtime();
+        JSONObject decoded = null;
+        try {
+            decoded = new PsbtDecoder(isMainNet).decode(psbtBase64).toJson();
+        } catch (UnsafeTransactionException e) {
+            Log.e(TAG, "reject psbt: " + e.getMessage());
+            return null;
+        } catch (InvalidTransactionException | JSONException e) {
+            Log.w(TAG, "decode psbt failed, parse it with the script: " + e.getMessage());
         }
-        v8.registerResource(parsePsbt);
-        V8Array params = new V8Array(v8);
-        v8.registerResource(params);
-        params.push(psbtBase64);
+
+        if (decoded != null && !sCrossCheckPsbt) {
+            Log.d(TAG, String.format("decodePsbt took %d ms", SystemClock.elapsedRealtime() - start));
+            return decoded;
+        }
+
+        JSONObject parsed = parsePsbtByScript(psbtBase64);
+        if (decoded != null && !sameJson(decoded, parsed)) {
+            Log.e(TAG, "psbt decoder disagrees with the script, decoded: " + decoded + ", parsed: " + parsed);
+        }
+        return parsed;
+    }
+
+    JSONObject parsePsbtByScript(@NonNull String psbtBase64) {
+        long start = SystemClock.elapsedRealtime();
+        acquireRuntime();
         try {
+            V8Function parsePsbt = (V8Function) coin.get("parsePsbt");
+            V8Array params = new V8Array(v8);
+            params.push(psbtBase64);
             V8Object result = (V8Object) parsePsbt.call(coin, params);
-            v8.registerResource(result);
 
             V8Object json = v8.getObject("JSON");
-            v8.registerResource(json);
-
             V8Array parameters = new V8Array(v8).push(result);
-            v8.registerResource(parameters);
             String jsonResult = json.executeStringFunction("stringify", parameters);
             return new JSONObject(jsonResult);
 
-        } catch (V8ScriptExecutionException | JSONException e) {
+        } catch (V8ScriptExecutionException e) {
+            e.printStackTrace();
+            discardRuntime();
+        } catch (JSONException e) {
             e.printStackTrace();
         } finally {
-            v8.release(false);
+            releaseRuntime();
+            Log.d(TAG, String.format("parsePsbt took %d ms", SystemClock.elapsedRealtime() - start));
         }
         return null;
     }
 
+    /**
+     * @return true if both are the same JSON value, numbers are compared by value
+     */
+    static boolean sameJson(Object a, Object b) {
+        if (a instanceof JSONObject && b instanceof JSONObject) {
+            JSONObject objectA = (JSONObject) a;
+            JSONObject objectB = (JSONObject) b;
+            if (objectA.length() != objectB.length()) {
+                return false;
+            }
+            Iterator<String> keys = objectA.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if (!objectB.has(key) || !sameJson(objectA.opt(key), objectB.opt(key))) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (a instanceof JSONArray && b instanceof JSONArray) {
+            JSONArray arrayA = (JSONArray) a;
+            JSONArray arrayB = (JSONArray) b;
+            if (arrayA.length() != arrayB.length()) {
+                return false;
+            }
+            for (int i = 0; i < arrayA.length(); i++) {
+                if (!sameJson(arrayA.opt(i), arrayB.opt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (a instanceof Number && b instanceof Number) {
+            return ((Number) a).doubleValue() == ((Number) b).doubleValue();
+        }
+        return a != null && a.equals(b);
+    }
+
 }
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.coinlib.coins.BTC;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.keystone.coinlib.exception.InvalidTransactionException;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The inputs and outputs of a btc sign request, read once from its meta data.
+ * All amounts are in satoshi.
+ */
+public final class BtcTxData {
+    private final List<Input> inputs;
+    private final List<Output> outputs;
+    private final long inputAmount;
+    private final long outputAmount;
+    private final long changeAmount;
+
+    private BtcTxData(@NonNull List<Input> inputs, @NonNull List<Output> outputs) {
+        this.inputs = Collections.unmodifiableList(inputs);
+        this.outputs = Collections.unmodifiableList(outputs);
+
+        long inputAmount = 0;
+        for (Input input : inputs) {
+            inputAmount += input.value;
+        }
+        long outputAmount = 0;
+        long changeAmount = 0;
+        for (Output output : outputs) {
+            outputAmount += output.value;
+            if (output.isChange()) {
+                changeAmount += output.value;
+            }
+        }
+        this.inputAmount = inputAmount;
+        this.outputAmount = outputAmount;
+        this.changeAmount = changeAmount;
+    }
+
+    /**
+     * @param metaData the btcTx of a sign request, it is not modified
+     * @param withOutputs false for omni transactions, whose outputs are built by the script
+     */
+    @NonNull
+    public static BtcTxData fromJson(@NonNull JSONObject metaData, boolean withOutputs)
+            throws JSONException, InvalidTransactionException {
+        JSONArray inputArray = metaData.getJSONArray("inputs");
+        if (inputArray.length() == 0) {
+            throw new InvalidTransactionException("invalid btc tx: no inputs");
+        }
+        List<Input> inputs = new ArrayList<>(inputArray.length());
+        for (int i = 0; i < inputArray.length(); i++) {
+            JSONObject input = inputArray.getJSONObject(i);
+            inputs.add(new Input(input.optString("hash"),
+                    input.optInt("index"),
+                    input.getJSONObject("utxo").getLong("value"),
+                    input.getString("ownerKeyPath")));
+        }
+
+        List<Output> outputs = new ArrayList<>();
+        if (withOutputs) {
+            JSONArray outputArray = metaData.getJSONArray("outputs");
+            for (int i = 0; i < outputArray.length(); i++) {
+                JSONObject output = outputArray.getJSONObject(i);
+                String changePath = output.optBoolean("isChange") && output.has("changeAddressPath")
+                        ? output.getString("changeAddressPath") : null;
+                outputs.add(new Output(output.getString("address"), output.getLong("value"), changePath));
+            }
+        }
+        return new BtcTxData(inputs, outputs);
+    }
+
+    /**
+     * @return a shallow copy of the meta data in the form the script signs, with every input
+     * carrying an explicit index and an empty bip32Derivation
+     */
+    @NonNull
+    static JSONObject toScriptData(@NonNull JSONObject metaData) throws JSONException {
+        JSONObject scriptData = shallowCopy(metaData);
+        JSONArray inputArray = metaData.getJSONArray("inputs");
+        JSONArray scriptInputs = new JSONArray();
+        for (int i = 0; i < inputArray.length(); i++) {
+            JSONObject input = shallowCopy(inputArray.getJSONObject(i));
+            input.put("index", input.optInt("index"));
+            input.put("bip32Derivation", new JSONArray());
+            scriptInputs.put(input);
+        }
+        return scriptData.put("inputs", scriptInputs);
+    }
+
+    static JSONObject shallowCopy(@NonNull JSONObject object) throws JSONException {
+        JSONObject copy = new JSONObject();
+        Iterator<String> keys = object.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            copy.put(key, object.get(key));
+        }
+        return copy;
+    }
+
+    @NonNull
+    public List<Input> getInputs() {
+        return inputs;
+    }
+
+    @NonNull
+    public List<Output> getOutputs() {
+        return outputs;
+    }
+
+    public long getInputAmount() {
+        return inputAmount;
+    }
+
+    public long getOutputAmount() {
+        return outputAmount;
+    }
+
+    public long getChangeAmount() {
+        return changeAmount;
+    }
+
+    /**
+     * @return the amount leaving the wallet, not counting change and fee
+     */
+    public long getSendAmount() {
+        return outputAmount - changeAmount;
+    }
+
+    public long getFee() {
+        return inputAmount - outputAmount;
+    }
+
+    /**
+     * @return the outputs as the tx lists store them, with isChange and changeAddressPath
+     * for change outputs only
+     */
+    @NonNull
+    public JSONArray outputsToJson() throws JSONException {
+        JSONArray array = new JSONArray();
+        for (Output output : outputs) {
+            JSONObject object = new JSONObject()
+                    .put("address", output.address)
+                    .put("value", output.value);
+            if (output.isChange()) {
+                object.put("isChange", true)
+                        .put("changeAddressPath", output.changeAddressPath);
+            }
+            array.put(object);
+        }
+        return array;
+    }
+
+    public static final class Input {
+        private final String hash;
+        private final int index;
+        private final long value;
+        private final String ownerKeyPath;
+
+        Input(@NonNull String hash, int index, long value, @NonNull String ownerKeyPath) {
+            this.hash = hash;
+            this.index = index;
+            this.value = value;
+            this.ownerKeyPath = ownerKeyPath;
+        }
+
+        @NonNull
+        public String getHash() {
+            return hash;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        @NonNull
+        public String getOwnerKeyPath() {
+            return ownerKeyPath;
+        }
+    }
+
+    public static final class Output {
+        private final String address;
+        private final long value;
+        private final String changeAddressPath;
+
+        Output(@NonNull String address, long value, @Nullable String changeAddressPath) {
+            this.address = address;
+            this.value = value;
+            this.changeAddressPath = changeAddressPath;
+        }
+
+        @NonNull
+        public String getAddress() {
+            return address;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        public boolean isChange() {
+            return changeAddressPath != null;
+        }
+
+        @Nullable
+        public String getChangeAddressPath() {
+            return changeAddressPath;
+        }
+    }
+}
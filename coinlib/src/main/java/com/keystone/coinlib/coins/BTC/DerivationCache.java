@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.coinlib.coins.BTC;
+
+import androidx.annotation.NonNull;
+
+import com.keystone.coinlib.ExtendPubkeyFormat;
+
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+import org.bitcoinj.params.MainNetParams;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.keystone.coinlib.ExtendPubkeyFormat.convertExtendPubkey;
+
+/**
+ * Keeps parsed change-level keys (account xpub / change) so deriving an address only
+ * takes the last, non-hardened step from the cached parent, instead of decoding the account
+ * xpub and deriving the change level again for every index.
+ * <p>
+ * The least recently used keys are dropped beyond the capacity. Safe for concurrent use.
+ */
+public class DerivationCache {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final Map<String, DeterministicKey> changeKeys;
+
+    public DerivationCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public DerivationCache(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        changeKeys = new LinkedHashMap<String, DeterministicKey>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DeterministicKey> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param accountXpub account-level extended public key, parsed as is
+     */
+    @NonNull
+    public DeterministicKey deriveKey(@NonNull String accountXpub, int change, int index) {
+        return HDKeyDerivation.deriveChildKey(getChangeKey(accountXpub, change, false), index);
+    }
+
+    /**
+     * @param accountXpub account-level extended public key in any SLIP-0132 format
+     */
+    @NonNull
+    public DeterministicKey deriveKeyAnyFormat(@NonNull String accountXpub, int change, int index) {
+        return HDKeyDerivation.deriveChildKey(getChangeKey(accountXpub, change, true), index);
+    }
+
+    @NonNull
+    DeterministicKey getChangeKey(@NonNull String accountXpub, int change, boolean convert) {
+        final String cacheKey = (convert ? "*" : "") + accountXpub + "/" + change;
+
+        synchronized (changeKeys) {
+            final DeterministicKey changeKey = changeKeys.get(cacheKey);
+            if (changeKey != null) {
+                return changeKey;
+            }
+        }
+
+        final String xpub = convert
+                ? convertExtendPubkey(accountXpub, ExtendPubkeyFormat.xpub)
+                : accountXpub;
+        final DeterministicKey account = DeterministicKey.deserializeB58(xpub, MainNetParams.get());
+        final DeterministicKey changeKey = HDKeyDerivation.deriveChildKey(account, change);
+
+        synchronized (changeKeys) {
+            changeKeys.put(cacheKey, changeKey);
+        }
+        return changeKey;
+    }
+}
@@ -17,14 +17,12 @@
 
 package com.keystone.coinlib.coins.BTC;
 
-import com.keystone.coinlib.ExtendPubkeyFormat;
 import com.keystone.coinlib.accounts.Account;
 
 import org.bitcoinj.core.LegacyAddress;
 import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.core.SegwitAddress;
 import org.bitcoinj.crypto.DeterministicKey;
-import org.bitcoinj.crypto.HDKeyDerivation;
 import org.bitcoinj.params.MainNetParams;
 import org.bitcoinj.params.TestNet3Params;
 import org.bitcoinj.script.Script;
@@ -32,24 +30,45 @@ import org.bitcoinj.script.ScriptBuilder;
 import org.spongycastle.util.encoders.Hex;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
-import static com.keystone.coinlib.ExtendPubkeyFormat.convertExtendPubkey;
 import static com.keystone.coinlib.coins.BTC.Btc.AddressType.P2PKH;
 import static com.keystone.coinlib.coins.BTC.Btc.AddressType.P2SH_P2WPKH;
 import static com.keystone.coinlib.coins.BTC.Btc.AddressType.P2WPKH;
 import static org.bitcoinj.script.ScriptOpCodes.OP_CHECKMULTISIG;
 
 public class Deriver {
+    // the xpubs of the vault's own accounts and multisig wallets, both change levels each
+    private static final DerivationCache SHARED_CACHE = new DerivationCache(256);
+    private static final Deriver MAIN_NET = new Deriver(true, SHARED_CACHE);
+    private static final Deriver TEST_NET = new Deriver(false, SHARED_CACHE);
+
     private final NetworkParameters network;
+    private final DerivationCache cache;
+
+    /**
+     * @return the deriver of the network, sharing one cache with every other caller so keys
+     * parsed while checking one transaction are reused by the next
+     */
+    public static Deriver get(boolean isMainNet) {
+        return isMainNet ? MAIN_NET : TEST_NET;
+    }
+
     public Deriver(boolean isMainNet) {
+        this(isMainNet, new DerivationCache());
+    }
+
+    /**
+     * @param cache shared by derivers which derive from the same xpubs
+     */
+    public Deriver(boolean isMainNet, DerivationCache cache) {
         this.network = isMainNet ? MainNetParams.get() : TestNet3Params.get();
+        this.cache = Objects.requireNonNull(cache);
     }
 
     private DeterministicKey getAddrDeterministicKey(String accountXpub, int changeIndex, int addressIndex) {
-        DeterministicKey account = DeterministicKey.deserializeB58(accountXpub, MainNetParams.get());
-        DeterministicKey change = HDKeyDerivation.deriveChildKey(account, changeIndex);
-        return HDKeyDerivation.deriveChildKey(change, addressIndex);
+        return cache.deriveKey(accountXpub, changeIndex, addressIndex);
     }
 
 
@@ -86,8 +105,7 @@ public class Deriver {
         checkArgument(path[1] >= 0);
 
         List<byte[]> orderedPubKeys = xPubs.stream()
-                .map(xpub -> convertExtendPubkey(xpub, ExtendPubkeyFormat.xpub))
-                .map(xpub -> derivePublicKey(xpub,path[0],path[1]))
+                .map(xpub -> cache.deriveKeyAnyFormat(xpub, path[0], path[1]).getPublicKeyAsHex())
                 .sorted()
                 .map(Hex::decode)
                 .collect(Collectors.toList());
@@ -95,12 +113,6 @@ public class Deriver {
         return createMultiSigAddress(threshold, orderedPubKeys, account);
     }
 
-    private String derivePublicKey(String xpub, int change, int index) {
-        DeterministicKey key = DeterministicKey.deserializeB58(xpub, MainNetParams.get());
-        DeterministicKey changeKey = HDKeyDerivation.deriveChildKey(key, change);
-        return HDKeyDerivation.deriveChildKey(changeKey, index).getPublicKeyAsHex();
-    }
-
 
     public String createMultiSigAddress(int threshold,
                                                List<byte[]> pubKeys,
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.coinlib.coins.BTC;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What the wallet shows of a PSBT: the spent outputs with their derivations and the new outputs.
+ * Serializes to the same JSON as the script's {@code parsePsbt}.
+ */
+public final class Psbt {
+    private final List<Input> inputs;
+    private final List<Output> outputs;
+
+    Psbt(@NonNull List<Input> inputs, @NonNull List<Output> outputs) {
+        this.inputs = Collections.unmodifiableList(inputs);
+        this.outputs = Collections.unmodifiableList(outputs);
+    }
+
+    @NonNull
+    public List<Input> getInputs() {
+        return inputs;
+    }
+
+    @NonNull
+    public List<Output> getOutputs() {
+        return outputs;
+    }
+
+    @NonNull
+    public JSONObject toJson() throws JSONException {
+        JSONArray inputArray = new JSONArray();
+        for (Input input : inputs) {
+            inputArray.put(input.toJson());
+        }
+        JSONArray outputArray = new JSONArray();
+        for (Output output : outputs) {
+            outputArray.put(output.toJson());
+        }
+        return new JSONObject()
+                .put("inputs", inputArray)
+                .put("outputs", outputArray);
+    }
+
+    private static JSONArray toJson(List<Bip32Derivation> derivations) throws JSONException {
+        JSONArray array = new JSONArray();
+        for (Bip32Derivation derivation : derivations) {
+            array.put(derivation.toJson());
+        }
+        return array;
+    }
+
+    public static final class Bip32Derivation {
+        private final String masterFingerprint;
+        private final String path;
+        private final String pubkey;
+
+        Bip32Derivation(@NonNull String masterFingerprint, @NonNull String path, @NonNull String pubkey) {
+            this.masterFingerprint = masterFingerprint;
+            this.path = path;
+            this.pubkey = pubkey;
+        }
+
+        /**
+         * @return the fingerprint in hex
+         */
+        @NonNull
+        public String getMasterFingerprint() {
+            return masterFingerprint;
+        }
+
+        /**
+         * @return the path like m/84'/0'/0'/0/1
+         */
+        @NonNull
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return the public key in hex
+         */
+        @NonNull
+        public String getPubkey() {
+            return pubkey;
+        }
+
+        JSONObject toJson() throws JSONException {
+            return new JSONObject()
+                    .put("masterFingerprint", masterFingerprint)
+                    .put("path", path)
+                    .put("pubkey", pubkey);
+        }
+    }
+
+    public static final class Input {
+        private final String txId;
+        private final int index;
+        private final long value;
+        private final List<Bip32Derivation> hdPath;
+        private final boolean multiSign;
+        private final String signStatus;
+        private final boolean finalized;
+
+        Input(@NonNull String txId, int index, long value, @NonNull List<Bip32Derivation> hdPath,
+              @Nullable String signStatus, boolean finalized) {
+            this.txId = txId;
+            this.index = index;
+            this.value = value;
+            this.hdPath = Collections.unmodifiableList(hdPath);
+            this.multiSign = signStatus != null;
+            this.signStatus = signStatus;
+            this.finalized = finalized;
+        }
+
+        @NonNull
+        public String getTxId() {
+            return txId;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        @NonNull
+        public List<Bip32Derivation> getHdPath() {
+            return hdPath;
+        }
+
+        public boolean isMultiSign() {
+            return multiSign;
+        }
+
+        /**
+         * @return signed-m-n of a multisig input, null otherwise
+         */
+        @Nullable
+        public String getSignStatus() {
+            return signStatus;
+        }
+
+        public boolean isFinalized() {
+            return finalized;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject object = new JSONObject()
+                    .put("txId", txId)
+                    .put("index", index)
+                    .put("value", value)
+                    .put("hdPath", Psbt.toJson(hdPath))
+                    .put("isMultiSign", multiSign);
+            if (signStatus != null) {
+                object.put("signStatus", signStatus);
+            }
+            return object.put("isFinalized", finalized);
+        }
+    }
+
+    public static final class Output {
+        private final String address;
+        private final long value;
+        private final List<Bip32Derivation> hdPath;
+
+        Output(@NonNull String address, long value, @Nullable List<Bip32Derivation> hdPath) {
+            this.address = address;
+            this.value = value;
+            this.hdPath = hdPath == null ? null : Collections.unmodifiableList(hdPath);
+        }
+
+        @NonNull
+        public String getAddress() {
+            return address;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        /**
+         * @return the derivations of a change output, null if the output has none
+         */
+        @Nullable
+        public List<Bip32Derivation> getHdPath() {
+            return hdPath;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject object = new JSONObject()
+                    .put("address", address)
+                    .put("value", value);
+            if (hdPath != null) {
+                object.put("hdPath", Psbt.toJson(hdPath));
+            }
+            return object;
+        }
+    }
+}
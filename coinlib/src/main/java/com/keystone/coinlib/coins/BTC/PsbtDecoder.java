@@ -0,0 +1,716 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.coinlib.coins.BTC;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.keystone.coinlib.exception.InvalidTransactionException;
+import com.keystone.coinlib.exception.UnsafeTransactionException;
+
+import org.bitcoinj.core.LegacyAddress;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.SegwitAddress;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.params.TestNet3Params;
+import org.spongycastle.util.encoders.Hex;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decodes a BIP-174 PSBT in a single pass into a {@link Psbt}, giving the same result as the
+ * script's {@code parsePsbt} without a round trip through V8 and JSON.
+ * <p>
+ * The decoder is stricter than the script: anything the script would accept only by
+ * accident, like trailing or truncated data, is rejected, so the caller can fall back to the
+ * script for it. A utxo that doesn't match the input it claims to fund is rejected with an
+ * {@link UnsafeTransactionException}, which the script would accept and must not be given.
+ */
+public class PsbtDecoder {
+    private static final long MAGIC = 0x70736274L;
+    private static final int SEPARATOR = 0xff;
+    private static final long MAX_SAFE_INTEGER = (1L << 53) - 1;
+
+    private static final int GLOBAL_UNSIGNED_TX = 0x00;
+    private static final int GLOBAL_XPUB = 0x01;
+
+    private static final int INPUT_NON_WITNESS_UTXO = 0x00;
+    private static final int INPUT_WITNESS_UTXO = 0x01;
+    private static final int INPUT_PARTIAL_SIG = 0x02;
+    private static final int INPUT_SIGHASH_TYPE = 0x03;
+    private static final int INPUT_REDEEM_SCRIPT = 0x04;
+    private static final int INPUT_WITNESS_SCRIPT = 0x05;
+    private static final int INPUT_BIP32_DERIVATION = 0x06;
+    private static final int INPUT_FINAL_SCRIPTSIG = 0x07;
+    private static final int INPUT_FINAL_SCRIPTWITNESS = 0x08;
+    private static final int INPUT_POR_COMMITMENT = 0x09;
+
+    private static final int OUTPUT_REDEEM_SCRIPT = 0x00;
+    private static final int OUTPUT_WITNESS_SCRIPT = 0x01;
+    private static final int OUTPUT_BIP32_DERIVATION = 0x02;
+
+    private static final int OP_0 = 0x00;
+    private static final int OP_PUSHDATA1 = 0x4c;
+    private static final int OP_PUSHDATA2 = 0x4d;
+    private static final int OP_PUSHDATA4 = 0x4e;
+    private static final int OP_1NEGATE = 0x4f;
+    private static final int OP_RESERVED = 0x50;
+    private static final int OP_DUP = 0x76;
+    private static final int OP_EQUAL = 0x87;
+    private static final int OP_EQUALVERIFY = 0x88;
+    private static final int OP_HASH160 = 0xa9;
+    private static final int OP_CHECKSIG = 0xac;
+    private static final int OP_CHECKMULTISIG = 0xae;
+
+    private static final BigInteger CURVE_P = new BigInteger(
+            "fffffffffffffffffffffffffffffffffffffffffffffffffffffffefffffc2f", 16);
+    private static final BigInteger CURVE_B = BigInteger.valueOf(7);
+
+    private final NetworkParameters network;
+
+    public PsbtDecoder(boolean isMainNet) {
+        this.network = isMainNet ? MainNetParams.get() : TestNet3Params.get();
+    }
+
+    @NonNull
+    public Psbt decode(@NonNull String psbtBase64) throws InvalidTransactionException {
+        final byte[] psbt;
+        try {
+            psbt = Base64.getDecoder().decode(psbtBase64.trim());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTransactionException("invalid psbt, not base64");
+        }
+        return decode(psbt);
+    }
+
+    @NonNull
+    public Psbt decode(@NonNull byte[] psbt) throws InvalidTransactionException {
+        final Reader reader = new Reader(psbt);
+        if (reader.readUInt32BE() != MAGIC || reader.readUInt8() != SEPARATOR) {
+            throw new InvalidTransactionException("invalid psbt, bad magic");
+        }
+
+        Transaction tx = null;
+        Set<String> keys = new HashSet<>();
+        while (!reader.readSeparator()) {
+            final byte[] key = reader.readVarSlice();
+            final byte[] value = reader.readVarSlice();
+            checkUnique(keys, key);
+
+            if (key[0] == GLOBAL_UNSIGNED_TX) {
+                checkSingletonKey(key);
+                tx = Transaction.parse(value);
+                tx.checkUnsigned();
+            } else if (key[0] == GLOBAL_XPUB) {
+                if (key.length != 79 || (key[46] != 2 && key[46] != 3)) {
+                    throw new InvalidTransactionException("invalid psbt, bad global xpub");
+                }
+                formatPath(value);
+            }
+        }
+        if (tx == null) {
+            throw new InvalidTransactionException("invalid psbt, no unsigned tx");
+        }
+
+        final List<Psbt.Input> inputs = new ArrayList<>(tx.inputs.size());
+        for (TxInput txInput : tx.inputs) {
+            inputs.add(readInput(reader, txInput));
+        }
+
+        final List<Psbt.Output> outputs = new ArrayList<>(tx.outputs.size());
+        for (TxOutput txOutput : tx.outputs) {
+            outputs.add(readOutput(reader, txOutput));
+        }
+
+        if (reader.remaining() != 0) {
+            throw new InvalidTransactionException("invalid psbt, unexpected data");
+        }
+        return new Psbt(inputs, outputs);
+    }
+
+    private Psbt.Input readInput(Reader reader, TxInput txInput) throws InvalidTransactionException {
+        byte[] nonWitnessUtxo = null;
+        TxOutput witnessUtxo = null;
+        byte[] redeemScript = null;
+        byte[] witnessScript = null;
+        List<Psbt.Bip32Derivation> derivations = null;
+        int partialSigs = 0;
+        boolean finalized = false;
+
+        final Set<String> keys = new HashSet<>();
+        while (!reader.readSeparator()) {
+            final byte[] key = reader.readVarSlice();
+            final byte[] value = reader.readVarSlice();
+            checkUnique(keys, key);
+
+            switch (key[0]) {
+                case INPUT_NON_WITNESS_UTXO:
+                    checkSingletonKey(key);
+                    nonWitnessUtxo = value;
+                    break;
+                case INPUT_WITNESS_UTXO:
+                    checkSingletonKey(key);
+                    witnessUtxo = Transaction.parseOutput(new Reader(value), true);
+                    break;
+                case INPUT_PARTIAL_SIG:
+                    checkPubkeyKey(key);
+                    partialSigs++;
+                    break;
+                case INPUT_SIGHASH_TYPE:
+                    checkSingletonKey(key);
+                    new Reader(value).readUInt32LE();
+                    break;
+                case INPUT_REDEEM_SCRIPT:
+                    checkSingletonKey(key);
+                    redeemScript = value;
+                    break;
+                case INPUT_WITNESS_SCRIPT:
+                    checkSingletonKey(key);
+                    witnessScript = value;
+                    break;
+                case INPUT_BIP32_DERIVATION:
+                    checkPubkeyKey(key);
+                    if (derivations == null) {
+                        derivations = new ArrayList<>();
+                    }
+                    derivations.add(readDerivation(key, value));
+                    break;
+                case INPUT_FINAL_SCRIPTSIG:
+                case INPUT_FINAL_SCRIPTWITNESS:
+                    checkSingletonKey(key);
+                    finalized = true;
+                    break;
+                case INPUT_POR_COMMITMENT:
+                    checkSingletonKey(key);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (derivations == null) {
+            throw new InvalidTransactionException("invalid psbt, no bip32Derivation found");
+        }
+        if (nonWitnessUtxo == null && witnessUtxo == null) {
+            throw new InvalidTransactionException("invalid psbt, no utxo found");
+        }
+
+        if (txInput.index > Integer.MAX_VALUE) {
+            throw new InvalidTransactionException("invalid psbt, output index out of range");
+        }
+
+        long value = 0;
+        byte[] script = witnessScript != null ? witnessScript : redeemScript;
+        if (nonWitnessUtxo != null) {
+            final Transaction previous = Transaction.parse(nonWitnessUtxo);
+            if (!previous.txId().equals(txInput.txId)) {
+                throw new UnsafeTransactionException("invalid psbt, non witness utxo is not the spent tx");
+            }
+            final List<TxOutput> previousOutputs = previous.outputs;
+            if (txInput.index >= previousOutputs.size()) {
+                throw new InvalidTransactionException("invalid psbt, spent output not found");
+            }
+            final TxOutput spent = previousOutputs.get((int) txInput.index);
+            value = spent.value;
+            if (script == null) {
+                script = spent.script;
+            }
+        }
+        if (witnessUtxo != null) {
+            // the value signed for a segwit input comes from the witness utxo alone
+            if (nonWitnessUtxo != null && witnessUtxo.value != value) {
+                throw new UnsafeTransactionException("invalid psbt, witness utxo value differs from the non witness utxo");
+            }
+            value = witnessUtxo.value;
+            if (script == null) {
+                script = witnessUtxo.script;
+            }
+        }
+
+        return new Psbt.Input(txInput.txId, (int) txInput.index, value, derivations,
+                multiSigStatus(script, partialSigs), finalized);
+    }
+
+    private Psbt.Output readOutput(Reader reader, TxOutput txOutput) throws InvalidTransactionException {
+        List<Psbt.Bip32Derivation> derivations = null;
+
+        final Set<String> keys = new HashSet<>();
+        while (!reader.readSeparator()) {
+            final byte[] key = reader.readVarSlice();
+            final byte[] value = reader.readVarSlice();
+            checkUnique(keys, key);
+
+            switch (key[0]) {
+                case OUTPUT_REDEEM_SCRIPT:
+                case OUTPUT_WITNESS_SCRIPT:
+                    checkSingletonKey(key);
+                    break;
+                case OUTPUT_BIP32_DERIVATION:
+                    checkPubkeyKey(key);
+                    if (derivations == null) {
+                        derivations = new ArrayList<>();
+                    }
+                    derivations.add(readDerivation(key, value));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        return new Psbt.Output(toAddress(txOutput.script), txOutput.value, derivations);
+    }
+
+    private static Psbt.Bip32Derivation readDerivation(byte[] key, byte[] value)
+            throws InvalidTransactionException {
+        return new Psbt.Bip32Derivation(Hex.toHexString(value, 0, Math.min(4, value.length)),
+                formatPath(value),
+                Hex.toHexString(key, 1, key.length - 1));
+    }
+
+    /**
+     * @param value fingerprint followed by the little endian path indexes
+     */
+    private static String formatPath(byte[] value) throws InvalidTransactionException {
+        if (value.length < 4 || value.length % 4 != 0) {
+            throw new InvalidTransactionException("invalid psbt, bad bip32 derivation");
+        }
+
+        final StringBuilder path = new StringBuilder("m");
+        final Reader reader = new Reader(value);
+        reader.skip(4);
+        while (reader.remaining() > 0) {
+            final long index = reader.readUInt32LE();
+            path.append('/').append(index & 0x7fffffffL);
+            if ((index & 0x80000000L) != 0) {
+                path.append('\'');
+            }
+        }
+        return path.toString();
+    }
+
+    private static void checkUnique(Set<String> keys, byte[] key) throws InvalidTransactionException {
+        if (key.length == 0 || !keys.add(Hex.toHexString(key))) {
+            throw new InvalidTransactionException("invalid psbt, duplicated key");
+        }
+    }
+
+    private static void checkSingletonKey(byte[] key) throws InvalidTransactionException {
+        if (key.length != 1) {
+            throw new InvalidTransactionException("invalid psbt, bad key " + Hex.toHexString(key));
+        }
+    }
+
+    private static void checkPubkeyKey(byte[] key) throws InvalidTransactionException {
+        if ((key.length != 34 && key.length != 66) || key[1] < 2 || key[1] > 4) {
+            throw new InvalidTransactionException("invalid psbt, bad pubkey in key " + Hex.toHexString(key));
+        }
+    }
+
+    /**
+     * @return signed-m-n if the script is a bare multisig script, null otherwise
+     */
+    @Nullable
+    static String multiSigStatus(byte[] script, int signatures) {
+        final List<Object> chunks = decompile(script);
+        if (chunks == null || chunks.size() < 3) {
+            return null;
+        }
+
+        final Object first = chunks.get(0);
+        final Object beforeLast = chunks.get(chunks.size() - 2);
+        final Object last = chunks.get(chunks.size() - 1);
+        if (!(first instanceof Integer) || !(beforeLast instanceof Integer)
+                || !Integer.valueOf(OP_CHECKMULTISIG).equals(last)) {
+            return null;
+        }
+
+        final int m = (Integer) first - OP_RESERVED;
+        final int n = (Integer) beforeLast - OP_RESERVED;
+        if (m <= 0 || n > 16 || m > n || n != chunks.size() - 3) {
+            return null;
+        }
+
+        for (Object pubkey : chunks.subList(1, chunks.size() - 2)) {
+            if (!(pubkey instanceof byte[]) || !isPoint((byte[]) pubkey)) {
+                return null;
+            }
+        }
+        return signatures + "-" + m + "-" + n;
+    }
+
+    /**
+     * @return opcodes as Integer and pushed data as byte[], a single byte push that has an
+     * opcode of its own counts as that opcode; null if a push runs past the end
+     */
+    @Nullable
+    private static List<Object> decompile(byte[] script) {
+        final List<Object> chunks = new ArrayList<>();
+        int i = 0;
+        while (i < script.length) {
+            final int opcode = script[i] & 0xff;
+            if (opcode <= OP_0 || opcode > OP_PUSHDATA4) {
+                chunks.add(opcode);
+                i++;
+                continue;
+            }
+
+            final long length;
+            if (opcode < OP_PUSHDATA1) {
+                length = opcode;
+                i += 1;
+            } else if (opcode == OP_PUSHDATA1) {
+                if (i + 2 > script.length) return null;
+                length = script[i + 1] & 0xff;
+                i += 2;
+            } else if (opcode == OP_PUSHDATA2) {
+                if (i + 3 > script.length) return null;
+                length = (script[i + 1] & 0xff) | (script[i + 2] & 0xff) << 8;
+                i += 3;
+            } else {
+                if (i + 5 > script.length) return null;
+                length = (script[i + 1] & 0xffL) | (script[i + 2] & 0xffL) << 8
+                        | (script[i + 3] & 0xffL) << 16 | (script[i + 4] & 0xffL) << 24;
+                i += 5;
+            }
+            if (i + length > script.length) {
+                return null;
+            }
+
+            final byte[] data = Arrays.copyOfRange(script, i, i + (int) length);
+            i += (int) length;
+            if (data.length == 0) {
+                chunks.add(OP_0);
+            } else if (data.length == 1 && data[0] >= 1 && data[0] <= 16) {
+                chunks.add(OP_RESERVED + data[0]);
+            } else if (data.length == 1 && (data[0] & 0xff) == 0x81) {
+                chunks.add(OP_1NEGATE);
+            } else {
+                chunks.add(data);
+            }
+        }
+        return chunks;
+    }
+
+    private static boolean isPoint(byte[] pubkey) {
+        if (pubkey.length != 33 && pubkey.length != 65) {
+            return false;
+        }
+
+        final BigInteger x = new BigInteger(1, Arrays.copyOfRange(pubkey, 1, 33));
+        if (x.signum() == 0 || x.compareTo(CURVE_P) >= 0) {
+            return false;
+        }
+
+        if (pubkey.length == 33) {
+            if (pubkey[0] != 2 && pubkey[0] != 3) {
+                return false;
+            }
+            // a compressed key is valid if x^3 + 7 has a square root
+            final BigInteger ySquare = x.pow(3).add(CURVE_B).mod(CURVE_P);
+            final BigInteger y = ySquare.modPow(CURVE_P.add(BigInteger.ONE).shiftRight(2), CURVE_P);
+            return y.multiply(y).mod(CURVE_P).equals(ySquare);
+        }
+
+        final BigInteger y = new BigInteger(1, Arrays.copyOfRange(pubkey, 33, 65));
+        return pubkey[0] == 4 && y.signum() != 0 && y.compareTo(CURVE_P) < 0;
+    }
+
+    private String toAddress(byte[] script) throws InvalidTransactionException {
+        final int length = script.length;
+        if (length == 25 && (script[0] & 0xff) == OP_DUP && (script[1] & 0xff) == OP_HASH160
+                && script[2] == 0x14 && (script[23] & 0xff) == OP_EQUALVERIFY
+                && (script[24] & 0xff) == OP_CHECKSIG) {
+            return LegacyAddress.fromPubKeyHash(network, Arrays.copyOfRange(script, 3, 23)).toBase58();
+        } else if (length == 23 && (script[0] & 0xff) == OP_HASH160 && script[1] == 0x14
+                && (script[22] & 0xff) == OP_EQUAL) {
+            return LegacyAddress.fromScriptHash(network, Arrays.copyOfRange(script, 2, 22)).toBase58();
+        } else if ((length == 22 && script[0] == OP_0 && script[1] == 0x14)
+                || (length == 34 && script[0] == OP_0 && script[1] == 0x20)) {
+            return SegwitAddress.fromHash(network, Arrays.copyOfRange(script, 2, length)).toBech32();
+        }
+        throw new InvalidTransactionException("invalid psbt, output script " + Hex.toHexString(script)
+                + " has no matching address");
+    }
+
+    private static class Transaction {
+        final List<TxInput> inputs;
+        final List<TxOutput> outputs;
+        final boolean hasWitnesses;
+        final boolean hasScriptSigs;
+        private final byte[] bytes;
+        // inputs and outputs, between the version or witness marker and the witnesses
+        private final int bodyStart;
+        private final int bodyEnd;
+
+        private Transaction(List<TxInput> inputs, List<TxOutput> outputs,
+                            boolean hasWitnesses, boolean hasScriptSigs,
+                            byte[] bytes, int bodyStart, int bodyEnd) {
+            this.inputs = inputs;
+            this.outputs = outputs;
+            this.hasWitnesses = hasWitnesses;
+            this.hasScriptSigs = hasScriptSigs;
+            this.bytes = bytes;
+            this.bodyStart = bodyStart;
+            this.bodyEnd = bodyEnd;
+        }
+
+        /**
+         * @return the txid, the double sha256 of the tx without its witnesses
+         */
+        String txId() {
+            final MessageDigest sha256;
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            sha256.update(bytes, 0, 4);
+            sha256.update(bytes, bodyStart, bodyEnd - bodyStart);
+            sha256.update(bytes, bytes.length - 4, 4);
+            return reverseHex(sha256.digest(sha256.digest()));
+        }
+
+        static Transaction parse(byte[] bytes) throws InvalidTransactionException {
+            final Reader reader = new Reader(bytes);
+            reader.skip(4); // version
+
+            boolean hasWitnesses = false;
+            if (reader.remaining() >= 2 && reader.peek(0) == 0x00 && reader.peek(1) == 0x01) {
+                reader.skip(2);
+                hasWitnesses = true;
+            }
+
+            final int bodyStart = reader.position();
+            final int inputCount = reader.readCount();
+            final List<TxInput> inputs = new ArrayList<>(inputCount);
+            boolean hasScriptSigs = false;
+            for (int i = 0; i < inputCount; i++) {
+                final byte[] hash = reader.readBytes(32);
+                final long index = reader.readUInt32LE();
+                hasScriptSigs |= reader.readVarSlice().length > 0;
+                reader.skip(4); // sequence
+                inputs.add(new TxInput(reverseHex(hash), index));
+            }
+
+            final int outputCount = reader.readCount();
+            final List<TxOutput> outputs = new ArrayList<>(outputCount);
+            for (int i = 0; i < outputCount; i++) {
+                outputs.add(parseOutput(reader, false));
+            }
+            final int bodyEnd = reader.position();
+
+            if (hasWitnesses) {
+                boolean witnessData = false;
+                for (int i = 0; i < inputCount; i++) {
+                    final int items = reader.readCount();
+                    witnessData |= items > 0;
+                    for (int j = 0; j < items; j++) {
+                        reader.readVarSlice();
+                    }
+                }
+                if (!witnessData) {
+                    throw new InvalidTransactionException("invalid psbt, superfluous witness data");
+                }
+            }
+
+            reader.skip(4); // lock time
+            if (reader.remaining() != 0) {
+                throw new InvalidTransactionException("invalid psbt, unexpected transaction data");
+            }
+            return new Transaction(inputs, outputs, hasWitnesses, hasScriptSigs,
+                    bytes, bodyStart, bodyEnd);
+        }
+
+        static TxOutput parseOutput(Reader reader, boolean whole) throws InvalidTransactionException {
+            final long value = reader.readUInt64LE();
+            final byte[] script = reader.readVarSlice();
+            if (whole && reader.remaining() != 0) {
+                throw new InvalidTransactionException("invalid psbt, bad witness utxo");
+            }
+            return new TxOutput(value, script);
+        }
+
+        void checkUnsigned() throws InvalidTransactionException {
+            if (hasWitnesses || hasScriptSigs) {
+                throw new InvalidTransactionException("invalid psbt, transaction script sigs are not empty");
+            }
+
+            final Set<String> outPoints = new HashSet<>();
+            for (TxInput input : inputs) {
+                if (!outPoints.add(input.txId + ":" + input.index)) {
+                    throw new InvalidTransactionException("invalid psbt, duplicate input");
+                }
+            }
+        }
+
+        private static String reverseHex(byte[] hash) {
+            final byte[] reversed = new byte[hash.length];
+            for (int i = 0; i < hash.length; i++) {
+                reversed[i] = hash[hash.length - 1 - i];
+            }
+            return Hex.toHexString(reversed);
+        }
+    }
+
+    private static class TxInput {
+        final String txId;
+        final long index;
+
+        TxInput(String txId, long index) {
+            this.txId = txId;
+            this.index = index;
+        }
+    }
+
+    private static class TxOutput {
+        final long value;
+        final byte[] script;
+
+        TxOutput(long value, byte[] script) {
+            this.value = value;
+            this.script = script;
+        }
+    }
+
+    private static class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int remaining() {
+            return bytes.length - position;
+        }
+
+        int position() {
+            return position;
+        }
+
+        int peek(int offset) {
+            return bytes[position + offset] & 0xff;
+        }
+
+        void skip(int count) throws InvalidTransactionException {
+            require(count);
+            position += count;
+        }
+
+        /**
+         * @return true and consume it if the next byte ends a map
+         */
+        boolean readSeparator() throws InvalidTransactionException {
+            require(1);
+            if (bytes[position] == 0) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        int readUInt8() throws InvalidTransactionException {
+            require(1);
+            return bytes[position++] & 0xff;
+        }
+
+        long readUInt32BE() throws InvalidTransactionException {
+            require(4);
+            long value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = value << 8 | (bytes[position++] & 0xff);
+            }
+            return value;
+        }
+
+        long readUInt32LE() throws InvalidTransactionException {
+            require(4);
+            long value = 0;
+            for (int i = 3; i >= 0; i--) {
+                value = value << 8 | (bytes[position + i] & 0xff);
+            }
+            position += 4;
+            return value;
+        }
+
+        long readUInt64LE() throws InvalidTransactionException {
+            require(8);
+            long value = 0;
+            for (int i = 7; i >= 0; i--) {
+                value = value << 8 | (bytes[position + i] & 0xff);
+            }
+            position += 8;
+            if (value < 0 || value > MAX_SAFE_INTEGER) {
+                throw new InvalidTransactionException("invalid psbt, value out of range");
+            }
+            return value;
+        }
+
+        long readVarInt() throws InvalidTransactionException {
+            final int first = readUInt8();
+            if (first < 0xfd) {
+                return first;
+            } else if (first == 0xfd) {
+                require(2);
+                final int value = (bytes[position] & 0xff) | (bytes[position + 1] & 0xff) << 8;
+                position += 2;
+                return value;
+            } else if (first == 0xfe) {
+                require(4);
+                return readUInt32LE();
+            }
+            return readUInt64LE();
+        }
+
+        /**
+         * @return a length or count, which can't exceed the remaining bytes
+         */
+        int readCount() throws InvalidTransactionException {
+            final long count = readVarInt();
+            if (count > remaining()) {
+                throw new InvalidTransactionException("invalid psbt, unexpected end");
+            }
+            return (int) count;
+        }
+
+        byte[] readVarSlice() throws InvalidTransactionException {
+            return readBytes(readCount());
+        }
+
+        byte[] readBytes(int count) throws InvalidTransactionException {
+            require(count);
+            final byte[] slice = Arrays.copyOfRange(bytes, position, position + count);
+            position += count;
+            return slice;
+        }
+
+        private void require(int count) throws InvalidTransactionException {
+            if (remaining() < count) {
+                throw new InvalidTransactionException("invalid psbt, unexpected end");
+            }
+        }
+    }
+}
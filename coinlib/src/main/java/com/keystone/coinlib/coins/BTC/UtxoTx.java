@@ -17,15 +17,12 @@
 
 package com.keystone.coinlib.coins.BTC;
 
-import org.json.JSONArray;
-
 import java.util.List;
 
 public interface UtxoTx {
     List<ChangeAddressInfo> getChangeAddressInfo();
 
-    JSONArray getInputs();
-    JSONArray getOutputs();
+    BtcTxData getTxData();
 
     class ChangeAddressInfo {
         public final String address;
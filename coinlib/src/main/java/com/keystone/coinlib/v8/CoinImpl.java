@@ -43,22 +43,48 @@ public class CoinImpl implements Coin {
     private static final String FUNCTION_SIGN = "sign";
 
     private final String coinCode;
-    protected final V8 v8;
-    protected final V8Object coin;
-    private V8Function signTxFunction;
-    private V8Function signMessageFunction;
-    private V8Function generateAddressFunction;
+    private RuntimePool.Runtime runtime;
+    // valid between acquireRuntime() and releaseRuntime()
+    protected V8 v8;
+    protected V8Object coin;
 
     public CoinImpl(String coinCode) {
         super();
         this.coinCode = coinCode;
-        this.v8 = ScriptLoader.sInstance.loadByCoinCode("BTC");
-        if (coinCode.equals(Coins.XTN.coinCode())) {
-            this.coin = v8.executeObjectScript("new BTC(\"testNet\")");
-        } else {
-            this.coin = v8.executeObjectScript("new BTC()");
+    }
+
+    /**
+     * take a runtime from the pool for one call, every V8 value created until
+     * {@link #releaseRuntime()} is released with it
+     */
+    protected void acquireRuntime() {
+        runtime = RuntimePool.getInstance().acquire(coinCode);
+        v8 = runtime.v8;
+        coin = runtime.coin;
+    }
+
+    protected void releaseRuntime() {
+        if (runtime != null) {
+            RuntimePool.getInstance().release(runtime);
+            clearRuntime();
         }
-        v8.registerResource(coin);
+    }
+
+    /**
+     * give up the runtime after the script threw, instead of pooling it with a coin object
+     * the failed call may have left in any state; {@link #releaseRuntime()} is a no-op after it
+     */
+    protected void discardRuntime() {
+        if (runtime != null) {
+            RuntimePool.getInstance().discard(runtime);
+            clearRuntime();
+        }
+    }
+
+    private void clearRuntime() {
+        runtime = null;
+        v8 = null;
+        coin = null;
     }
 
     /**
@@ -69,46 +95,40 @@ public class CoinImpl implements Coin {
      * @return SignTxResult
      */
     protected SignTxResult signTxImpl(V8Object txData, String signFunc, Signer... signers) {
-        if (this.signTxFunction == null) {
-            this.signTxFunction = (V8Function) coin.get(signFunc);
+        if (signers.length == 0) {
+            return null;
+        }
+
+        V8Function signTxFunction = (V8Function) coin.get(signFunc);
+        try {
+            V8Object res = callSignTx(signTxFunction, txData, signers);
+            return new SignTxResult(res.getString("txId"), res.getString("txHex"));
+        } catch (V8ScriptExecutionException e) {
+            e.printStackTrace();
+            discardRuntime();
+            return null;
         }
+    }
 
-        v8.registerResource(txData);
+    private V8Object callSignTx(V8Function signTxFunction, V8Object txData, Signer... signers) {
         V8Array params = new V8Array(v8);
-        v8.registerResource(params);
         params.push(txData);
 
         if (signers.length > 1) {
             V8Array signProviders = new V8Array(v8);
-            v8.registerResource(signProviders);
             Stream.of(signers).forEach(signer -> signProviders.push(createSignerProvider(signer)));
             params.push(signProviders);
-        } else if (signers.length == 1) {
-            if (Coins.supportMultiSigner(coinCode)) {
-                V8Array signProviders = new V8Array(v8);
-                signProviders.push(createSignerProvider(signers[0]));
-                params.push(signProviders);
-            } else {
-                V8Object signProvider = createSignerProvider(signers[0]);
-                params.push(signProvider);
-            }
-
+        } else if (Coins.supportMultiSigner(coinCode)) {
+            V8Array signProviders = new V8Array(v8);
+            signProviders.push(createSignerProvider(signers[0]));
+            params.push(signProviders);
         } else {
-            return null;
+            V8Object signProvider = createSignerProvider(signers[0]);
+            params.push(signProvider);
         }
+
         params.push(false);
-        SignTxResult result;
-        try {
-            V8Object res = (V8Object) signTxFunction.call(coin, params);
-            result = new SignTxResult(res.getString("txId"), res.getString("txHex"));
-            v8.registerResource(res);
-        } catch (V8ScriptExecutionException e) {
-            e.printStackTrace();
-            return null;
-        } finally {
-            v8.release(false);
-        }
-        return result;
+        return (V8Object) signTxFunction.call(coin, params);
     }
 
     /**
@@ -119,23 +139,26 @@ public class CoinImpl implements Coin {
      * @return signed message in format R + S + recId (if has)
      */
     private String signMessageImpl(String msg, Signer signer) {
-        if (this.signMessageFunction == null) {
-            this.signMessageFunction = (V8Function) coin.get("signMessageSync");
-        }
-
-        V8Object signProvider = createSignerProvider(signer);
+        acquireRuntime();
+        try {
+            V8Function signMessageFunction = (V8Function) coin.get("signMessageSync");
+            V8Object signProvider = createSignerProvider(signer);
 
-        V8Array params = new V8Array(v8);
-        params.push(msg).push(signProvider);
+            V8Array params = new V8Array(v8);
+            params.push(msg).push(signProvider);
 
-        return (String) signMessageFunction.call(coin, params);
+            return (String) signMessageFunction.call(coin, params);
+        } catch (V8ScriptExecutionException e) {
+            discardRuntime();
+            throw e;
+        } finally {
+            releaseRuntime();
+        }
     }
 
     protected V8Object createSignerProvider(Signer signer) {
         V8Object signProvider = new V8Object(v8);
-        v8.registerResource(signProvider);
         V8Function sign = new V8Function(v8, new SignProviderCallback(signer));
-        v8.registerResource(sign);
         signProvider.add(FUNCTION_SIGN, sign);
         if (signer.getPublicKey() != null) {
             signProvider.add("publicKey", signer.getPublicKey());
@@ -150,14 +173,20 @@ public class CoinImpl implements Coin {
      * @return address
      */
     private String generateAddressImpl(String publicKey) {
-        if (this.generateAddressFunction == null) {
-            this.generateAddressFunction = (V8Function) coin.get("generateAddress");
-        }
+        acquireRuntime();
+        try {
+            V8Function generateAddressFunction = (V8Function) coin.get("generateAddress");
 
-        V8Array params = new V8Array(v8);
-        params.push(publicKey);
-        addOption(params);
-        return (String) generateAddressFunction.call(coin, params);
+            V8Array params = new V8Array(v8);
+            params.push(publicKey);
+            addOption(params);
+            return (String) generateAddressFunction.call(coin, params);
+        } catch (V8ScriptExecutionException e) {
+            discardRuntime();
+            throw e;
+        } finally {
+            releaseRuntime();
+        }
     }
 
     private void addOption(V8Array params) {
@@ -204,8 +233,6 @@ public class CoinImpl implements Coin {
     protected V8Object constructTxData(JSONObject object) {
         V8Array parameters = new V8Array(v8).push(object.toString());
         V8Object json = v8.getObject("JSON");
-        v8.registerResource(parameters);
-        v8.registerResource(json);
         return json.executeObjectFunction("parse", parameters);
     }
 
@@ -216,8 +243,14 @@ public class CoinImpl implements Coin {
 
     @Override
     public void generateTransaction(@NonNull AbsTx tx, SignCallback callback, Signer... signers) {
-        V8Object txData = constructTxData(tx.getMetaData());
-        SignTxResult res = signTxImpl(txData, "generateTransactionSync", signers);
+        SignTxResult res;
+        acquireRuntime();
+        try {
+            V8Object txData = constructTxData(tx.getScriptData());
+            res = signTxImpl(txData, "generateTransactionSync", signers);
+        } finally {
+            releaseRuntime();
+        }
         if (res != null && res.isValid()) {
             callback.onSuccess(res.txId, res.txHex);
         } else {
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.coinlib.v8;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.eclipsesource.v8.V8;
+import com.eclipsesource.v8.V8Object;
+import com.eclipsesource.v8.utils.MemoryManager;
+import com.keystone.coinlib.utils.Coins;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Keeps V8 runtimes with the coin script already evaluated, so a coin call doesn't create
+ * a runtime and evaluate the bundle every time.
+ * <p>
+ * A runtime is handed to one caller at a time. Every value the caller creates is tracked by
+ * a {@link MemoryManager} and released when the runtime is given back, the runtime and the
+ * coin object stay alive for the next caller. One idle runtime per coin code is kept.
+ * A runtime whose call failed in the script is discarded with {@link #discard(Runtime)}
+ * instead, the coin object may have been left half updated.
+ */
+public class RuntimePool {
+    private static final String TAG = "Vault.RuntimePool";
+    private static final int MAX_IDLE = 1;
+
+    private static volatile RuntimePool sInstance;
+
+    private final ExecutorService warmer = Executors.newSingleThreadExecutor();
+    private final Map<String, ArrayDeque<Runtime>> idle = new HashMap<>();
+    private final Map<String, Future<Runtime>> warming = new HashMap<>();
+
+    private RuntimePool() {
+    }
+
+    public static RuntimePool getInstance() {
+        if (sInstance == null) {
+            synchronized (RuntimePool.class) {
+                if (sInstance == null) {
+                    sInstance = new RuntimePool();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * create a runtime for each coin code in the background, unless one is idle already
+     */
+    public synchronized void prewarm(@NonNull String... coinCodes) {
+        for (String coinCode : coinCodes) {
+            coinScript(coinCode);
+            if (warming.containsKey(coinCode) || !idleOf(coinCode).isEmpty()) {
+                continue;
+            }
+            warming.put(coinCode, warmer.submit(() -> {
+                Runtime runtime = create(coinCode);
+                // let the caller's thread take the lock
+                runtime.v8.getLocker().release();
+                return runtime;
+            }));
+        }
+    }
+
+    /**
+     * @return a runtime locked to the calling thread, give it back with {@link #release(Runtime)}
+     */
+    @NonNull
+    Runtime acquire(@NonNull String coinCode) {
+        coinScript(coinCode);
+        final long start = SystemClock.elapsedRealtime();
+        Runtime runtime;
+        Future<Runtime> pending;
+
+        synchronized (this) {
+            runtime = idleOf(coinCode).pollFirst();
+            pending = runtime == null ? warming.remove(coinCode) : null;
+        }
+
+        String source = "warm";
+        if (runtime == null && pending != null) {
+            try {
+                runtime = pending.get();
+                source = "warming";
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+        if (runtime == null) {
+            runtime = create(coinCode);
+            source = "cold";
+        } else {
+            runtime.v8.getLocker().acquire();
+        }
+
+        runtime.scope = new MemoryManager(runtime.v8);
+        Log.d(TAG, String.format("acquire %s runtime (%s) in %d ms",
+                coinCode, source, SystemClock.elapsedRealtime() - start));
+        return runtime;
+    }
+
+    /**
+     * release everything created with the runtime since it was acquired and pool it
+     */
+    void release(@NonNull Runtime runtime) {
+        releaseScope(runtime);
+
+        if (runtime.v8.isReleased()) {
+            return;
+        }
+
+        runtime.v8.getLocker().release();
+        synchronized (this) {
+            final ArrayDeque<Runtime> runtimes = idleOf(runtime.coinCode);
+            if (runtimes.size() < MAX_IDLE) {
+                runtimes.addLast(runtime);
+                return;
+            }
+        }
+
+        runtime.v8.getLocker().acquire();
+        destroy(runtime);
+    }
+
+    /**
+     * release everything created with the runtime and the runtime itself, for a runtime
+     * whose call failed
+     */
+    void discard(@NonNull Runtime runtime) {
+        releaseScope(runtime);
+
+        if (!runtime.v8.isReleased()) {
+            Log.w(TAG, "discard " + runtime.coinCode + " runtime after a failed call");
+            destroy(runtime);
+        }
+    }
+
+    private static void releaseScope(@NonNull Runtime runtime) {
+        if (runtime.scope != null) {
+            runtime.scope.release();
+            runtime.scope = null;
+        }
+    }
+
+    private static void destroy(@NonNull Runtime runtime) {
+        runtime.coin.release();
+        runtime.v8.release(false);
+    }
+
+    // guarded by this
+    @NonNull
+    private ArrayDeque<Runtime> idleOf(@NonNull String coinCode) {
+        ArrayDeque<Runtime> runtimes = idle.get(coinCode);
+        if (runtimes == null) {
+            runtimes = new ArrayDeque<>();
+            idle.put(coinCode, runtimes);
+        }
+        return runtimes;
+    }
+
+    @NonNull
+    private static Runtime create(@NonNull String coinCode) {
+        final long start = SystemClock.elapsedRealtime();
+        final String script = coinScript(coinCode);
+        final V8 v8 = ScriptLoader.sInstance.loadByCoinCode(Coins.BTC.coinCode());
+        final V8Object coin = v8.executeObjectScript(script);
+
+        Log.d(TAG, String.format("create %s runtime in %d ms",
+                coinCode, SystemClock.elapsedRealtime() - start));
+        return new Runtime(coinCode, v8, coin);
+    }
+
+    /**
+     * @return the script creating the coin object; BTC and XTN both run on the BTC bundle
+     * @throws IllegalArgumentException for any other coin code
+     */
+    @NonNull
+    private static String coinScript(@NonNull String coinCode) {
+        if (Coins.BTC.coinCode().equals(coinCode)) {
+            return "new BTC()";
+        } else if (Coins.XTN.coinCode().equals(coinCode)) {
+            return "new BTC(\"testNet\")";
+        }
+        throw new IllegalArgumentException("no runtime for coin " + coinCode);
+    }
+
+    static class Runtime {
+        final String coinCode;
+        final V8 v8;
+        final V8Object coin;
+        MemoryManager scope;
+
+        Runtime(String coinCode, V8 v8, V8Object coin) {
+            this.coinCode = coinCode;
+            this.v8 = v8;
+            this.coin = coin;
+        }
+    }
+}
@@ -20,23 +20,29 @@ package com.keystone.coinlib.v8;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.AssetManager;
+import android.os.SystemClock;
 import android.text.TextUtils;
+import android.util.Log;
 
 import com.eclipsesource.v8.V8;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ScriptLoader {
 
     @SuppressLint("StaticFieldLeak")
     public static ScriptLoader sInstance;
+    private static final String TAG = "Vault.ScriptLoader";
     private final Context context;
+    private final Map<String, String> assets = new ConcurrentHashMap<>();
 
     private ScriptLoader(Context context) {
         this.context = context;
@@ -53,11 +59,13 @@ public class ScriptLoader {
     }
 
     public V8 loadByCoinCode(String coinCode) {
-        V8 v8 = V8.createV8Runtime("window");
         String js = getJs(context, coinCode);
+        long start = SystemClock.elapsedRealtime();
+        V8 v8 = V8.createV8Runtime("window");
         if (!TextUtils.isEmpty(js) && !v8.isReleased()) {
             v8.executeVoidScript(js);
         }
+        Log.d(TAG, String.format("evaluate %s script in %d ms", coinCode, SystemClock.elapsedRealtime() - start));
         return v8;
     }
 
@@ -81,20 +89,32 @@ public class ScriptLoader {
         return null;
     }
 
+    /**
+     * assets don't change while the app runs, every asset is read once and kept
+     */
     private String readAsset(AssetManager am, String fileName) {
-        StringBuilder stringBuilder = new StringBuilder();
-        try {
-            InputStream inputStream = am.open(fileName);
-            BufferedReader bf = new BufferedReader(new InputStreamReader(inputStream));
-            String line;
-            while ((line = bf.readLine()) != null) {
-                stringBuilder.append(line).append("\r\n");
+        String content = assets.get(fileName);
+        if (content != null) {
+            return content;
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        try (InputStream inputStream = am.open(fileName)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(inputStream.available(), 4096));
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
             }
-            bf.close();
-            inputStream.close();
+            content = bytes.toString(StandardCharsets.UTF_8.name());
         } catch (IOException e) {
             e.printStackTrace();
+            return "";
         }
-        return stringBuilder.toString();
+
+        Log.d(TAG, String.format("read %s (%d chars) in %d ms",
+                fileName, content.length(), SystemClock.elapsedRealtime() - start));
+        assets.put(fileName, content);
+        return content;
     }
 }
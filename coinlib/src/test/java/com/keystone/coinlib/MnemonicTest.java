@@ -20,6 +20,10 @@ package com.keystone.coinlib;
 import org.bouncycastle.util.encoders.Hex;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -75,4 +79,59 @@ public class MnemonicTest {
         valid = MnemonicUtils.validateMnemonic(mnemonic);
         assertFalse(valid);
     }
+
+    @Test
+    public void calculateLastWord() {
+        String mnemonic = "abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon";
+        List<String> words = MnemonicUtils.calculateLastWord(mnemonic);
+        assertEquals(8, words.size());
+        assertEquals("about", words.get(0));
+        for (String word : words) {
+            assertTrue(MnemonicUtils.validateMnemonic(mnemonic + " " + word));
+        }
+
+        mnemonic = "abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon "
+                + "abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon";
+        words = MnemonicUtils.calculateLastWord(mnemonic);
+        assertTrue(words.contains("art"));
+
+        assertTrue(MnemonicUtils.calculateLastWord("abandon abandon abandon").isEmpty());
+        assertTrue(MnemonicUtils.calculateLastWord("pluck spirit pen surround mom lamp frown hawk decide casual notaword").isEmpty());
+    }
+
+    @Test
+    public void calculateLastWordLikeTryingEveryWord() {
+        Random random = new Random(42);
+        for (int count : new int[]{12, 18, 24}) {
+            for (int i = 0; i < 5; i++) {
+                String phrase = randomWords(random, count - 1);
+                assertEquals(phrase, tryEveryWord(phrase), MnemonicUtils.calculateLastWord(phrase));
+            }
+        }
+    }
+
+    // the former implementation
+    static List<String> tryEveryWord(String mnemonic) {
+        List<String> words = new ArrayList<>();
+        for (String word : WordList.words) {
+            if (MnemonicUtils.validateMnemonic(mnemonic + " " + word)) {
+                words.add(word);
+            }
+            if (words.size() == 8) {
+                break;
+            }
+        }
+        return words;
+    }
+
+    static String randomWords(Random random, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WordList.words[random.nextInt(WordList.words.length)]);
+        }
+        return builder.toString();
+    }
 }
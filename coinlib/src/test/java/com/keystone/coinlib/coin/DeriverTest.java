@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.coinlib.coin;
+
+import com.keystone.coinlib.accounts.MultiSig;
+import com.keystone.coinlib.coins.BTC.Btc;
+import com.keystone.coinlib.coins.BTC.Deriver;
+
+import org.bitcoinj.crypto.ChildNumber;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+import org.bitcoinj.params.MainNetParams;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+public class DeriverTest {
+    private static final int ADDRESSES = 20;
+
+    static List<String> accountXpubs(int count) {
+        final List<String> xpubs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final byte[] seed = new byte[32];
+            seed[0] = (byte) (i + 1);
+            DeterministicKey key = HDKeyDerivation.createMasterPrivateKey(seed);
+            key = HDKeyDerivation.deriveChildKey(key, new ChildNumber(48, true));
+            key = HDKeyDerivation.deriveChildKey(key, new ChildNumber(0, true));
+            key = HDKeyDerivation.deriveChildKey(key, new ChildNumber(0, true));
+            key = HDKeyDerivation.deriveChildKey(key, new ChildNumber(2, true));
+            xpubs.add(key.dropPrivateBytes().dropParent().serializePubB58(MainNetParams.get()));
+        }
+        return xpubs;
+    }
+
+    @Test
+    public void sharedDeriverPerNetwork() {
+        assertSame(Deriver.get(true), Deriver.get(true));
+        assertSame(Deriver.get(false), Deriver.get(false));
+
+        final String xpub = accountXpubs(1).get(0);
+        assertNotEquals(Deriver.get(true).derive(xpub, 0, 0, Btc.AddressType.P2WPKH),
+                Deriver.get(false).derive(xpub, 0, 0, Btc.AddressType.P2WPKH));
+    }
+
+    @Test
+    public void sharedCacheMatchesFreshDeriver() {
+        final String xpub = accountXpubs(1).get(0);
+
+        for (boolean isMainNet : new boolean[]{true, false}) {
+            for (int change = 0; change < 2; change++) {
+                for (int i = 0; i < ADDRESSES; i++) {
+                    assertEquals(new Deriver(isMainNet).derive(xpub, change, i, Btc.AddressType.P2SH_P2WPKH),
+                            Deriver.get(isMainNet).derive(xpub, change, i, Btc.AddressType.P2SH_P2WPKH));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sharedCacheMatchesFreshDeriverMultiSig() {
+        final List<String> xpubs = accountXpubs(3);
+
+        for (boolean isMainNet : new boolean[]{true, false}) {
+            for (int i = 0; i < ADDRESSES; i++) {
+                assertEquals(new Deriver(isMainNet).deriveMultiSigAddress(2, xpubs, new int[]{1, i}, MultiSig.P2WSH),
+                        Deriver.get(isMainNet).deriveMultiSigAddress(2, xpubs, new int[]{1, i}, MultiSig.P2WSH));
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.coinlib.coins.BTC;
+
+import org.junit.Test;
+
+import java.security.MessageDigest;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class AddressGeneratorTest {
+    private static final int ADDRESSES = 2000;
+
+    // stands in for a derivation: cpu bound and a pure function of the index
+    private static final IntFunction<String> DERIVE = index -> {
+        try {
+            final MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = new byte[]{(byte) index, (byte) (index >> 8), (byte) (index >> 16)};
+            for (int i = 0; i < 2000; i++) {
+                hash = sha256.digest(hash);
+            }
+            return index + ":" + hash[0];
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    };
+
+    @Test
+    public void keepIndexOrder() {
+        final String[] expected = new String[ADDRESSES];
+        for (int i = 0; i < ADDRESSES; i++) {
+            expected[i] = DERIVE.apply(100 + i);
+        }
+
+        assertArrayEquals(expected, AddressGenerator.generate(ForkJoinPool.commonPool(),
+                100, ADDRESSES, DERIVE));
+    }
+
+    @Test
+    public void smallAndEmptyRanges() {
+        assertEquals(0, AddressGenerator.generate(ForkJoinPool.commonPool(), 5, 0, DERIVE).length);
+        assertArrayEquals(new String[]{DERIVE.apply(5)},
+                AddressGenerator.generate(ForkJoinPool.commonPool(), 5, 1, DERIVE));
+    }
+
+    @Test
+    public void sameAddressesOnAnyPool() {
+        final String[] serial = new String[ADDRESSES];
+        for (int i = 0; i < ADDRESSES; i++) {
+            serial[i] = DERIVE.apply(i);
+        }
+
+        final int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= Math.max(cores, 4); parallelism *= 2) {
+            final ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                assertArrayEquals("parallelism " + parallelism, serial,
+                        AddressGenerator.generate(pool, 0, ADDRESSES, DERIVE));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.coinlib.coins.BTC;
+
+import com.keystone.coinlib.exception.InvalidTransactionException;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class BtcTxDataTest {
+    private static final int OUTPUTS = 500;
+    private static final long INPUT_VALUE = 100_000_000L;
+    private static final long OUTPUT_VALUE = 300_000L;
+    private static final long CHANGE_VALUE = 40_000_000L;
+
+    private static JSONObject payoutBatch() throws JSONException {
+        JSONArray inputs = new JSONArray();
+        for (int i = 0; i < 2; i++) {
+            inputs.put(new JSONObject()
+                    .put("hash", "a1b2c3d4e5f6a1b2c3d4e5f6a1b2c3d4e5f6a1b2c3d4e5f6a1b2c3d4e5f6a1b" + i)
+                    .put("index", i)
+                    .put("utxo", new JSONObject()
+                            .put("publicKey", "0279be667ef9dcbbac55a06295ce870b07029bfcdb2dce28d959f2815b16f81798")
+                            .put("value", INPUT_VALUE))
+                    .put("ownerKeyPath", "M/49'/0'/0'/0/" + i));
+        }
+
+        JSONArray outputs = new JSONArray();
+        for (int i = 0; i < OUTPUTS; i++) {
+            outputs.put(new JSONObject()
+                    .put("address", "3J98t1WpEZ73CNmQviecrnyiWrnqRhWNLy")
+                    .put("value", OUTPUT_VALUE));
+        }
+        outputs.put(new JSONObject()
+                .put("address", "38Segwituno6sUoEkh57ycM6K7ej5gvJhM")
+                .put("value", CHANGE_VALUE)
+                .put("isChange", true)
+                .put("changeAddressPath", "M/49'/0'/0'/1/0"));
+
+        JSONObject btcTx = new JSONObject()
+                .put("inputs", inputs)
+                .put("outputs", outputs);
+
+        return new JSONObject()
+                .put("coinCode", "BTC")
+                .put("decimal", 8)
+                .put("btcTx", btcTx);
+    }
+
+    @Test
+    public void readPayoutBatch() throws JSONException, InvalidTransactionException {
+        JSONObject signTx = payoutBatch();
+        BtcTxData data = BtcTxData.fromJson(signTx.getJSONObject("btcTx"), true);
+
+        assertEquals(2, data.getInputs().size());
+        assertEquals(OUTPUTS + 1, data.getOutputs().size());
+        assertEquals(2 * INPUT_VALUE, data.getInputAmount());
+        assertEquals(OUTPUTS * OUTPUT_VALUE + CHANGE_VALUE, data.getOutputAmount());
+        assertEquals(CHANGE_VALUE, data.getChangeAmount());
+        assertEquals(OUTPUTS * OUTPUT_VALUE, data.getSendAmount());
+        assertEquals(2 * INPUT_VALUE - OUTPUTS * OUTPUT_VALUE - CHANGE_VALUE, data.getFee());
+
+        BtcTxData.Output change = data.getOutputs().get(OUTPUTS);
+        assertTrue(change.isChange());
+        assertEquals("M/49'/0'/0'/1/0", change.getChangeAddressPath());
+        assertFalse(data.getOutputs().get(0).isChange());
+    }
+
+    @Test
+    public void writeOutputsForTxList() throws JSONException, InvalidTransactionException {
+        JSONObject btcTx = payoutBatch().getJSONObject("btcTx");
+        JSONArray outputs = BtcTxData.fromJson(btcTx, true).outputsToJson();
+
+        assertEquals(OUTPUTS + 1, outputs.length());
+        JSONObject payout = outputs.getJSONObject(0);
+        assertEquals("3J98t1WpEZ73CNmQviecrnyiWrnqRhWNLy", payout.getString("address"));
+        assertEquals(OUTPUT_VALUE, payout.getLong("value"));
+        assertFalse(payout.has("isChange"));
+        JSONObject change = outputs.getJSONObject(OUTPUTS);
+        assertTrue(change.getBoolean("isChange"));
+        assertEquals("M/49'/0'/0'/1/0", change.getString("changeAddressPath"));
+    }
+
+    @Test
+    public void parseTxWithoutTouchingMetaData() throws JSONException, InvalidTransactionException {
+        JSONObject signTx = payoutBatch();
+        signTx.getJSONObject("btcTx").getJSONArray("inputs").getJSONObject(0).remove("index");
+        String before = signTx.toString();
+
+        Btc.Tx tx = new Btc.Tx(signTx, "BTC");
+
+        assertEquals(before, signTx.toString());
+        assertEquals("M/49'/0'/0'/0/0,M/49'/0'/0'/0/1", tx.getHdPath());
+        assertEquals(1.5, tx.getAmount() - tx.getFee(), 1e-9);
+        assertEquals(0.1, tx.getFee(), 1e-9);
+
+        List<UtxoTx.ChangeAddressInfo> changes = tx.getChangeAddressInfo();
+        assertEquals(1, changes.size());
+        assertEquals(CHANGE_VALUE, changes.get(0).value);
+        assertEquals(OUTPUTS + 1, new JSONArray(tx.getTo()).length());
+
+        JSONObject scriptData = tx.getScriptData();
+        assertNotSame(tx.getMetaData(), scriptData);
+        JSONObject scriptInput = scriptData.getJSONArray("inputs").getJSONObject(0);
+        assertEquals(0, scriptInput.getInt("index"));
+        assertEquals(0, scriptInput.getJSONArray("bip32Derivation").length());
+    }
+
+    @Test(expected = InvalidTransactionException.class)
+    public void rejectSpendingMoreThanInputs() throws JSONException, InvalidTransactionException {
+        JSONObject signTx = payoutBatch();
+        signTx.getJSONObject("btcTx").getJSONArray("outputs").getJSONObject(0).put("value", 2 * INPUT_VALUE);
+        new Btc.Tx(signTx, "BTC");
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.coinlib.coins.BTC;
+
+import com.keystone.coinlib.exception.InvalidTransactionException;
+import com.keystone.coinlib.exception.UnsafeTransactionException;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the decoder over a corpus of PSBTs whose expected results were produced by the
+ * {@code parsePsbt} of the bundled BTC script. Cases the script rejects carry its error,
+ * cases marked as fallback are accepted by the script but left to it by the decoder, and cases
+ * marked as unsafe are accepted by the script but must be rejected without falling back.
+ */
+public class PsbtDecoderTest {
+
+    @Test
+    public void matchScriptOnCorpus() throws Exception {
+        JSONArray corpus = new JSONArray(readResource("/psbt/parse_corpus.json"));
+        for (int i = 0; i < corpus.length(); i++) {
+            JSONObject testCase = corpus.getJSONObject(i);
+            String name = testCase.getString("name");
+            PsbtDecoder decoder = new PsbtDecoder(testCase.getBoolean("mainNet"));
+
+            if (testCase.optBoolean("unsafe")) {
+                try {
+                    decoder.decode(testCase.getString("psbt"));
+                    fail(name + ": decoded an unsafe psbt");
+                } catch (UnsafeTransactionException expected) {
+                    continue;
+                }
+            }
+
+            if (testCase.has("error") || testCase.optBoolean("fallback")) {
+                try {
+                    decoder.decode(testCase.getString("psbt"));
+                    fail(name + ": decoded a psbt the decoder should reject");
+                } catch (InvalidTransactionException expected) {
+                    continue;
+                }
+            }
+
+            JSONObject decoded = decoder.decode(testCase.getString("psbt")).toJson();
+            assertTrue(name + ": expected " + testCase.get("expected") + " but decoded " + decoded,
+                    BtcImpl.sameJson(testCase.get("expected"), decoded));
+        }
+    }
+
+    private static String readResource(String name) throws IOException {
+        try (InputStream in = PsbtDecoderTest.class.getResourceAsStream(name)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -32,6 +32,7 @@ import com.keystone.cold.encryptioncore.interfaces.Cipher;
 import com.keystone.cold.encryptioncore.interfaces.JobScheduler;
 import com.keystone.cold.encryptioncore.interfaces.SerialManagerProxy;
 import com.keystone.cold.encryptioncore.job.JobSchedulerImpl;
+import com.keystone.cold.encryptioncore.job.PipelinedJobScheduler;
 import com.keystone.cold.encryptioncore.serial.SerialManagerProxyImpl;
 import com.keystone.cold.encryptioncore.utils.Preconditions;
 
@@ -41,7 +42,14 @@ public class EncryptionCore implements JobScheduler {
 
     private EncryptionCore(@NonNull SerialManagerProxy serialManager, @NonNull Config config) {
         Preconditions.checkNotNull(serialManager);
-        mImpl = new JobSchedulerImpl(serialManager, getCipher(config.secretKey));
+
+        if (config.pipelineWindow > 1) {
+            mImpl = new PipelinedJobScheduler(serialManager, getCipher(config.secretKey),
+                    config.pipelineWindow, config.sessionIdleTimeout);
+        } else {
+            mImpl = new JobSchedulerImpl(serialManager, getCipher(config.secretKey),
+                    config.sessionIdleTimeout);
+        }
     }
 
     @NonNull
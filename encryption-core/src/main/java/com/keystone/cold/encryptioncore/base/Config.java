@@ -17,6 +17,7 @@
 
 package com.keystone.cold.encryptioncore.base;
 
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.util.Pair;
@@ -27,15 +28,22 @@ public class Config {
     @Nullable
     public final Pair<byte[], byte[]> secretKey;
     public final int portSpeed;
+    public final long sessionIdleTimeout;
+    public final int pipelineWindow;
 
-    private Config(@Nullable Pair<byte[], byte[]> secretKey, int portSpeed) {
+    private Config(@Nullable Pair<byte[], byte[]> secretKey, int portSpeed, long sessionIdleTimeout,
+                   int pipelineWindow) {
         this.secretKey = secretKey;
         this.portSpeed = portSpeed;
+        this.sessionIdleTimeout = sessionIdleTimeout;
+        this.pipelineWindow = pipelineWindow;
     }
 
     public static class Builder {
         private Pair<byte[], byte[]> mKey;
         private int mPortSpeed;
+        private long mSessionIdleTimeout;
+        private int mPipelineWindow = 1;
 
         public Builder setSecretKey(@NonNull byte[] desKey, @NonNull byte[] desKeyIv) {
             Preconditions.checkNotNull(desKey);
@@ -50,8 +58,31 @@ public class Config {
             return this;
         }
 
+        /**
+         * @param sessionIdleTimeout milliseconds the serial port stays open after the last packet,
+         *                           zero (default) opens and closes the port for every packet
+         */
+        public Builder setSessionIdleTimeout(@IntRange(from = 0) long sessionIdleTimeout) {
+            Preconditions.checkArgument(sessionIdleTimeout >= 0, "session idle timeout must not be negative");
+            this.mSessionIdleTimeout = sessionIdleTimeout;
+            return this;
+        }
+
+        /**
+         * @param pipelineWindow the number of packets that may be outstanding on the serial link,
+         *                       one (default) sends the next packet only after the previous reply.
+         *                       A larger window switches to the pipelined scheduler, which assumes
+         *                       the secure element answers packets with the same command id in order;
+         *                       validate that on the device before enabling it
+         */
+        public Builder setPipelineWindow(@IntRange(from = 1) int pipelineWindow) {
+            Preconditions.checkArgument(pipelineWindow > 0, "pipeline window must be positive");
+            this.mPipelineWindow = pipelineWindow;
+            return this;
+        }
+
         public Config build() {
-            return new Config(mKey, mPortSpeed);
+            return new Config(mKey, mPortSpeed, mSessionIdleTimeout, mPipelineWindow);
         }
     }
 }
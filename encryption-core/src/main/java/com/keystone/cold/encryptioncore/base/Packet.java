@@ -160,6 +160,13 @@ public class Packet {
             return this;
         }
 
+        public Builder addPayload(int payloadId, @NonNull Payload payload) {
+            Preconditions.checkNotNull(payload);
+            payloads.append(payloadId, payload);
+
+            return this;
+        }
+
         public Builder addTextPayload(int payloadId, @NonNull String text) {
             Preconditions.checkNotNull(text);
             final byte[] value = ByteFormatter.utf82bytes(text);
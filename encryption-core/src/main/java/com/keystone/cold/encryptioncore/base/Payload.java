@@ -23,42 +23,100 @@ import com.keystone.cold.encryptioncore.exception.ByteFormatException;
 import com.keystone.cold.encryptioncore.utils.ByteFormatter;
 import com.keystone.cold.encryptioncore.utils.Preconditions;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 public class Payload {
     private final byte[] value;
+    private final int offset;
+    private final int length;
 
     public Payload(@NonNull byte[] value) {
-        this.value = Preconditions.checkNotNull(value);
+        this(value, 0, Preconditions.checkNotNull(value).length);
+    }
+
+    /**
+     * Wraps {@code length} bytes of {@code array} starting at {@code offset} without copying,
+     * the array must not be modified afterwards.
+     */
+    public Payload(@NonNull byte[] array, int offset, int length) {
+        Preconditions.checkNotNull(array);
+        Preconditions.checkArgument(offset >= 0 && length >= 0 && offset + length <= array.length,
+                "payload range out of bounds");
+        this.value = array;
+        this.offset = offset;
+        this.length = length;
     }
 
     @NonNull
     public byte[] getValue() {
-        return value.clone();
+        return Arrays.copyOfRange(value, offset, offset + length);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Puts the value into {@code buffer} at its current position.
+     */
+    public void writeTo(@NonNull ByteBuffer buffer) {
+        buffer.put(value, offset, length);
+    }
+
+    /**
+     * @return {@code lrc} xor every byte of the value
+     */
+    public byte xor(byte lrc) {
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            lrc ^= value[i];
+        }
+
+        return lrc;
     }
 
     public int toInt() {
-        if (value.length == 1) {
-            return value[0] & 0xFF;
-        } else if (value.length == 2) {
-            return ByteFormatter.bytes2short(value);
-        } else if (value.length == 4) {
-            return ByteFormatter.bytes2int(value);
+        if (length == 1) {
+            return value[offset] & 0xFF;
+        } else if (length == 2) {
+            return (value[offset + 1] & 0xFF)
+                    | ((value[offset] & 0xFF) << 8);
+        } else if (length == 4) {
+            return (value[offset + 3] & 0xFF)
+                    | ((value[offset + 2] & 0xFF) << 8)
+                    | ((value[offset + 1] & 0xFF) << 16)
+                    | ((value[offset] & 0xFF) << 24);
         } else {
             throw new ByteFormatException("the length of values must be [one, two, four]");
         }
     }
 
     public String toHex() {
-        return ByteFormatter.bytes2hex(value);
+        return ByteFormatter.bytes2hex(getValue());
     }
 
     public String toUtf8() {
-        return ByteFormatter.bytes2utf8(value);
+        return new String(value, offset, length, StandardCharsets.UTF_8);
     }
 
     @Override
     public boolean equals(Object obj) {
-        return obj instanceof Payload && Arrays.equals(this.value, ((Payload) obj).value);
+        if (!(obj instanceof Payload)) {
+            return false;
+        }
+
+        final Payload other = (Payload) obj;
+        if (length != other.length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; ++i) {
+            if (value[offset + i] != other.value[other.offset + i]) {
+                return false;
+            }
+        }
+
+        return true;
     }
 }
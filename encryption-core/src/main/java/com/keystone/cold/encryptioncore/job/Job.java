@@ -31,14 +31,28 @@ import java.io.IOException;
 import java.util.concurrent.Callable;
 
 class Job implements Runnable {
+    private final SerialSession mSession;
     private final SerialManagerProxy mManager;
     private final Packet mPacket;
     private final Callback mCallback;
     private final Packer mPacker;
+    private final boolean mOwnsSession;
 
     Job(@NonNull SerialManagerProxy manager, @NonNull Packer packer,
         @NonNull Packet packet, @NonNull Callback callback) {
-        mManager = manager;
+        this(new SerialSession(manager, 0), packer, packet, callback, true);
+    }
+
+    Job(@NonNull SerialSession session, @NonNull Packer packer,
+        @NonNull Packet packet, @NonNull Callback callback) {
+        this(session, packer, packet, callback, false);
+    }
+
+    private Job(@NonNull SerialSession session, @NonNull Packer packer,
+                @NonNull Packet packet, @NonNull Callback callback, boolean ownsSession) {
+        mSession = session;
+        mOwnsSession = ownsSession;
+        mManager = session.getManager();
         mPacker = packer;
         mPacket = packet;
         mCallback = callback;
@@ -58,6 +72,16 @@ class Job implements Runnable {
 
     @Override
     public void run() {
+        try {
+            communicate();
+        } finally {
+            if (mOwnsSession) {
+                mSession.close();
+            }
+        }
+    }
+
+    private void communicate() {
         mManager.acquireWakeLock();
         final int maxRetryTimes = mPacket.getRetryTimes();
 
@@ -88,21 +112,17 @@ class Job implements Runnable {
 
     @NonNull
     private Packet portCommunicate() throws Exception {
-        SerialPortProxy port = null;
+        boolean healthy = false;
 
         try {
-            port = openPort(mManager);
-            final Callable<Packet> callable = new Workshop(port, mPacker, mPacket);
-            return callable.call();
+            final SerialPortProxy port = mSession.acquire();
+            final Callable<Packet> callable = new Workshop(port, mPacker, mPacket,
+                    mSession.getReader(), mSession.getReaderExecutor());
+            final Packet result = callable.call();
+            healthy = true;
+            return result;
         } finally {
-            if (port != null) {
-                try {
-                    port.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
+            mSession.release(healthy);
         }
-
     }
 }
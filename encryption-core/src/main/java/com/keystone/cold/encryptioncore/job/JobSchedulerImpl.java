@@ -17,8 +17,10 @@
 
 package com.keystone.cold.encryptioncore.job;
 
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.keystone.cold.encryptioncore.base.Packet;
 import com.keystone.cold.encryptioncore.interfaces.Callback;
@@ -31,18 +33,32 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class JobSchedulerImpl implements JobScheduler {
-    private final SerialManagerProxy mManager;
+    private final SerialSession mSession;
     private final ExecutorService mExecutor;
-    private final Cipher mCipher;
+    private final PackerImpl mPacker;
 
     public JobSchedulerImpl(@NonNull SerialManagerProxy manager, @Nullable Cipher cipher) {
-        mManager = Preconditions.checkNotNull(manager);
-        mCipher = cipher;
+        this(manager, cipher, 0);
+    }
+
+    /**
+     * @param sessionIdleTimeout milliseconds the serial port stays open after the last packet,
+     *                           zero to open and close the port for every packet
+     */
+    public JobSchedulerImpl(@NonNull SerialManagerProxy manager, @Nullable Cipher cipher,
+                            @IntRange(from = 0) long sessionIdleTimeout) {
+        mSession = new SerialSession(Preconditions.checkNotNull(manager), sessionIdleTimeout);
+        mPacker = new PackerImpl(cipher);
         mExecutor = Executors.newSingleThreadExecutor();
     }
 
     @Override
     public void offer(@NonNull Packet packet, @NonNull Callback callback) {
-        mExecutor.submit(new Job(mManager, new PackerImpl(mCipher), packet, callback));
+        mExecutor.submit(new Job(mSession, mPacker, packet, callback));
+    }
+
+    @VisibleForTesting
+    SerialSession getSession() {
+        return mSession;
     }
 }
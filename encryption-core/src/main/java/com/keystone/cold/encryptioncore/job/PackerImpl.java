@@ -30,11 +30,19 @@ import com.keystone.cold.encryptioncore.interfaces.Packer;
 import com.keystone.cold.encryptioncore.utils.ByteFormatter;
 import com.keystone.cold.encryptioncore.utils.Preconditions;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+/**
+ * Frame codec, wire format: STX | encryption | len(body) | body | ETX | LRC, where body is a
+ * sequence of tag(2) | len(2) | value TLVs and LRC is the xor of every preceding byte.
+ * <p>
+ * Unencrypted frames are written in one pass with the LRC accumulated while writing, into a
+ * new array by {@link #serialize(Packet)} or into a caller owned buffer by
+ * {@link #serialize(Packet, ByteBuffer)}, which only the pipelined scheduler reuses across packets.
+ * Received frames are parsed in place, their payloads are slices of the frame array.
+ */
 class PackerImpl implements Packer {
     private final Cipher mCipher;
 
@@ -45,28 +53,53 @@ class PackerImpl implements Packer {
     @Override
     public byte[] serialize(@NonNull Packet packet) throws Exception {
         Preconditions.checkNotNull(packet);
-        byte[] body = serializeBody(packet);
-        body = mCipher != null ? mCipher.encrypt(body) : body;
+        fitPayload(packet, CONSTANTS.TAGS.PACKET_ID, ByteFormatter.short2bytes(packet.getId()));
 
-        if (body.length > CONSTANTS.MAX_BODY_SIZE) {
-            throw new IllegalArgumentException(String.format("the length of packet body [%s] is greater than %s",
-                    body.length, CONSTANTS.MAX_BODY_SIZE));
+        if (mCipher != null) {
+            final byte[] body = mCipher.encrypt(serializePayloads(packet.getPayloads()));
+            checkBodySize(body.length);
+
+            final byte[] frame = new byte[CONSTANTS.MIN_BUFFER_SIZE + body.length];
+            final ByteBuffer buffer = ByteBuffer.wrap(frame);
+            byte lrc = putHeader(buffer, CONSTANTS.ENCRYPTION_STATUS.ENABLED, body.length);
+            buffer.put(body);
+            lrc = xor(lrc, body, 0, body.length);
+            putTrailer(buffer, lrc);
+            return frame;
         }
 
-        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final int lenOfBody = measurePayloads(packet.getPayloads());
+        checkBodySize(lenOfBody);
 
-        outputStream.write(CONSTANTS.STX);
-        outputStream.write(mCipher != null ?
-                CONSTANTS.ENCRYPTION_STATUS.ENABLED : CONSTANTS.ENCRYPTION_STATUS.DISABLED
-        );
-        outputStream.write(ByteFormatter.short2bytes(body.length));
-        outputStream.write(body);
-        outputStream.write(CONSTANTS.ETX);
+        final byte[] frame = new byte[CONSTANTS.MIN_BUFFER_SIZE + lenOfBody];
+        serialize(packet, ByteBuffer.wrap(frame));
+        return frame;
+    }
+
+    /**
+     * Writes the frame of an unencrypted packet into {@code target} at its current position.
+     *
+     * @return the length of the frame
+     */
+    int serialize(@NonNull Packet packet, @NonNull ByteBuffer target) {
+        Preconditions.checkNotNull(packet);
+        Preconditions.checkState(mCipher == null, "encrypted packets can not be written in place");
+        fitPayload(packet, CONSTANTS.TAGS.PACKET_ID, ByteFormatter.short2bytes(packet.getId()));
 
-        final byte lrc = calculateLRC(outputStream.toByteArray());
-        outputStream.write(lrc);
+        final SparseArrayCompat<Payload> payloads = packet.getPayloads();
+        final int lenOfBody = measurePayloads(payloads);
+        checkBodySize(lenOfBody);
 
-        return outputStream.toByteArray();
+        byte lrc = putHeader(target, CONSTANTS.ENCRYPTION_STATUS.DISABLED, lenOfBody);
+        for (int i = 0, size = payloads.size(); i < size; ++i) {
+            final Payload payload = payloads.valueAt(i);
+            if (payload != null) {
+                lrc = putTLV(target, payloads.keyAt(i), payload, lrc);
+            }
+        }
+        putTrailer(target, lrc);
+
+        return CONSTANTS.MIN_BUFFER_SIZE + lenOfBody;
     }
 
     @NonNull
@@ -82,35 +115,70 @@ class PackerImpl implements Packer {
         }
     }
 
+    private static void checkBodySize(int lenOfBody) {
+        if (lenOfBody > CONSTANTS.MAX_BODY_SIZE) {
+            throw new IllegalArgumentException(String.format("the length of packet body [%s] is greater than %s",
+                    lenOfBody, CONSTANTS.MAX_BODY_SIZE));
+        }
+    }
+
+    private static int measurePayloads(@NonNull SparseArrayCompat<Payload> payloads) {
+        int length = 0;
+
+        for (int i = 0, size = payloads.size(); i < size; ++i) {
+            final Payload payload = payloads.valueAt(i);
+            if (payload != null) {
+                length += 4 + payload.length();
+            }
+        }
+
+        return length;
+    }
+
     @NonNull
     @VisibleForTesting
-    byte[] serializePayloads(@NonNull SparseArrayCompat<Payload> payloads) throws
-            IOException {
-        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    byte[] serializePayloads(@NonNull SparseArrayCompat<Payload> payloads) {
+        final ByteBuffer buffer = ByteBuffer.allocate(measurePayloads(payloads));
 
         for (int i = 0, size = payloads.size(); i < size; ++i) {
-            final int tag = payloads.keyAt(i);
             final Payload payload = payloads.valueAt(i);
-
-            if (payload == null) {
-                continue;
+            if (payload != null) {
+                putTLV(buffer, payloads.keyAt(i), payload, (byte) 0);
             }
-
-            outputStream.write(serializeTLV(tag, payload.getValue()));
         }
 
-        return outputStream.toByteArray();
+        return buffer.array();
     }
 
     @NonNull
     @VisibleForTesting
     byte[] serializeTLV(int tag, @NonNull byte[] value) {
-        final byte[] bytes = new byte[2 + 2 + value.length];
-        System.arraycopy(ByteFormatter.short2bytes(tag), 0, bytes, 0, 2);
-        System.arraycopy(ByteFormatter.short2bytes(value.length), 0, bytes, 2, 2);
-        System.arraycopy(value, 0, bytes, 4, value.length);
+        final ByteBuffer buffer = ByteBuffer.allocate(4 + value.length);
+        putTLV(buffer, tag, new Payload(value), (byte) 0);
 
-        return bytes;
+        return buffer.array();
+    }
+
+    private static byte putHeader(@NonNull ByteBuffer buffer, int encryption, int lenOfBody) {
+        buffer.put(CONSTANTS.STX);
+        buffer.put((byte) encryption);
+        buffer.putShort((short) lenOfBody);
+
+        return (byte) (CONSTANTS.STX ^ encryption ^ (lenOfBody >> 8) ^ lenOfBody);
+    }
+
+    private static void putTrailer(@NonNull ByteBuffer buffer, byte lrc) {
+        buffer.put(CONSTANTS.ETX);
+        buffer.put((byte) (lrc ^ CONSTANTS.ETX));
+    }
+
+    private static byte putTLV(@NonNull ByteBuffer buffer, int tag, @NonNull Payload payload, byte lrc) {
+        final int length = payload.length();
+        buffer.putShort((short) tag);
+        buffer.putShort((short) length);
+        payload.writeTo(buffer);
+
+        return payload.xor((byte) (lrc ^ (tag >> 8) ^ tag ^ (length >> 8) ^ length));
     }
 
     @Override
@@ -120,19 +188,29 @@ class PackerImpl implements Packer {
 
         final boolean encrypt = bytes[1] == CONSTANTS.ENCRYPTION_STATUS.ENABLED;
         Preconditions.checkState(!(encrypt && mCipher == null), "encrypt disabled but got encrypted data");
-        final int lenOfBody = ByteFormatter.bytes2short(new byte[]{bytes[2], bytes[3]});
-        byte[] body = Arrays.copyOfRange(bytes, 4, 4 + lenOfBody);
-        body = encrypt ? mCipher.decrypt(body) : body;
+        final int lenOfBody = ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+        if (lenOfBody != bytes.length - CONSTANTS.MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException(String.format("the length of body is %s, but the frame carries %s bytes",
+                    lenOfBody, bytes.length - CONSTANTS.MIN_BUFFER_SIZE));
+        }
 
-        final Packet.Builder builder = deserializeBody(body);
+        if (encrypt) {
+            final byte[] body = mCipher.decrypt(Arrays.copyOfRange(bytes, 4, 4 + lenOfBody));
+            return deserializeBody(body, 0, body.length).build();
+        }
 
-        return builder.build();
+        return deserializeBody(bytes, 4, lenOfBody).build();
     }
 
     @NonNull
     @VisibleForTesting
     Packet.Builder deserializeBody(@NonNull byte[] bytes) {
-        final SparseArrayCompat<Payload> payloads = deserializePayloads(bytes);
+        return deserializeBody(bytes, 0, bytes.length);
+    }
+
+    @NonNull
+    private Packet.Builder deserializeBody(@NonNull byte[] bytes, int offset, int length) {
+        final SparseArrayCompat<Payload> payloads = deserializePayloads(bytes, offset, length);
 
         Preconditions.checkState(payloads.indexOfKey(CONSTANTS.TAGS.PACKET_ID) >= 0,
                 "deserialize data has no id which tag is %s");
@@ -141,10 +219,7 @@ class PackerImpl implements Packer {
         final Packet.Builder builder = new Packet.Builder(packetId);
 
         for (int i = 0, size = payloads.size(); i < size; ++i) {
-            final int tag = payloads.keyAt(i);
-            final Payload payload = Preconditions.checkNotNull(payloads.valueAt(i));
-
-            builder.addBytesPayload(tag, payload.getValue());
+            builder.addPayload(payloads.keyAt(i), Preconditions.checkNotNull(payloads.valueAt(i)));
         }
 
         return builder;
@@ -153,67 +228,69 @@ class PackerImpl implements Packer {
     @NonNull
     @VisibleForTesting
     SparseArrayCompat<Payload> deserializePayloads(@NonNull byte[] bytes) {
-        final SparseArrayCompat<Payload> payloads = new SparseArrayCompat<>();
-        final ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
-        inputStream.reset();
-
-        int offset = 0;
-        int available = inputStream.available();
+        return deserializePayloads(bytes, 0, bytes.length);
+    }
 
-        while (offset < available) {
-            final byte[] twoBytesBuffer = new byte[2];
-            inputStream.read(twoBytesBuffer, 0, 2);
-            offset += 2;
-            final int tag = ByteFormatter.bytes2short(twoBytesBuffer);
+    @NonNull
+    private SparseArrayCompat<Payload> deserializePayloads(@NonNull byte[] bytes, int offset, int length) {
+        final SparseArrayCompat<Payload> payloads = new SparseArrayCompat<>();
+        final int end = offset + length;
 
-            inputStream.read(twoBytesBuffer, 0, 2);
-            offset += 2;
-            final int lenOfVal = ByteFormatter.bytes2short(twoBytesBuffer);
+        while (offset < end) {
+            Preconditions.checkState(end - offset >= 4, "illegal data");
+            final int tag = ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+            final int lenOfVal = ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+            offset += 4;
 
-            final byte[] valueBuffer = new byte[lenOfVal];
-            inputStream.read(valueBuffer, 0, lenOfVal);
+            Preconditions.checkState(end - offset >= lenOfVal, "illegal data");
+            payloads.put(tag, new Payload(bytes, offset, lenOfVal));
             offset += lenOfVal;
-            payloads.put(tag, new Payload(valueBuffer));
         }
 
-        Preconditions.checkState(offset == available, "illegal data");
         return payloads;
     }
 
     @VisibleForTesting
     void checkSerializedData(@NonNull byte[] bytes) {
         Preconditions.checkNotNull(bytes);
-        Preconditions.checkArgument(bytes.length >= CONSTANTS.MIN_BUFFER_SIZE,
-                String.format("the length of bytes must be greater or equal to %s",
-                        CONSTANTS.MIN_BUFFER_SIZE));
 
-        Preconditions.checkArgument(bytes[0] == CONSTANTS.STX,
-                String.format("the first byte must be constant %s",
-                        ByteFormatter.addHexPrefix(CONSTANTS.STX)));
+        if (bytes.length < CONSTANTS.MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException(String.format("the length of bytes must be greater or equal to %s",
+                    CONSTANTS.MIN_BUFFER_SIZE));
+        }
 
-        Preconditions.checkArgument(bytes[1] == CONSTANTS.ENCRYPTION_STATUS.DISABLED
-                        || bytes[1] == CONSTANTS.ENCRYPTION_STATUS.ENABLED,
-                String.format("the second byte must be one of [%s, %s]",
-                        ByteFormatter.addHexPrefix(CONSTANTS.ENCRYPTION_STATUS.DISABLED),
-                        ByteFormatter.addHexPrefix(CONSTANTS.ENCRYPTION_STATUS.ENABLED)));
+        if (bytes[0] != CONSTANTS.STX) {
+            throw new IllegalArgumentException(String.format("the first byte must be constant %s",
+                    ByteFormatter.addHexPrefix(CONSTANTS.STX)));
+        }
+
+        if (bytes[1] != CONSTANTS.ENCRYPTION_STATUS.DISABLED
+                && bytes[1] != CONSTANTS.ENCRYPTION_STATUS.ENABLED) {
+            throw new IllegalArgumentException(String.format("the second byte must be one of [%s, %s]",
+                    ByteFormatter.addHexPrefix(CONSTANTS.ENCRYPTION_STATUS.DISABLED),
+                    ByteFormatter.addHexPrefix(CONSTANTS.ENCRYPTION_STATUS.ENABLED)));
+        }
 
-        Preconditions.checkArgument(bytes[bytes.length - 2] == CONSTANTS.ETX,
-                String.format("the second to last byte must be constant %s",
-                        ByteFormatter.addHexPrefix(CONSTANTS.ETX)));
+        if (bytes[bytes.length - 2] != CONSTANTS.ETX) {
+            throw new IllegalArgumentException(String.format("the second to last byte must be constant %s",
+                    ByteFormatter.addHexPrefix(CONSTANTS.ETX)));
+        }
 
-        Preconditions.checkArgument(bytes[bytes.length - 1] ==
-                        calculateLRC(Arrays.copyOf(bytes, bytes.length - 1)),
-                String.format("lrc is not the same, expected %s, but actual is %s",
-                        bytes[bytes.length - 1],
-                        calculateLRC(Arrays.copyOf(bytes, bytes.length - 1))));
+        final byte lrc = xor((byte) 0, bytes, 0, bytes.length - 1);
+        if (bytes[bytes.length - 1] != lrc) {
+            throw new IllegalArgumentException(String.format("lrc is not the same, expected %s, but actual is %s",
+                    bytes[bytes.length - 1], lrc));
+        }
     }
 
     @VisibleForTesting
     byte calculateLRC(@NonNull byte[] bytes) {
-        byte lrc = 0x0;
+        return xor((byte) 0, bytes, 0, bytes.length);
+    }
 
-        for (byte b : bytes) {
-            lrc ^= b;
+    private static byte xor(byte lrc, @NonNull byte[] bytes, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            lrc ^= bytes[i];
         }
 
         return lrc;
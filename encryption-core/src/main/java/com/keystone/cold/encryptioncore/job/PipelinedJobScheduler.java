@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.encryptioncore.job;
+
+import android.util.Log;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.collection.SparseArrayCompat;
+
+import com.keystone.cold.encryptioncore.base.Packet;
+import com.keystone.cold.encryptioncore.interfaces.CONSTANTS;
+import com.keystone.cold.encryptioncore.interfaces.Callback;
+import com.keystone.cold.encryptioncore.interfaces.Cipher;
+import com.keystone.cold.encryptioncore.interfaces.JobScheduler;
+import com.keystone.cold.encryptioncore.interfaces.SerialManagerProxy;
+import com.keystone.cold.encryptioncore.interfaces.SerialPortProxy;
+import com.keystone.cold.encryptioncore.utils.ByteFormatter;
+import com.keystone.cold.encryptioncore.utils.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Scheduler that keeps up to {@code window} packets outstanding on the serial link.
+ * <p>
+ * Packets are written by a writer thread as long as the window has room and replies are
+ * read by a reader thread, which matches each reply to the oldest outstanding packet with
+ * the same {@link com.keystone.cold.encryptioncore.interfaces.CONSTANTS.TAGS#PACKET_ID}.
+ * Every packet has its own timeout; timed out or failed packets are resent until
+ * {@link Packet#getRetryTimes()} is exhausted. An I/O or framing error drops the port
+ * and fails every outstanding packet, so the next packet reconnects.
+ * <p>
+ * Replies carry no more than the command id, so a reply that arrives after its packet
+ * timed out would be taken for the next outstanding packet with the same id. A timeout
+ * therefore drops the port as well: the timed out packet is retried or failed and the
+ * other outstanding packets are sent again on a new port, without using up a retry.
+ * <p>
+ * Matching replies in order relies on the secure element answering packets with the same
+ * command id first in, first out, which has not been verified on a device yet. The scheduler
+ * is only used when {@link com.keystone.cold.encryptioncore.base.Config.Builder#setPipelineWindow(int)}
+ * is set above one, which no build does until that has been validated.
+ */
+public class PipelinedJobScheduler implements JobScheduler {
+    private static final String TAG = "EncryptionCore.Pipeline";
+    private static final int DEFAULT_TIMEOUT = 60; // seconds
+
+    private final SerialManagerProxy mManager;
+    private final PackerImpl mPacker;
+    private final boolean mEncrypted;
+    private final long mIdleTimeout;
+    private final Semaphore mWindow;
+    private final ExecutorService mWriter = Executors.newSingleThreadExecutor();
+    private final ExecutorService mReader = Executors.newSingleThreadExecutor();
+    private final ScheduledExecutorService mTimer = Executors.newSingleThreadScheduledExecutor();
+    // written by the writer thread only
+    private final ByteBuffer mWriteBuffer = ByteBuffer.allocateDirect(CONSTANTS.MAX_BUFFER_SIZE);
+
+    // guarded by this
+    private final SparseArrayCompat<ArrayDeque<Entry>> mInFlight = new SparseArrayCompat<>();
+    private int mInFlightCount;
+    private SerialPortProxy mPort;
+    private Future<?> mReaderTask;
+    private ScheduledFuture<?> mIdleClose;
+
+    /**
+     * @param window      the maximum number of packets written but not yet answered
+     * @param idleTimeout milliseconds the serial port stays open after the last reply
+     */
+    public PipelinedJobScheduler(@NonNull SerialManagerProxy manager, @Nullable Cipher cipher,
+                                 @IntRange(from = 1) int window, @IntRange(from = 0) long idleTimeout) {
+        Preconditions.checkArgument(window > 0, "window must be positive");
+        Preconditions.checkArgument(idleTimeout >= 0, "idle timeout must not be negative");
+        mManager = Preconditions.checkNotNull(manager);
+        mPacker = new PackerImpl(cipher);
+        mEncrypted = cipher != null;
+        mWindow = new Semaphore(window, true);
+        mIdleTimeout = idleTimeout;
+    }
+
+    @Override
+    public void offer(@NonNull Packet packet, @NonNull Callback callback) {
+        Preconditions.checkNotNull(packet);
+        Preconditions.checkNotNull(callback);
+
+        mManager.acquireWakeLock();
+        mWriter.submit(() -> send(new Entry(packet, callback, 0)));
+    }
+
+    @VisibleForTesting
+    synchronized int getInFlightCount() {
+        return mInFlightCount;
+    }
+
+    private void send(@NonNull Entry entry) {
+        mWindow.acquireUninterruptibly();
+
+        final SerialPortProxy port;
+        final int length;
+
+        try {
+            length = writeFrame(entry.packet);
+
+            synchronized (this) {
+                port = ensurePort();
+                track(entry);
+            }
+        } catch (Exception e) {
+            mWindow.release();
+            finish(entry, null, e);
+            return;
+        }
+
+        try {
+            port.write(mWriteBuffer, length);
+        } catch (Exception e) {
+            onLinkError(port, e);
+        }
+    }
+
+    private int writeFrame(@NonNull Packet packet) throws Exception {
+        mWriteBuffer.clear();
+
+        if (mEncrypted) {
+            mWriteBuffer.put(mPacker.serialize(packet));
+        } else {
+            mPacker.serialize(packet, mWriteBuffer);
+        }
+
+        mWriteBuffer.flip();
+        return mWriteBuffer.limit();
+    }
+
+    private void readLoop(@NonNull SerialPortProxy port) {
+        final SerialReader reader = new SerialReader(port);
+
+        while (!Thread.currentThread().isInterrupted()) {
+            final byte[] frame;
+
+            try {
+                frame = reader.call();
+            } catch (Exception e) {
+                onLinkError(port, e);
+                return;
+            }
+
+            final Packet reply;
+            try {
+                reply = mPacker.deserialize(frame);
+            } catch (Exception e) {
+                // the packet it belongs to will time out and be resent
+                Log.w(TAG, "drop undecodable reply: " + ByteFormatter.bytes2hex(frame), e);
+                continue;
+            }
+
+            final Entry entry;
+            synchronized (this) {
+                if (port != mPort) {
+                    // the port was dropped while the frame was read, its packets are resent
+                    return;
+                }
+                entry = untrackOldest(reply.getId());
+            }
+
+            if (entry == null) {
+                Log.w(TAG, "drop unexpected reply " + ByteFormatter.addHexPrefix(reply.getId()));
+            } else {
+                complete(entry, reply, null);
+            }
+        }
+    }
+
+    private void onLinkError(@NonNull SerialPortProxy port, @NonNull Exception error) {
+        final List<Entry> failed = new ArrayList<>();
+
+        synchronized (this) {
+            if (port != mPort) {
+                // the port has already been dropped, nothing left to fail
+                return;
+            }
+
+            drainInFlight(failed);
+            releasePort();
+        }
+
+        for (Entry entry : failed) {
+            entry.cancelTimeout();
+            mWindow.release();
+            finish(entry, null, error);
+        }
+    }
+
+    private void onTimeout(@NonNull Entry entry) {
+        final List<Entry> outstanding = new ArrayList<>();
+
+        synchronized (this) {
+            if (!isTracked(entry)) {
+                // answered or failed in the meantime
+                return;
+            }
+
+            // the late reply must not reach another packet with the same id
+            drainInFlight(outstanding);
+            releasePort();
+        }
+
+        final TimeoutException error = new TimeoutException(String.format("packet %s timed out",
+                ByteFormatter.addHexPrefix(entry.packet.getId())));
+        for (Entry e : outstanding) {
+            e.cancelTimeout();
+            mWindow.release();
+            if (e == entry) {
+                finish(e, null, error);
+            } else {
+                mWriter.submit(() -> send(new Entry(e.packet, e.callback, e.attempt)));
+            }
+        }
+    }
+
+    private void complete(@NonNull Entry entry, @Nullable Packet reply, @Nullable Exception error) {
+        entry.cancelTimeout();
+        mWindow.release();
+        finish(entry, reply, error);
+    }
+
+    private void finish(@NonNull Entry entry, @Nullable Packet reply, @Nullable Exception error) {
+        if (reply != null) {
+            entry.callback.onSuccess(reply);
+            mManager.releaseWakeLock();
+        } else if (entry.attempt < entry.packet.getRetryTimes()) {
+            mWriter.submit(() -> send(new Entry(entry.packet, entry.callback, entry.attempt + 1)));
+        } else {
+            entry.callback.onFail(Preconditions.checkNotNull(error));
+            mManager.releaseWakeLock();
+        }
+    }
+
+    // guarded by this
+    @NonNull
+    private SerialPortProxy ensurePort() throws IOException {
+        if (mIdleClose != null) {
+            mIdleClose.cancel(false);
+            mIdleClose = null;
+        }
+
+        if (mPort == null) {
+            final SerialPortProxy port = Job.openPort(mManager);
+            mPort = port;
+            mReaderTask = mReader.submit(() -> readLoop(port));
+        }
+
+        return mPort;
+    }
+
+    // guarded by this
+    private void releasePort() {
+        if (mIdleClose != null) {
+            mIdleClose.cancel(false);
+            mIdleClose = null;
+        }
+
+        if (mPort != null) {
+            mReaderTask.cancel(true);
+            mReaderTask = null;
+
+            try {
+                mPort.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            mPort = null;
+        }
+    }
+
+    private synchronized void closeIfIdle() {
+        if (mInFlightCount == 0) {
+            releasePort();
+        }
+    }
+
+    // guarded by this
+    private void track(@NonNull Entry entry) {
+        final int id = entry.packet.getId();
+        ArrayDeque<Entry> entries = mInFlight.get(id);
+        if (entries == null) {
+            entries = new ArrayDeque<>();
+            mInFlight.put(id, entries);
+        }
+
+        entries.addLast(entry);
+        ++mInFlightCount;
+
+        final int timeout = entry.packet.getTimeout() == 0 ? DEFAULT_TIMEOUT : entry.packet.getTimeout();
+        entry.timeout = mTimer.schedule(() -> onTimeout(entry), timeout, TimeUnit.SECONDS);
+    }
+
+    // guarded by this
+    private boolean isTracked(@NonNull Entry entry) {
+        final ArrayDeque<Entry> entries = mInFlight.get(entry.packet.getId());
+        return entries != null && entries.contains(entry);
+    }
+
+    // guarded by this
+    private void drainInFlight(@NonNull List<Entry> out) {
+        for (int i = 0, size = mInFlight.size(); i < size; ++i) {
+            out.addAll(mInFlight.valueAt(i));
+        }
+        mInFlight.clear();
+        mInFlightCount = 0;
+    }
+
+    // guarded by this
+    @Nullable
+    private Entry untrackOldest(int id) {
+        final ArrayDeque<Entry> entries = mInFlight.get(id);
+        if (entries == null || entries.isEmpty()) {
+            return null;
+        }
+
+        final Entry entry = entries.peekFirst();
+        untrack(entry);
+        return entry;
+    }
+
+    // guarded by this
+    private boolean untrack(@NonNull Entry entry) {
+        final int id = entry.packet.getId();
+        final ArrayDeque<Entry> entries = mInFlight.get(id);
+        if (entries == null || !entries.remove(entry)) {
+            return false;
+        }
+
+        if (entries.isEmpty()) {
+            mInFlight.remove(id);
+        }
+
+        if (--mInFlightCount == 0 && mPort != null) {
+            mIdleClose = mTimer.schedule(this::closeIfIdle, mIdleTimeout, TimeUnit.MILLISECONDS);
+        }
+
+        return true;
+    }
+
+    private static class Entry {
+        final Packet packet;
+        final Callback callback;
+        final int attempt;
+        volatile ScheduledFuture<?> timeout;
+
+        Entry(@NonNull Packet packet, @NonNull Callback callback, int attempt) {
+            this.packet = packet;
+            this.callback = callback;
+            this.attempt = attempt;
+        }
+
+        void cancelTimeout() {
+            final ScheduledFuture<?> future = timeout;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
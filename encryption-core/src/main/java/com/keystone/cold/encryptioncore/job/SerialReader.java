@@ -23,6 +23,7 @@ import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
+import com.keystone.cold.encryptioncore.BuildConfig;
 import com.keystone.cold.encryptioncore.interfaces.CONSTANTS;
 import com.keystone.cold.encryptioncore.interfaces.SerialPortProxy;
 import com.keystone.cold.encryptioncore.utils.ByteFormatter;
@@ -31,16 +32,35 @@ import com.keystone.cold.encryptioncore.utils.Preconditions;
 import java.nio.ByteBuffer;
 import java.util.concurrent.Callable;
 
-import static com.keystone.cold.encryptioncore.interfaces.CONSTANTS.STX;
-
+/**
+ * Reads frames from a serial port into one recycled direct buffer.
+ * <p>
+ * Bytes received after a frame are kept for the next call. Bytes that can not start a
+ * frame, such as debug output of the secure element, are skipped until the next STX.
+ * A reader is meant to live as long as its port and must not be called concurrently.
+ */
 class SerialReader implements Callable<byte[]> {
     private static final String TAG = "EncryptionCore.SerialReader";
-    private final SerialPortProxy mPort;
+    private static final int BUFFER_SIZE = CONSTANTS.MAX_BUFFER_SIZE * 2;
+
+    private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private SerialPortProxy mPort;
+    private int mStart; // first byte not consumed yet
+    private int mLimit; // end of the received bytes
 
     SerialReader(@NonNull SerialPortProxy port) {
         mPort = Preconditions.checkNotNull(port);
     }
 
+    /**
+     * Reuses this reader and its buffer for another port, dropping any buffered bytes.
+     */
+    void attach(@NonNull SerialPortProxy port) {
+        mPort = Preconditions.checkNotNull(port);
+        mStart = 0;
+        mLimit = 0;
+    }
+
     /**
      * @param buffer    readable byte buffer
      * @param milestone current milestone
@@ -69,6 +89,8 @@ class SerialReader implements Callable<byte[]> {
             case 2: { // the length of body
                 final int length = buffer.getShort(position);
                 Preconditions.checkArgument(length > 0, "the length of body must be positive");
+                Preconditions.checkArgument(length <= CONSTANTS.MAX_BODY_SIZE,
+                        "the length of body must not exceed the maximum body size");
 
                 return length; // sizeOf(len)
             }
@@ -95,49 +117,98 @@ class SerialReader implements Callable<byte[]> {
 
     @Override
     public byte[] call() throws Exception {
-        final ByteBuffer buffer = ByteBuffer.allocateDirect(CONSTANTS.MAX_BUFFER_SIZE);
+        while (true) {
+            final int length = scanFrame();
+
+            if (length > 0) {
+                final byte[] bytes = new byte[length];
+                mBuffer.limit(mStart + length);
+                mBuffer.position(mStart);
+                mBuffer.get(bytes);
+                mBuffer.limit(BUFFER_SIZE);
+                mStart += length;
+
+                return bytes;
+            }
 
-        boolean looping = true;
-        int position = 0;
-        int limit = 0;
-        int target = 1; // sizeOf(stx)
+            if (Thread.interrupted()) {
+                throw new InterruptedException("serial reader interrupted");
+            }
+
+            if (mStart == mLimit) {
+                mStart = 0;
+                mLimit = 0;
+            } else if (BUFFER_SIZE - mLimit < CONSTANTS.MAX_BUFFER_SIZE) {
+                mBuffer.limit(mLimit);
+                mBuffer.position(mStart);
+                mBuffer.compact();
+                mBuffer.limit(BUFFER_SIZE);
+                mLimit -= mStart;
+                mStart = 0;
+            }
+
+            // the port fills the buffer from offset
+            mBuffer.limit(BUFFER_SIZE);
+            mBuffer.position(mLimit);
+            mLimit += mPort.read(mBuffer, mLimit);
+        }
+    }
+
+    /**
+     * Walks the milestones of the frame at {@link #mStart}, skipping bytes that can not
+     * start a frame.
+     *
+     * @return the length of the complete frame, or zero if more bytes are needed
+     */
+    private int scanFrame() {
         int milestone = 0;
-        int read;
-
-        while (looping) {
-            read = mPort.read(buffer, limit);
-            if (read != 0) {
-                byte[] data = new byte[read];
-                int pos = buffer.position();
-                buffer.get(data);
-                buffer.position(pos);
-                if (buffer.get(0) != STX) {
-                    Log.w(TAG, "receive: " + ByteFormatter.bytes2utf8(data));
-                    buffer.position(0);
-                    continue;
-                }
+        int position = mStart;
+        int target = 1; // sizeOf(stx)
+
+        while (mLimit - position >= target) {
+            final int newTarget;
+
+            try {
+                newTarget = checkMilestone(mBuffer, milestone, position);
+            } catch (IllegalArgumentException e) {
+                skipGarbage();
+                milestone = 0;
+                position = mStart;
+                target = 1;
+                continue;
             }
 
-            limit += read;
-            while (limit - position >= target) {
-                final int newTarget = checkMilestone(buffer, milestone, position);
-
-                if (newTarget == 0) {
-                    looping = false;
-                    position += 1;
-                    break;
-                }
-                ++milestone;
-                position += target;
-                target = newTarget;
+            if (newTarget == 0) {
+                return position + 1 - mStart;
             }
+
+            ++milestone;
+            position += target;
+            target = newTarget;
         }
 
-        buffer.position(position);
-        buffer.flip();
-        final byte[] bytes = new byte[position];
-        buffer.get(bytes);
+        return 0;
+    }
+
+    /**
+     * Drops the byte at {@link #mStart} and everything up to the next STX.
+     */
+    private void skipGarbage() {
+        int next = mStart + 1;
+        while (next < mLimit && mBuffer.get(next) != CONSTANTS.STX) {
+            ++next;
+        }
+
+        if (BuildConfig.DEBUG) {
+            final byte[] garbage = new byte[next - mStart];
+            for (int i = 0; i < garbage.length; ++i) {
+                garbage[i] = mBuffer.get(mStart + i);
+            }
+            Log.w(TAG, "receive: " + ByteFormatter.bytes2utf8(garbage));
+        } else {
+            Log.w(TAG, "skip " + (next - mStart) + " bytes before stx");
+        }
 
-        return bytes;
+        mStart = next;
     }
 }
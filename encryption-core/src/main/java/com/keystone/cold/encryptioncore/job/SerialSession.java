@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.encryptioncore.job;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.keystone.cold.encryptioncore.interfaces.SerialManagerProxy;
+import com.keystone.cold.encryptioncore.interfaces.SerialPortProxy;
+import com.keystone.cold.encryptioncore.utils.Preconditions;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the serial port on behalf of the jobs.
+ * <p>
+ * With a positive idle timeout the port is opened on the first packet, kept open
+ * across packets and closed once no packet has been sent for the idle timeout.
+ * A failed exchange drops the port, so the next packet reconnects.
+ * With an idle timeout of zero the port is opened and closed for every packet.
+ * <p>
+ * Replies are read by one long-lived reader thread through one {@link SerialReader},
+ * which is moved to every newly opened port.
+ */
+class SerialSession {
+    private final SerialManagerProxy mManager;
+    private final long mIdleTimeout;
+    private final ScheduledExecutorService mTimer;
+    private final ExecutorService mReaderExecutor = Executors.newSingleThreadExecutor();
+
+    private SerialPortProxy mPort;
+    private SerialReader mReader;
+    private ScheduledFuture<?> mIdleClose;
+    private boolean mInUse;
+    private int mOpenCount;
+
+    SerialSession(@NonNull SerialManagerProxy manager, @IntRange(from = 0) long idleTimeout) {
+        Preconditions.checkArgument(idleTimeout >= 0, "idle timeout must not be negative");
+        mManager = Preconditions.checkNotNull(manager);
+        mIdleTimeout = idleTimeout;
+        mTimer = idleTimeout > 0 ? Executors.newSingleThreadScheduledExecutor() : null;
+    }
+
+    @NonNull
+    SerialManagerProxy getManager() {
+        return mManager;
+    }
+
+    /**
+     * @return the open port, opening it first if there is none
+     */
+    @NonNull
+    synchronized SerialPortProxy acquire() throws IOException {
+        Preconditions.checkState(!mInUse, "serial port is already in use");
+        cancelIdleClose();
+
+        if (mPort == null) {
+            mPort = Job.openPort(mManager);
+            ++mOpenCount;
+
+            if (mReader == null) {
+                mReader = new SerialReader(mPort);
+            } else {
+                mReader.attach(mPort);
+            }
+        }
+
+        mInUse = true;
+        return mPort;
+    }
+
+    /**
+     * @return the reader of the port returned by the last {@link #acquire()}
+     */
+    @NonNull
+    synchronized SerialReader getReader() {
+        Preconditions.checkState(mInUse, "acquire the port first");
+        return mReader;
+    }
+
+    @NonNull
+    ExecutorService getReaderExecutor() {
+        return mReaderExecutor;
+    }
+
+    /**
+     * @param healthy false if the exchange failed and the port should not be reused
+     */
+    synchronized void release(boolean healthy) {
+        mInUse = false;
+
+        if (!healthy) {
+            // a timed out read may still be using the reader, give the next port a new one
+            mReader = null;
+        }
+
+        if (!healthy || mTimer == null) {
+            closePort();
+        } else {
+            mIdleClose = mTimer.schedule(this::closeIfIdle, mIdleTimeout, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Closes the port and stops the reader and idle timer threads, the session cannot be used afterwards.
+     */
+    synchronized void close() {
+        closePort();
+        mReaderExecutor.shutdownNow();
+        if (mTimer != null) {
+            mTimer.shutdownNow();
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getOpenCount() {
+        return mOpenCount;
+    }
+
+    @VisibleForTesting
+    synchronized boolean isOpen() {
+        return mPort != null;
+    }
+
+    private synchronized void closeIfIdle() {
+        if (!mInUse) {
+            closePort();
+        }
+    }
+
+    private void cancelIdleClose() {
+        if (mIdleClose != null) {
+            mIdleClose.cancel(false);
+            mIdleClose = null;
+        }
+    }
+
+    private void closePort() {
+        cancelIdleClose();
+
+        if (mPort != null) {
+            try {
+                mPort.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            mPort = null;
+        }
+    }
+}
@@ -39,14 +39,34 @@ class Workshop implements Callable<Packet> {
     private static final String TAG = "EncryptionCore.Workshop";
     private static final int DEFAULT_TIMEOUT = 60;
     private final SerialPortProxy mPort;
-    private final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+    private final SerialReader mReader;
+    private final ExecutorService mReaderExecutor;
+    private final boolean mOwnsExecutor;
     private final Packet mPacket;
     private final Packer mPacker;
 
     Workshop(@NonNull SerialPortProxy port, @NonNull Packer packer, @NonNull Packet packet) {
+        this(port, packer, packet, new SerialReader(port), Executors.newSingleThreadExecutor(), true);
+    }
+
+    /**
+     * @param reader         the long-lived reader of {@code port}
+     * @param readerExecutor the thread the reader runs on, so the reply can be waited for with a timeout
+     */
+    Workshop(@NonNull SerialPortProxy port, @NonNull Packer packer, @NonNull Packet packet,
+             @NonNull SerialReader reader, @NonNull ExecutorService readerExecutor) {
+        this(port, packer, packet, reader, readerExecutor, false);
+    }
+
+    private Workshop(@NonNull SerialPortProxy port, @NonNull Packer packer, @NonNull Packet packet,
+                     @NonNull SerialReader reader, @NonNull ExecutorService readerExecutor,
+                     boolean ownsExecutor) {
         mPort = Preconditions.checkNotNull(port);
         mPacker = packer;
         mPacket = Preconditions.checkNotNull(packet);
+        mReader = Preconditions.checkNotNull(reader);
+        mReaderExecutor = Preconditions.checkNotNull(readerExecutor);
+        mOwnsExecutor = ownsExecutor;
     }
 
     private void logBytes(boolean isRequest, @NonNull String id, @NonNull byte[] bytes) {
@@ -78,9 +98,19 @@ class Workshop implements Callable<Packet> {
         logPacket(true, mPacket);
         mPort.write(ByteBuffer.wrap(outputBytes), outputBytes.length);
 
-        final Future<byte[]> future = sExecutor.submit(new SerialReader(mPort));
+        final Future<byte[]> future = mReaderExecutor.submit(mReader);
         int timeout = mPacket.getTimeout() == 0 ? DEFAULT_TIMEOUT : mPacket.getTimeout();
-        final byte[] inputBytes = future.get(timeout, TimeUnit.SECONDS);
+        final byte[] inputBytes;
+        try {
+            inputBytes = future.get(timeout, TimeUnit.SECONDS);
+        } finally {
+            // stop a reader still waiting for the reply
+            future.cancel(true);
+
+            if (mOwnsExecutor) {
+                mReaderExecutor.shutdown();
+            }
+        }
         logBytes(false, id, inputBytes);
 
         Packet packet = mPacker.deserialize(inputBytes);
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.encryptioncore.job;
+
+import android.os.ParcelFileDescriptor;
+
+import com.keystone.cold.encryptioncore.base.Packet;
+import com.keystone.cold.encryptioncore.base.Payload;
+import com.keystone.cold.encryptioncore.interfaces.CONSTANTS;
+import com.keystone.cold.encryptioncore.interfaces.SerialManagerProxy;
+import com.keystone.cold.encryptioncore.interfaces.SerialPortProxy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serial manager whose ports answer every request frame with a success reply carrying
+ * the same packet id and the request's {@link #TAG_ECHO} payload, counting how often ports
+ * are opened and closed. Replies can be delayed to model the secure element's per-packet
+ * latency, and can be handed out back to back in one read.
+ */
+class FakeSerialManager implements SerialManagerProxy {
+    static final int TAG_RESPONSE_CODE = 0x0002;
+    static final int TAG_ECHO = 0x0003;
+
+    private final AtomicInteger mOpenCount = new AtomicInteger();
+    private final AtomicInteger mCloseCount = new AtomicInteger();
+    private volatile boolean mFailNextWrite;
+    private volatile boolean mDropReplies;
+    private volatile long mLatency;
+    private volatile long mNextReplyDelay;
+    private volatile boolean mCoalesceReplies;
+
+    int getOpenCount() {
+        return mOpenCount.get();
+    }
+
+    int getCloseCount() {
+        return mCloseCount.get();
+    }
+
+    void failNextWrite() {
+        mFailNextWrite = true;
+    }
+
+    void setDropReplies(boolean dropReplies) {
+        mDropReplies = dropReplies;
+    }
+
+    void setLatency(long millis) {
+        mLatency = millis;
+    }
+
+    /**
+     * Holds back the reply to the next request by {@code millis} on top of the latency.
+     * Later replies on the same port queue up behind it, as on a real serial line.
+     */
+    void delayNextReply(long millis) {
+        mNextReplyDelay = millis;
+    }
+
+    /**
+     * Returns every reply that is due in a single read instead of one per read.
+     */
+    void setCoalesceReplies(boolean coalesce) {
+        mCoalesceReplies = coalesce;
+    }
+
+    @Override
+    public String[] getSerialPorts() {
+        return new String[]{"ttyS1"};
+    }
+
+    @Override
+    public SerialPortProxy openSerialPort(String name) {
+        mOpenCount.incrementAndGet();
+        return new FakeSerialPort();
+    }
+
+    @Override
+    public void acquireWakeLock() {
+    }
+
+    @Override
+    public void releaseWakeLock() {
+    }
+
+    private class FakeSerialPort implements SerialPortProxy {
+        private final PackerImpl mPacker = new PackerImpl(null);
+        private final BlockingQueue<Reply> mReplies = new LinkedBlockingQueue<>();
+        private volatile boolean mClosed;
+
+        @Override
+        public void open(ParcelFileDescriptor pfd, int speed) {
+        }
+
+        @Override
+        public void close() {
+            mClosed = true;
+            mCloseCount.incrementAndGet();
+        }
+
+        @Override
+        public int read(ByteBuffer buffer, int offset) throws IOException {
+            checkOpen();
+
+            final Reply reply;
+            try {
+                reply = mReplies.poll(10, TimeUnit.MILLISECONDS);
+                if (reply == null) {
+                    return 0;
+                }
+
+                final long wait = reply.dueAt - System.currentTimeMillis();
+                if (wait > 0) {
+                    Thread.sleep(wait);
+                }
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+
+            int length = put(buffer, offset, reply.bytes);
+            while (mCoalesceReplies) {
+                final Reply next = mReplies.peek();
+                if (next == null || next.dueAt > System.currentTimeMillis()
+                        || length + next.bytes.length > CONSTANTS.MAX_BUFFER_SIZE) {
+                    break;
+                }
+                mReplies.remove();
+                length += put(buffer, offset + length, next.bytes);
+            }
+            return length;
+        }
+
+        private int put(ByteBuffer buffer, int offset, byte[] bytes) {
+            for (int i = 0; i < bytes.length; ++i) {
+                buffer.put(offset + i, bytes[i]);
+            }
+            return bytes.length;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int length) throws IOException {
+            checkOpen();
+
+            if (mFailNextWrite) {
+                mFailNextWrite = false;
+                throw new IOException("broken pipe");
+            }
+
+            final byte[] request = new byte[length];
+            buffer.duplicate().get(request);
+
+            if (mDropReplies) {
+                return;
+            }
+
+            try {
+                final Packet packet = mPacker.deserialize(request);
+                final Packet.Builder reply = new Packet.Builder(packet.getId())
+                        .addShortPayload(TAG_RESPONSE_CODE, 0);
+                final Payload echo = packet.getPayload(TAG_ECHO);
+                if (echo != null) {
+                    reply.addPayload(TAG_ECHO, echo);
+                }
+
+                final long delay = mNextReplyDelay;
+                mNextReplyDelay = 0;
+                mReplies.add(new Reply(System.currentTimeMillis() + mLatency + delay,
+                        mPacker.serialize(reply.build())));
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void sendBreak() {
+        }
+
+        private void checkOpen() throws IOException {
+            if (mClosed) {
+                throw new IOException("port closed");
+            }
+        }
+    }
+
+    private static class Reply {
+        final long dueAt;
+        final byte[] bytes;
+
+        Reply(long dueAt, byte[] bytes) {
+            this.dueAt = dueAt;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.encryptioncore.job;
+
+import org.junit.Test;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+
+import static com.keystone.cold.encryptioncore.job.SerialSessionTest.sendPackets;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JobSchedulerLeakTest {
+    private static final int JOBS = 10_000;
+    private static final int WARMUP = 100;
+
+    private static long directMemoryUsed() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    private static int threadCount() {
+        return ManagementFactory.getThreadMXBean().getThreadCount();
+    }
+
+    private static void assertFlat(long idleTimeout) throws InterruptedException {
+        final FakeSerialManager manager = new FakeSerialManager();
+        final JobSchedulerImpl scheduler = new JobSchedulerImpl(manager, null, idleTimeout);
+        assertEquals(WARMUP, sendPackets(scheduler, WARMUP, 0));
+
+        final int threadsBefore = threadCount();
+        final long directBefore = directMemoryUsed();
+
+        assertEquals(JOBS, sendPackets(scheduler, JOBS, 0));
+
+        final int threadsAfter = threadCount();
+        final long directAfter = directMemoryUsed();
+        assertTrue("threads " + threadsBefore + " -> " + threadsAfter, threadsAfter <= threadsBefore + 1);
+        assertTrue("direct memory " + directBefore + " -> " + directAfter, directAfter <= directBefore);
+    }
+
+    @Test
+    public void flatWithPortPerPacket() throws InterruptedException {
+        assertFlat(0);
+    }
+
+    @Test
+    public void flatWithSession() throws InterruptedException {
+        assertFlat(60 * 1000);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.encryptioncore.job;
+
+import androidx.annotation.NonNull;
+import androidx.collection.SparseArrayCompat;
+
+import com.keystone.cold.encryptioncore.base.Packet;
+import com.keystone.cold.encryptioncore.base.Payload;
+import com.keystone.cold.encryptioncore.interfaces.CONSTANTS;
+import com.keystone.cold.encryptioncore.interfaces.Packer;
+import com.keystone.cold.encryptioncore.utils.ByteFormatter;
+import com.keystone.cold.encryptioncore.utils.Preconditions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * The stream based codec PackerImpl used before it wrote frames in place, kept as the
+ * reference for wire compatibility. Unencrypted frames only.
+ */
+class LegacyPacker implements Packer {
+
+    @Override
+    public byte[] serialize(@NonNull Packet packet) throws Exception {
+        if (packet.getPayload(CONSTANTS.TAGS.PACKET_ID) == null) {
+            packet.getPayloads().put(CONSTANTS.TAGS.PACKET_ID, new Payload(ByteFormatter.short2bytes(packet.getId())));
+        }
+
+        final ByteArrayOutputStream bodyStream = new ByteArrayOutputStream();
+        final SparseArrayCompat<Payload> payloads = packet.getPayloads();
+        for (int i = 0, size = payloads.size(); i < size; ++i) {
+            final Payload payload = payloads.valueAt(i);
+            if (payload == null) {
+                continue;
+            }
+
+            final byte[] value = payload.getValue();
+            final byte[] tlv = new byte[4 + value.length];
+            System.arraycopy(ByteFormatter.short2bytes(payloads.keyAt(i)), 0, tlv, 0, 2);
+            System.arraycopy(ByteFormatter.short2bytes(value.length), 0, tlv, 2, 2);
+            System.arraycopy(value, 0, tlv, 4, value.length);
+            bodyStream.write(tlv);
+        }
+        final byte[] body = bodyStream.toByteArray();
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        outputStream.write(CONSTANTS.STX);
+        outputStream.write(CONSTANTS.ENCRYPTION_STATUS.DISABLED);
+        outputStream.write(ByteFormatter.short2bytes(body.length));
+        outputStream.write(body);
+        outputStream.write(CONSTANTS.ETX);
+        outputStream.write(lrc(outputStream.toByteArray()));
+
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public Packet deserialize(@NonNull byte[] bytes) {
+        Preconditions.checkArgument(bytes.length >= CONSTANTS.MIN_BUFFER_SIZE,
+                String.format("the length of bytes must be greater or equal to %s",
+                        CONSTANTS.MIN_BUFFER_SIZE));
+        Preconditions.checkArgument(bytes[0] == CONSTANTS.STX,
+                String.format("the first byte must be constant %s",
+                        ByteFormatter.addHexPrefix(CONSTANTS.STX)));
+        Preconditions.checkArgument(bytes[1] == CONSTANTS.ENCRYPTION_STATUS.DISABLED
+                        || bytes[1] == CONSTANTS.ENCRYPTION_STATUS.ENABLED,
+                String.format("the second byte must be one of [%s, %s]",
+                        ByteFormatter.addHexPrefix(CONSTANTS.ENCRYPTION_STATUS.DISABLED),
+                        ByteFormatter.addHexPrefix(CONSTANTS.ENCRYPTION_STATUS.ENABLED)));
+        Preconditions.checkArgument(bytes[bytes.length - 2] == CONSTANTS.ETX,
+                String.format("the second to last byte must be constant %s",
+                        ByteFormatter.addHexPrefix(CONSTANTS.ETX)));
+        Preconditions.checkArgument(bytes[bytes.length - 1] == lrc(Arrays.copyOf(bytes, bytes.length - 1)),
+                String.format("lrc is not the same, expected %s, but actual is %s",
+                        bytes[bytes.length - 1], lrc(Arrays.copyOf(bytes, bytes.length - 1))));
+        final int lenOfBody = ByteFormatter.bytes2short(new byte[]{bytes[2], bytes[3]});
+        final byte[] body = Arrays.copyOfRange(bytes, 4, 4 + lenOfBody);
+
+        final SparseArrayCompat<Payload> payloads = new SparseArrayCompat<>();
+        final ByteArrayInputStream inputStream = new ByteArrayInputStream(body);
+        int offset = 0;
+        final int available = inputStream.available();
+
+        while (offset < available) {
+            final byte[] twoBytesBuffer = new byte[2];
+            inputStream.read(twoBytesBuffer, 0, 2);
+            final int tag = ByteFormatter.bytes2short(twoBytesBuffer);
+            inputStream.read(twoBytesBuffer, 0, 2);
+            final int lenOfVal = ByteFormatter.bytes2short(twoBytesBuffer);
+            final byte[] valueBuffer = new byte[lenOfVal];
+            inputStream.read(valueBuffer, 0, lenOfVal);
+            offset += 4 + lenOfVal;
+            payloads.put(tag, new Payload(valueBuffer));
+        }
+
+        final Packet.Builder builder = new Packet.Builder(Preconditions.checkNotNull(
+                payloads.get(CONSTANTS.TAGS.PACKET_ID)).toInt());
+        for (int i = 0, size = payloads.size(); i < size; ++i) {
+            builder.addBytesPayload(payloads.keyAt(i), payloads.valueAt(i).getValue());
+        }
+
+        return builder.build();
+    }
+
+    private static byte lrc(@NonNull byte[] bytes) {
+        byte lrc = 0;
+        for (byte b : bytes) {
+            lrc ^= b;
+        }
+        return lrc;
+    }
+}
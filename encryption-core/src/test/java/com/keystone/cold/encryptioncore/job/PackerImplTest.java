@@ -29,6 +29,8 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -52,6 +54,45 @@ public class PackerImplTest {
         }, new PackerImpl(null).serialize(new Packet.Builder(0x0208).addBytePayload(0x020F, 0x01).build()));
     }
 
+    @Test
+    public void serializeMatchesLegacyCodec() throws Exception {
+        final Random random = new Random(7);
+
+        for (int i = 0; i < 100; ++i) {
+            final byte[] page = new byte[random.nextInt(1024)];
+            random.nextBytes(page);
+            final Packet packet = new Packet.Builder(0x0202)
+                    .addBytePayload(0x0110, random.nextInt(3))
+                    .addBytesPayload(0x0111, page)
+                    .build();
+
+            final byte[] frame = new PackerImpl(null).serialize(packet);
+            assertArrayEquals(new LegacyPacker().serialize(packet), frame);
+
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(frame.length);
+            assertEquals(frame.length, new PackerImpl(null).serialize(packet, buffer));
+            buffer.flip();
+            final byte[] direct = new byte[frame.length];
+            buffer.get(direct);
+            assertArrayEquals(frame, direct);
+
+            final Packet parsed = new PackerImpl(null).deserialize(frame);
+            final Packet legacy = new LegacyPacker().deserialize(frame);
+            assertEquals(legacy.getId(), parsed.getId());
+            assertEquals(legacy.getPayloads().size(), parsed.getPayloads().size());
+            assertEquals(legacy.getPayload(0x0111), parsed.getPayload(0x0111));
+            assertArrayEquals(page, parsed.getPayload(0x0111).getValue());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void deserializeLengthMismatch() throws Exception {
+        new PackerImpl(null).deserialize(new byte[]{
+                0x02, 0x00, 0x00, 0x0d, 0x00, 0x01, 0x00, 0x02, 0x06, 0x01,
+                0x00, 0x02, 0x00, 0x02, 0x00, 0x00, 0x03, 0x08
+        });
+    }
+
     @Test
     public void serializeBody() throws IOException {
         assertArrayEquals(new byte[]{
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.encryptioncore.job;
+
+import androidx.annotation.NonNull;
+
+import com.keystone.cold.encryptioncore.base.Packet;
+import com.keystone.cold.encryptioncore.interfaces.Callback;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.keystone.cold.encryptioncore.job.SerialSessionTest.sendPackets;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PipelinedJobSchedulerTest {
+    private static final int PACKETS = 200;
+    private static final long LATENCY = 5; // ms
+
+    @Test
+    public void offer() throws InterruptedException {
+        final FakeSerialManager manager = new FakeSerialManager();
+        final PipelinedJobScheduler scheduler = new PipelinedJobScheduler(manager, null, 8, 60 * 1000);
+
+        final CountDownLatch latch = new CountDownLatch(3);
+        final int[] ids = new int[]{0x0103, 0x0202, 0x0103};
+        final int[] replies = new int[ids.length];
+
+        for (int i = 0; i < ids.length; ++i) {
+            final int index = i;
+            scheduler.offer(new Packet.Builder(ids[i]).build(), new Callback() {
+                @Override
+                public void onSuccess(@NonNull Packet packet) {
+                    replies[index] = packet.getId();
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFail(@NonNull Exception exception) {
+                }
+            });
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < ids.length; ++i) {
+            assertEquals(ids[i], replies[i]);
+        }
+        assertEquals(0, scheduler.getInFlightCount());
+        assertEquals(1, manager.getOpenCount());
+    }
+
+    @Test
+    public void failAfterTimeout() throws InterruptedException {
+        final FakeSerialManager manager = new FakeSerialManager();
+        manager.setDropReplies(true);
+        final PipelinedJobScheduler scheduler = new PipelinedJobScheduler(manager, null, 2, 60 * 1000);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Exception> error = new AtomicReference<>();
+
+        scheduler.offer(new Packet.Builder(0x0103).setTimeout(1).build(), new Callback() {
+            @Override
+            public void onSuccess(@NonNull Packet packet) {
+            }
+
+            @Override
+            public void onFail(@NonNull Exception exception) {
+                error.set(exception);
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(error.get() instanceof TimeoutException);
+        assertEquals(0, scheduler.getInFlightCount());
+    }
+
+    @Test
+    public void lateReplyAfterTimeout() throws InterruptedException {
+        final FakeSerialManager manager = new FakeSerialManager();
+        final PipelinedJobScheduler scheduler = new PipelinedJobScheduler(manager, null, 2, 60 * 1000);
+
+        // the reply to the first packet arrives after it timed out, the second packet
+        // has the same command id and must not take that reply for its own
+        manager.delayNextReply(1500);
+        final String[] hashes = new String[]{"aaaa", "bbbb"};
+        final String[] replies = new String[hashes.length];
+        final CountDownLatch latch = new CountDownLatch(hashes.length);
+
+        for (int i = 0; i < hashes.length; ++i) {
+            final int index = i;
+            final Packet packet = new Packet.Builder(0x0103)
+                    .addHexPayload(FakeSerialManager.TAG_ECHO, hashes[i])
+                    .setTimeout(i == 0 ? 1 : 5)
+                    .setRetryTimes(1)
+                    .build();
+            scheduler.offer(packet, new Callback() {
+                @Override
+                public void onSuccess(@NonNull Packet packet) {
+                    replies[index] = packet.getPayload(FakeSerialManager.TAG_ECHO).toHex();
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFail(@NonNull Exception exception) {
+                    latch.countDown();
+                }
+            });
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertArrayEquals(hashes, replies);
+        assertEquals(0, scheduler.getInFlightCount());
+        assertEquals(2, manager.getOpenCount());
+    }
+
+    @Test
+    public void backToBackReplies() throws InterruptedException {
+        final FakeSerialManager manager = new FakeSerialManager();
+        manager.setLatency(LATENCY);
+        manager.setCoalesceReplies(true);
+        final PipelinedJobScheduler scheduler = new PipelinedJobScheduler(manager, null, 8, 60 * 1000);
+
+        assertEquals(PACKETS, sendPackets(scheduler, PACKETS, 0));
+        assertEquals(1, manager.getOpenCount());
+    }
+
+    @Test
+    public void reconnectAfterIoError() throws InterruptedException {
+        final FakeSerialManager manager = new FakeSerialManager();
+        final PipelinedJobScheduler scheduler = new PipelinedJobScheduler(manager, null, 4, 60 * 1000);
+
+        assertEquals(1, sendPackets(scheduler, 1, 0));
+        manager.failNextWrite();
+        assertEquals(1, sendPackets(scheduler, 1, 1));
+
+        assertEquals(2, manager.getOpenCount());
+        assertEquals(1, manager.getCloseCount());
+    }
+}
@@ -190,4 +190,52 @@ public class SerialReaderTest {
                 0, 1, 2, 4, 16, 17
         }, captureArray);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void callSkipsGarbage() throws Exception {
+        final byte[] bytes = new byte[]{
+                0x68, 0x65, 0x6c, 0x6c, 0x6f, 0x0a, // debug output "hello\n"
+                0x02, 0x05, // stx followed by illegal encryption status
+                0x02, 0x00, 0x00, 0x0c, 0x00, 0x01, 0x00, 0x02, 0x06, 0x01,
+                0x00, 0x02, 0x00, 0x02, 0x00, 0x00, 0x03, 0x09
+        };
+
+        when(mPort.read(any(ByteBuffer.class), anyInt())).thenAnswer((Answer<Integer>) invocation -> {
+            final ByteBuffer buffer = invocation.getArgumentAt(0, ByteBuffer.class);
+            buffer.put(bytes);
+
+            return bytes.length;
+        });
+
+        final byte[] result = new SerialReader(mPort).call();
+
+        assertArrayEquals(new byte[]{
+                0x02, 0x00, 0x00, 0x0c, 0x00, 0x01, 0x00, 0x02, 0x06, 0x01,
+                0x00, 0x02, 0x00, 0x02, 0x00, 0x00, 0x03, 0x09
+        }, result);
+        verify(mPort, times(1)).read(any(ByteBuffer.class), anyInt());
+    }
+
+    @Test
+    public void callKeepsFollowingFrame() throws Exception {
+        final byte[] frame = new byte[]{
+                0x02, 0x00, 0x00, 0x06, 0x00, 0x01, 0x00, 0x02, 0x01, 0x03, 0x03, 0x06
+        };
+        final byte[] bytes = new byte[frame.length * 2];
+        System.arraycopy(frame, 0, bytes, 0, frame.length);
+        System.arraycopy(frame, 0, bytes, frame.length, frame.length);
+
+        when(mPort.read(any(ByteBuffer.class), anyInt())).thenAnswer((Answer<Integer>) invocation -> {
+            final ByteBuffer buffer = invocation.getArgumentAt(0, ByteBuffer.class);
+            buffer.put(bytes);
+
+            return bytes.length;
+        });
+
+        final SerialReader reader = new SerialReader(mPort);
+
+        assertArrayEquals(frame, reader.call());
+        assertArrayEquals(frame, reader.call());
+        verify(mPort, times(1)).read(any(ByteBuffer.class), anyInt());
+    }
+}
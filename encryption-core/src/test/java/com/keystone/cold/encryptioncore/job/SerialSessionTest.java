@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2021 Keystone
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * in the file COPYING.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keystone.cold.encryptioncore.job;
+
+import androidx.annotation.NonNull;
+
+import com.keystone.cold.encryptioncore.base.Packet;
+import com.keystone.cold.encryptioncore.interfaces.Callback;
+import com.keystone.cold.encryptioncore.interfaces.JobScheduler;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SerialSessionTest {
+    private static final int PACKETS = 1000;
+
+    static int sendPackets(@NonNull JobScheduler scheduler, int count, int retryTimes)
+            throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(count);
+        final AtomicInteger succeeded = new AtomicInteger();
+
+        for (int i = 0; i < count; ++i) {
+            scheduler.offer(new Packet.Builder(0x0103).setRetryTimes(retryTimes).build(), new Callback() {
+                @Override
+                public void onSuccess(@NonNull Packet packet) {
+                    succeeded.incrementAndGet();
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFail(@NonNull Exception exception) {
+                    latch.countDown();
+                }
+            });
+        }
+
+        assertTrue(latch.await(60, TimeUnit.SECONDS));
+        return succeeded.get();
+    }
+
+    @Test
+    public void keepPortOpenAcrossPackets() throws InterruptedException {
+        final FakeSerialManager manager = new FakeSerialManager();
+        final JobSchedulerImpl scheduler = new JobSchedulerImpl(manager, null, 60 * 1000);
+
+        assertEquals(PACKETS, sendPackets(scheduler, PACKETS, 0));
+
+        assertEquals(1, manager.getOpenCount());
+        assertEquals(0, manager.getCloseCount());
+        assertTrue(scheduler.getSession().isOpen());
+    }
+
+    @Test
+    public void openPortPerPacketWithoutSession() throws InterruptedException {
+        final FakeSerialManager manager = new FakeSerialManager();
+        final JobSchedulerImpl scheduler = new JobSchedulerImpl(manager, null);
+
+        assertEquals(PACKETS, sendPackets(scheduler, PACKETS, 0));
+
+        assertEquals(PACKETS, manager.getOpenCount());
+        assertEquals(PACKETS, manager.getCloseCount());
+        assertFalse(scheduler.getSession().isOpen());
+    }
+
+    @Test
+    public void closePortAfterIdleTimeout() throws InterruptedException {
+        final FakeSerialManager manager = new FakeSerialManager();
+        final JobSchedulerImpl scheduler = new JobSchedulerImpl(manager, null, 50);
+
+        assertEquals(1, sendPackets(scheduler, 1, 0));
+        Thread.sleep(500);
+
+        assertEquals(1, manager.getCloseCount());
+        assertFalse(scheduler.getSession().isOpen());
+
+        assertEquals(1, sendPackets(scheduler, 1, 0));
+        assertEquals(2, manager.getOpenCount());
+    }
+
+    @Test
+    public void reconnectAfterIoError() throws InterruptedException {
+        final FakeSerialManager manager = new FakeSerialManager();
+        final JobSchedulerImpl scheduler = new JobSchedulerImpl(manager, null, 60 * 1000);
+
+        assertEquals(1, sendPackets(scheduler, 1, 0));
+        manager.failNextWrite();
+        assertEquals(1, sendPackets(scheduler, 1, 1));
+
+        assertEquals(2, manager.getOpenCount());
+        assertEquals(1, manager.getCloseCount());
+        assertEquals(2, scheduler.getSession().getOpenCount());
+    }
+
+    @Test
+    public void closeStopsReaderThread() throws IOException {
+        final FakeSerialManager manager = new FakeSerialManager();
+        final SerialSession session = new SerialSession(manager, 60 * 1000);
+
+        session.acquire();
+        session.release(true);
+        session.close();
+
+        assertFalse(session.isOpen());
+        assertEquals(1, manager.getCloseCount());
+        assertTrue(session.getReaderExecutor().isShutdown());
+    }
+}